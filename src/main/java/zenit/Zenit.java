@@ -4,6 +4,8 @@ import java.io.File;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.stage.Stage;
+import main.java.zenit.javacodecompiler.ProcessIOService;
+import main.java.zenit.javacodecompiler.ProcessRegistry;
 import main.java.zenit.launchers.MacOSLauncher;
 import main.java.zenit.setup.SetupController;
 import main.java.zenit.ui.MainController;
@@ -20,6 +22,7 @@ public class Zenit extends Application {
 	
 	@Override
 	public void start(Stage stage) throws Exception {
+		ZenitLog.getInstance().install();
 		
 		File workspace = new File("res/workspace/workspace.dat");
 		File JDK = new File("res/JDK/JDK.dat");
@@ -40,6 +43,8 @@ public class Zenit extends Application {
 	
 	@Override
 	public void stop() {
+		ProcessRegistry.getInstance().terminateAll();
+		ProcessIOService.getInstance().shutdown();
 		Platform.exit();
 		System.exit(0);
 	}
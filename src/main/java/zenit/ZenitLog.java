@@ -0,0 +1,113 @@
+package main.java.zenit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+
+import main.java.zenit.console.ConsoleLog;
+import main.java.zenit.javacodecompiler.InProcessRunner;
+
+/**
+ * Zenit's own log. What Zenit prints to {@link System#out} and {@link System#err} goes here
+ * instead of to a console, so its diagnostics never mix with or slow down the output of a run.
+ * <p>
+ * The output is passed on to the standard streams Zenit was started with, and kept in a
+ * {@link ConsoleLog} that can be shown from the menu. Output of runs doesn't pass through the
+ * log: processes are pumped to their own console, and runs inside Zenit are routed to their
+ * console by {@link InProcessRunner}.
+ * </p>
+ */
+public class ZenitLog {
+	private static ZenitLog instance;
+
+	private final PrintStream originalOut = System.out;
+	private final PrintStream originalErr = System.err;
+	private final ConsoleLog log = ConsoleLog.create("zenit");
+	private boolean installed;
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	private ZenitLog() {}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * @return the log of this Zenit instance
+	 */
+	public static synchronized ZenitLog getInstance() {
+		if (instance == null) {
+			instance = new ZenitLog();
+		}
+		return instance;
+	}
+
+	/**
+	 * Routes {@link System#out}, {@link System#err} and {@link System#in}, so that output
+	 * printed outside of runs goes to the log. Called once when Zenit starts.
+	 */
+	public synchronized void install() {
+		if (!installed) {
+			installed = true;
+			InProcessRunner.setConsoleStreams(new PrintStream(new LogStream(originalOut), true),
+					new PrintStream(new LogStream(originalErr), true));
+		}
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Getters:
+	/**
+	 * @return the log, or null if its file couldn't be created
+	 */
+	public ConsoleLog getLog() {
+		return log;
+	}
+
+	/**
+	 * Passes output on to one of the original streams, and appends it to the log a line at a time.
+	 * A line is decoded as a whole, so a character is never split between two appends.
+	 */
+	private class LogStream extends OutputStream {
+		private final PrintStream original;
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+		LogStream(PrintStream original) {
+			this.original = original;
+		}
+
+		@Override
+		public synchronized void write(int b) {
+			original.write(b);
+			line.write(b);
+			if (b == '\n') {
+				appendLine();
+			}
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			original.write(b, off, len);
+			int start = off;
+			for (int i = off; i < off + len; i++) {
+				if (b[i] == '\n') {
+					line.write(b, start, i + 1 - start);
+					appendLine();
+					start = i + 1;
+				}
+			}
+			line.write(b, start, off + len - start);
+		}
+
+		@Override
+		public synchronized void flush() {
+			original.flush();
+		}
+
+		private void appendLine() {
+			if (log != null) {
+				log.append(new String(line.toByteArray(), Charset.defaultCharset()));
+			}
+			line.reset();
+		}
+	}
+}
@@ -0,0 +1,338 @@
+package main.java.zenit.console;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.fxmisc.richtext.model.StyleSpans;
+import org.fxmisc.richtext.model.StyleSpansBuilder;
+
+/**
+ * Turns output with ANSI escape sequences into text and styles for a {@link ConsoleArea}.
+ * <p>
+ * The parser keeps its state between calls, so a sequence split between two chunks of output is
+ * handled. SGR sequences ({@code ESC [ ... m}) set the color, background and font of the text
+ * after them: the 16 standard colors, the 256 indexed colors and 24-bit colors are supported,
+ * as well as bold, italic, underline, strikethrough and inverse. All other sequences, such as
+ * cursor movements, are removed.
+ * </p>
+ * <p>
+ * Text without escape sequences is passed on in one piece. The CSS of each combination of
+ * attributes is created once and shared, so consecutive text in the same style becomes one span.
+ * </p>
+ */
+public class AnsiParser {
+	private static final char ESC = '\u001b', BEL = '\u0007';
+	private static final int MAX_SEQUENCE_LENGTH = 256;
+	private static final int MAX_INTERNED_STYLES = 4096;
+	private static final Pattern SEQUENCE = Pattern.compile(
+			"\u001b(\\[[0-?]*[ -/]*[@-~]|\\][^\u0007\u001b]*(\u0007|\u001b\\\\)?|[@-Z\\\\^_])");
+
+	private static final int[] PALETTE = {
+			0x000000, 0xcd3131, 0x0dbc79, 0xe5e510, 0x2472c8, 0xbc3fbc, 0x11a8cd, 0xe5e5e5,
+			0x666666, 0xf14c4c, 0x23d18b, 0xf5f543, 0x3b8eea, 0xd670d6, 0x29b8db, 0xffffff };
+
+	private static final int BOLD = 1, ITALIC = 2, UNDERLINE = 4, STRIKETHROUGH = 8, INVERSE = 16;
+	private static final int DEFAULT_COLOR = -1;
+
+	private static final Map<String, Map<Long, String>> interned = new HashMap<>();
+
+	private enum State { TEXT, ESCAPE, CSI, OSC, OSC_ESCAPE }
+
+	private final String defaultColor;
+	private final Map<Long, String> styles;
+	private final StringBuilder sequence = new StringBuilder();
+	private final int[] parameters = new int[32];
+	private State state = State.TEXT;
+	private int foreground = DEFAULT_COLOR, background = DEFAULT_COLOR, attributes;
+	private String style;
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	/**
+	 * Creates a parser for one stream of output.
+	 *
+	 * @param defaultColor the CSS color of text without a color of its own, for example "white"
+	 */
+	public AnsiParser(String defaultColor) {
+		this.defaultColor = defaultColor;
+		synchronized (interned) {
+			styles = interned.computeIfAbsent(defaultColor, color -> new HashMap<>());
+		}
+		style = createStyle();
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Parses a chunk of output.
+	 *
+	 * @param output the chunk
+	 * @param text receives the text without escape sequences
+	 * @param runs receives the style of the text
+	 */
+	public void parse(String output, StringBuilder text, Runs runs) {
+		if (state == State.TEXT && output.indexOf(ESC) < 0) {
+			text.append(output);
+			runs.add(style, output.length());
+			return;
+		}
+
+		// Appending ranges of a char array is a bulk copy, unlike ranges of a String
+		char[] chars = output.toCharArray();
+		int start = 0;
+		for (int i = 0; i < chars.length; i++) {
+			char c = chars[i];
+			switch (state) {
+			case TEXT:
+				if (c == ESC) {
+					appendText(chars, start, i, text, runs);
+					state = State.ESCAPE;
+				}
+				break;
+			case ESCAPE:
+				if (c == '[') {
+					state = State.CSI;
+					sequence.setLength(0);
+				} else if (c == ']') {
+					state = State.OSC;
+				} else {
+					// A sequence of two characters, which isn't rendered
+					state = c == ESC ? State.ESCAPE : State.TEXT;
+					start = i + 1;
+				}
+				break;
+			case CSI:
+				if (c >= 0x40 && c <= 0x7e) {
+					if (c == 'm') {
+						applySGR(sequence);
+					}
+					state = State.TEXT;
+					start = i + 1;
+				} else if (sequence.length() < MAX_SEQUENCE_LENGTH) {
+					sequence.append(c);
+				}
+				break;
+			case OSC:
+				if (c == BEL) {
+					state = State.TEXT;
+					start = i + 1;
+				} else if (c == ESC) {
+					state = State.OSC_ESCAPE;
+				}
+				break;
+			case OSC_ESCAPE:
+				state = c == '\\' ? State.TEXT : State.OSC;
+				start = i + 1;
+				break;
+			}
+		}
+		if (state == State.TEXT) {
+			appendText(chars, start, chars.length, text, runs);
+		}
+	}
+
+	private void appendText(char[] chars, int start, int end, StringBuilder text, Runs runs) {
+		if (end > start) {
+			text.append(chars, start, end - start);
+			runs.add(style, end - start);
+		}
+	}
+
+	/**
+	 * Applies the parameters of an SGR sequence, separated by ';' or ':'. An empty parameter
+	 * counts as 0.
+	 */
+	private void applySGR(CharSequence sequence) {
+		int count = 0;
+		int value = 0;
+		for (int i = 0; i <= sequence.length(); i++) {
+			char c = i < sequence.length() ? sequence.charAt(i) : ';';
+			if (c >= '0' && c <= '9') {
+				value = Math.min(value * 10 + c - '0', 0xffff);
+			} else if (c == ';' || c == ':') {
+				if (count < parameters.length) {
+					parameters[count++] = value;
+				}
+				value = 0;
+			} else {
+				// Private sequences such as ESC [ ? ... m aren't SGR
+				return;
+			}
+		}
+
+		for (int i = 0; i < count; i++) {
+			int code = parameters[i];
+			if (code == 0) {
+				foreground = DEFAULT_COLOR;
+				background = DEFAULT_COLOR;
+				attributes = 0;
+			} else if (code == 1) {
+				attributes |= BOLD;
+			} else if (code == 3) {
+				attributes |= ITALIC;
+			} else if (code == 4) {
+				attributes |= UNDERLINE;
+			} else if (code == 7) {
+				attributes |= INVERSE;
+			} else if (code == 9) {
+				attributes |= STRIKETHROUGH;
+			} else if (code == 22) {
+				attributes &= ~BOLD;
+			} else if (code == 23) {
+				attributes &= ~ITALIC;
+			} else if (code == 24) {
+				attributes &= ~UNDERLINE;
+			} else if (code == 27) {
+				attributes &= ~INVERSE;
+			} else if (code == 29) {
+				attributes &= ~STRIKETHROUGH;
+			} else if (code >= 30 && code <= 37) {
+				foreground = PALETTE[code - 30];
+			} else if (code >= 90 && code <= 97) {
+				foreground = PALETTE[code - 90 + 8];
+			} else if (code == 39) {
+				foreground = DEFAULT_COLOR;
+			} else if (code >= 40 && code <= 47) {
+				background = PALETTE[code - 40];
+			} else if (code >= 100 && code <= 107) {
+				background = PALETTE[code - 100 + 8];
+			} else if (code == 49) {
+				background = DEFAULT_COLOR;
+			} else if (code == 38 || code == 48) {
+				int color = DEFAULT_COLOR;
+				if (i + 2 < count && parameters[i + 1] == 5) {
+					color = getIndexedColor(parameters[i + 2]);
+					i += 2;
+				} else if (i + 4 < count && parameters[i + 1] == 2) {
+					color = (parameters[i + 2] & 0xff) << 16 | (parameters[i + 3] & 0xff) << 8 | parameters[i + 4] & 0xff;
+					i += 4;
+				} else {
+					i = count;
+				}
+				if (code == 38) {
+					foreground = color;
+				} else {
+					background = color;
+				}
+			}
+		}
+		style = createStyle();
+	}
+
+	/**
+	 * @param index an index of the 256-color palette
+	 * @return the color as 0xRRGGBB
+	 */
+	private static int getIndexedColor(int index) {
+		if (index < 16) {
+			return PALETTE[index];
+		}
+		if (index < 232) {
+			int cube = index - 16;
+			int[] levels = { 0, 95, 135, 175, 215, 255 };
+			return levels[cube / 36] << 16 | levels[cube / 6 % 6] << 8 | levels[cube % 6];
+		}
+		int grey = 8 + (Math.min(index, 255) - 232) * 10;
+		return grey << 16 | grey << 8 | grey;
+	}
+
+	/**
+	 * Finds the CSS of the current attributes, creating it the first time they are used.
+	 */
+	private String createStyle() {
+		long key = ((long) (foreground & 0x1ffffff) << 30) | ((long) (background & 0x1ffffff) << 5) | attributes;
+		synchronized (styles) {
+			String css = styles.get(key);
+			if (css != null) {
+				return css;
+			}
+		}
+
+		int fill = (attributes & INVERSE) != 0 ? background : foreground;
+		int back = (attributes & INVERSE) != 0 ? foreground : background;
+		StringBuilder css = new StringBuilder("-fx-fill: ");
+		css.append(fill == DEFAULT_COLOR ? ((attributes & INVERSE) != 0 ? "black" : defaultColor) : toHex(fill))
+				.append(';');
+		if (back != DEFAULT_COLOR || (attributes & INVERSE) != 0) {
+			css.append(" -rtfx-background-color: ")
+					.append(back == DEFAULT_COLOR ? defaultColor : toHex(back)).append(';');
+		}
+		if ((attributes & BOLD) != 0) {
+			css.append(" -fx-font-weight: bold;");
+		}
+		if ((attributes & ITALIC) != 0) {
+			css.append(" -fx-font-style: italic;");
+		}
+		if ((attributes & UNDERLINE) != 0) {
+			css.append(" -fx-underline: true;");
+		}
+		if ((attributes & STRIKETHROUGH) != 0) {
+			css.append(" -fx-strikethrough: true;");
+		}
+
+		String result = css.toString();
+		synchronized (styles) {
+			if (styles.size() < MAX_INTERNED_STYLES) {
+				styles.put(key, result);
+			}
+		}
+		return result;
+	}
+
+	private static String toHex(int color) {
+		return String.format("#%06x", color);
+	}
+
+	/**
+	 * Removes all escape sequences from a text.
+	 *
+	 * @param output the text
+	 * @return the text without escape sequences
+	 */
+	public static String strip(String output) {
+		return output.indexOf(ESC) < 0 ? output : SEQUENCE.matcher(output).replaceAll("");
+	}
+
+	/**
+	 * Collects the styles of a batch of text, joining consecutive text in the same style.
+	 */
+	public static class Runs {
+		private final StyleSpansBuilder<String> builder = new StyleSpansBuilder<>();
+		private String style;
+		private int length;
+
+		/**
+		 * Adds the style of the next part of the text.
+		 *
+		 * @param style the style
+		 * @param length the length of the part
+		 */
+		public void add(String style, int length) {
+			if (length == 0) {
+				return;
+			}
+			if (style.equals(this.style)) {
+				this.length += length;
+				return;
+			}
+			if (this.length > 0) {
+				builder.add(this.style, this.length);
+			}
+			this.style = style;
+			this.length = length;
+		}
+
+		/**
+		 * @return the styles added, or null if no text was added
+		 */
+		public StyleSpans<String> create() {
+			if (length == 0) {
+				return null;
+			}
+			builder.add(style, length);
+			length = 0;
+			return builder.create();
+		}
+	}
+}
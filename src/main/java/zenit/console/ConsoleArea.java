@@ -1,17 +1,65 @@
 package main.java.zenit.console;
 
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.fxmisc.richtext.InlineCssTextArea;
+import org.fxmisc.richtext.model.StyleSpans;
+import org.fxmisc.richtext.model.TwoDimensional.Bias;
+import org.fxmisc.richtext.util.UndoUtils;
+import org.fxmisc.undo.UndoManagerFactory;
+import javafx.animation.AnimationTimer;
 import javafx.application.Platform;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import main.java.zenit.javacodecompiler.ProcessInput;
+import main.java.zenit.javacodecompiler.ProcessRegistry;
 
 /**
  * The ConsoleArea class extends the InlineCssTextArea to represent a customizable console widget
  * that allows for the display of output including inline styles such as colors for error and standard output.
  * It supports associating a background color, process, file name, and identifier.
  * This class is primarily designed to display console-like interactions with support for styled text.
+ * <p>
+ * Printed text is collected in a {@link ConsoleBuffer} and shown at most once per JavaFX pulse,
+ * with one append for everything printed since the pulse before, so a program that prints in a
+ * tight loop can't flood the JavaFX thread.
+ * </p>
+ * <p>
+ * The scrollback is limited in lines and characters. Once a limit is exceeded, the oldest lines
+ * are removed in one batch, down to {@value #TRIM_TO_PERCENT} percent of the limit, and replaced
+ * by a line saying how many lines were trimmed. The default limits can be set with the system
+ * properties {@code zenit.console.scrollbackLines} and {@code zenit.console.scrollbackChars}.
+ * </p>
+ * <p>
+ * ANSI escape sequences in the output are parsed separately for standard and error output, see
+ * {@link AnsiParser}, so programs can print in color.
+ * </p>
  */
 public class ConsoleArea extends InlineCssTextArea {
+	private static final int MAX_CHARS_PER_PULSE = 256 * 1024;
+	private static final String TRIMMED_STYLE = "-fx-fill: gray;";
+	private static final int TRIM_TO_PERCENT = 90;
+	
+	public static final int DEFAULT_SCROLLBACK_LINES = Integer.getInteger("zenit.console.scrollbackLines", 10_000);
+	public static final int DEFAULT_SCROLLBACK_CHARS = Integer.getInteger("zenit.console.scrollbackChars", 4 * 1024 * 1024);
+	
 	private String ID, backgroundColor, fileName;
+	private int scrollbackLines = DEFAULT_SCROLLBACK_LINES, scrollbackChars = DEFAULT_SCROLLBACK_CHARS;
+	private long trimmedLines;
+	private volatile ConsoleLog log;
+	private final ObjectProperty<ProcessInput> input = new SimpleObjectProperty<>();
 	private Process process;
+	private Future<?> pendingRun;
+	private final ConsoleBuffer buffer = new ConsoleBuffer();
+	private final AnsiParser outputParser = new AnsiParser("white"), errorParser = new AnsiParser("red");
+	private final AtomicBoolean drainScheduled = new AtomicBoolean();
+	private final AnimationTimer drainer = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			drainPulse();
+		}
+	};
 	
 	// ------------------------------------------------------------------------------------
 	// Constructors:
@@ -52,6 +100,8 @@ public class ConsoleArea extends InlineCssTextArea {
     private void initializeConsoleArea( ) {
         applyStylesheet(); // Apply default stylesheet
         this.setEditable(false); // Set the console as non-editable
+        // Nothing is undone in a console, and a history would keep all trimmed output
+        this.setUndoManager(UndoUtils.richTextUndoManager(this, UndoManagerFactory.zeroHistoryFactory()));
     }
     
     /**
@@ -63,48 +113,233 @@ public class ConsoleArea extends InlineCssTextArea {
 	
 	/**
 	 * Prints the specified error message to the ConsoleArea. The error message is styled
-	 * with a red font color to visually indicate an error.
+	 * with a red font color to visually indicate an error. May be called from any thread.
 	 *
 	 * @param stringToPrint the error message to print, represented as a String
 	 */
 	public void printError(String stringToPrint) {
-		Platform.runLater(new Runnable() {
-			// Append a string (stored in `stringToPrint`) to the console area and style it with a red font color:
-			@Override
-			public void run() {
-				try {
-					appendText(stringToPrint);
-					setStyle(getText().length() - stringToPrint.length(), getText().length(),
-							"-fx-fill: red;");
-				}
-				catch (IndexOutOfBoundsException e) {
-					// Windows bug, don't do anything with the exception.
-				}
-			}
-		});
+		print(stringToPrint, true);
 	}
 	
 	/**
 	 * Prints the specified string to the console area and applies a style to the text.
-	 * This method ensures that the specified string is appended to the console area
-	 * and styled appropriately using a white font color.
+	 * The string is shown with a white font color. May be called from any thread.
 	 *
 	 * @param stringToPrint the string to append and display in the console area
 	 */
 	public void outPrint(String stringToPrint) {
-		Platform.runLater(new Runnable() {
-			// Append a string (stored in `stringToPrint`) to the console area and style it with a white font color:
-			@Override
-			public void run() {
-				try {
-					appendText(stringToPrint);
-					setStyle(getText().length() - stringToPrint.length(), getText().length(),
-							"-fx-fill: white");
-				} catch (IndexOutOfBoundsException e) {
-					// Windows bug, don't do anything with the exception.
+		print(stringToPrint, false);
+	}
+	
+	/**
+	 * Prints output to the console if its buffer has room, without waiting. Meant for threads
+	 * that must not block, such as the one pumping the output of all processes.
+	 *
+	 * @param stringToPrint the output to print
+	 * @return false if the buffer is full and nothing was printed
+	 */
+	public boolean offerOutput(String stringToPrint) {
+		return offer(stringToPrint, false);
+	}
+	
+	/**
+	 * Prints error output to the console if its buffer has room, without waiting.
+	 *
+	 * @param stringToPrint the error output to print
+	 * @return false if the buffer is full and nothing was printed
+	 * @see #offerOutput(String)
+	 */
+	public boolean offerError(String stringToPrint) {
+		return offer(stringToPrint, true);
+	}
+	
+	/**
+	 * Adds text to the buffer of the console and makes sure it is drained on the next pulse.
+	 * Other threads wait while the buffer is full. The JavaFX thread can't wait for itself, so it
+	 * shows the buffered output right away instead.
+	 */
+	private void print(String text, boolean error) {
+		if (text == null || text.isEmpty()) {
+			return;
+		}
+		
+		ConsoleBuffer.Chunk chunk = new ConsoleBuffer.Chunk(text, error);
+		if (Platform.isFxApplicationThread()) {
+			while (!buffer.offer(chunk)) {
+				drain(Integer.MAX_VALUE);
+			}
+		} else {
+			buffer.put(chunk);
+		}
+		added(text);
+	}
+	
+	/**
+	 * Adds text to the buffer of the console if it has room.
+	 *
+	 * @return false if the buffer is full
+	 */
+	private boolean offer(String text, boolean error) {
+		if (text == null || text.isEmpty()) {
+			return true;
+		}
+		if (!buffer.offer(new ConsoleBuffer.Chunk(text, error))) {
+			return false;
+		}
+		added(text);
+		return true;
+	}
+	
+	/**
+	 * Logs text added to the buffer and makes sure the buffer is drained on the next pulse.
+	 */
+	private void added(String text) {
+		ConsoleLog log = this.log;
+		if (log != null) {
+			log.append(text);
+		}
+		
+		if (drainScheduled.compareAndSet(false, true)) {
+			Platform.runLater(drainer::start);
+		}
+	}
+	
+	/**
+	 * Drains the buffer once per pulse, and stops draining once it is empty.
+	 */
+	private void drainPulse() {
+		drain(MAX_CHARS_PER_PULSE);
+		if (buffer.isEmpty()) {
+			drainer.stop();
+			drainScheduled.set(false);
+			// Output added after the check would otherwise wait for the next print
+			if (!buffer.isEmpty() && drainScheduled.compareAndSet(false, true)) {
+				drainer.start();
+			}
+		}
+	}
+	
+	/**
+	 * Appends buffered output in a single edit, styled by the stream it was printed to.
+	 *
+	 * @param maxChars the number of characters after which no more chunks are taken
+	 */
+	private void drain(int maxChars) {
+		StringBuilder text = new StringBuilder();
+		AnsiParser.Runs runs = new AnsiParser.Runs();
+		ConsoleBuffer.Chunk chunk;
+		while (text.length() < maxChars && (chunk = buffer.poll()) != null) {
+			(chunk.error ? errorParser : outputParser).parse(chunk.text, text, runs);
+		}
+		StyleSpans<String> styles = runs.create();
+		if (styles == null) {
+			return;
+		}
+		
+		try {
+			int start = getLength();
+			appendText(text.toString());
+			setStyleSpans(start, styles);
+			trimScrollback();
+		} catch (IndexOutOfBoundsException e) {
+			// Windows bug, don't do anything with the exception.
+		}
+	}
+	
+	/**
+	 * Removes the oldest lines once the console holds more than the scrollback allows. They are
+	 * replaced by a line counting all trimmed lines, in a single edit at the start of the
+	 * console, so the styles of the remaining lines are left as they are.
+	 */
+	private void trimScrollback() {
+		int paragraphs = getParagraphs().size();
+		if (paragraphs <= scrollbackLines && getLength() <= scrollbackChars) {
+			return;
+		}
+		
+		// The line of an earlier trim is replaced, unless the console was cleared since
+		boolean hasMarker = trimmedLines > 0 && getText(0).equals(getTrimmedMarker());
+		if (!hasMarker) {
+			trimmedLines = 0;
+		}
+		
+		int keepLines = (int) ((long) scrollbackLines * TRIM_TO_PERCENT / 100);
+		int keepChars = (int) ((long) scrollbackChars * TRIM_TO_PERCENT / 100);
+		int firstKept = Math.max(paragraphs - keepLines, 1);
+		int end = getAbsolutePosition(firstKept, 0);
+		
+		if (getLength() - end > keepChars) {
+			// Cut at the start of a line if possible, within a line that is too long on its own
+			int position = getLength() - keepChars;
+			firstKept = offsetToPosition(position, Bias.Forward).getMajor();
+			end = getAbsolutePosition(firstKept, 0);
+			if (end < position) {
+				if (firstKept + 1 < paragraphs) {
+					firstKept++;
+					end = getAbsolutePosition(firstKept, 0);
+				} else {
+					end = position;
 				}
 			}
-		});
+		}
+		
+		trimmedLines += firstKept - (hasMarker ? 1 : 0);
+		String marker = getTrimmedMarker();
+		replace(0, end, marker + "\n", TRIMMED_STYLE);
+	}
+	
+	private String getTrimmedMarker() {
+		return "[" + trimmedLines + " lines trimmed" + (log != null ? ", right-click to show the full output]" : "]");
+	}
+	
+	/**
+	 * Limits the scrollback of this ConsoleArea. The limits apply from the next output on.
+	 *
+	 * @param lines the maximum number of lines
+	 * @param chars the maximum number of characters
+	 */
+	public void setScrollback(int lines, int chars) {
+		this.scrollbackLines = Math.max(lines, 2);
+		this.scrollbackChars = Math.max(chars, 2);
+	}
+	
+	/**
+	 * Sends input to the standard input of the process, and shows it in the console. Never
+	 * blocks, see {@link ProcessInput}.
+	 *
+	 * @param text the input
+	 * @return false if the process can't take input
+	 */
+	public boolean sendInput(String text) {
+		ProcessInput processInput = input.get();
+		if (processInput == null || !processInput.send(text)) {
+			return false;
+		}
+		outPrint(text);
+		return true;
+	}
+	
+	/**
+	 * Ends the standard input of the process, once the input sent before has been written.
+	 */
+	public void endInput() {
+		ProcessInput processInput = input.get();
+		if (processInput != null) {
+			processInput.end();
+			input.set(null);
+		}
+	}
+	
+	/**
+	 * Stops what runs in this ConsoleArea: the process and the processes it started, otherwise
+	 * the compile before it.
+	 */
+	public void terminate() {
+		if (process != null) {
+			ProcessRegistry.getInstance().terminate(process);
+		} else if (pendingRun != null) {
+			pendingRun.cancel(true);
+		}
 	}
 	
 	// ------------------------------------------------------------------------------------
@@ -136,6 +371,23 @@ public class ConsoleArea extends InlineCssTextArea {
 		return this.process;
 	}
 	
+	/**
+	 * @return the log of all output printed to this ConsoleArea, or null if it has none
+	 */
+	public ConsoleLog getLog() {
+		return log;
+	}
+	
+	/**
+	 * The input of the running process. Null when no process runs or its input has been ended.
+	 * Only changed on the JavaFX thread.
+	 *
+	 * @return the property of the input
+	 */
+	public ObjectProperty<ProcessInput> inputProperty() {
+		return input;
+	}
+	
 	/**
 	 * Retrieves the identifier associated with this instance.
 	 *
@@ -173,6 +425,37 @@ public class ConsoleArea extends InlineCssTextArea {
 	 */
 	public void setProcess(Process process) {
 		this.process = process;
+		if (process == null) {
+			input.set(null);
+			return;
+		}
+		
+		ProcessInput processInput = new ProcessInput(process);
+		input.set(processInput);
+		process.onExit().thenRun(() -> Platform.runLater(() -> {
+			if (input.get() == processInput) {
+				input.set(null);
+			}
+		}));
+	}
+	
+	/**
+	 * Sets the log that all output printed to this ConsoleArea from now on is written to, so it
+	 * is kept when the scrollback is trimmed.
+	 *
+	 * @param log the log, or null to keep no log
+	 */
+	public void setLog(ConsoleLog log) {
+		this.log = log;
+	}
+	
+	/**
+	 * Sets the compile and run whose output this ConsoleArea shows, until its process has started.
+	 *
+	 * @param pendingRun the run, cancelled if the ConsoleArea is terminated before the process starts
+	 */
+	public void setPendingRun(Future<?> pendingRun) {
+		this.pendingRun = pendingRun;
 	}
 	
 	/**
@@ -2,6 +2,11 @@ package main.java.zenit.console;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 
 /**
  * ConsoleAreaOutputStream is a custom implementation of the OutputStream that directs
@@ -11,10 +16,21 @@ import java.io.OutputStream;
  * This class ensures that the output written to this stream is formatted and displayed
  * in real-time within the ConsoleArea, preserving the visual characteristics for
  * user interaction in applications.
+ * <p>
+ * Bytes are decoded with the platform charset. A character split between two writes is kept
+ * until the rest of it arrives, and single bytes are collected until a line ends.
+ * </p>
  */
 public class ConsoleAreaOutputStream extends OutputStream {
+	private static final int BUFFER_SIZE = 8192;
+	
 	private final ConsoleArea consoleArea;
-	private final StringBuilder stringBuilder = new StringBuilder();
+	private final boolean error;
+	private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+	private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+	private final CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
 	
 	// ------------------------------------------------------------------------------------
 	// Constructor:
@@ -24,20 +40,29 @@ public class ConsoleAreaOutputStream extends OutputStream {
 	 * @param consoleArea the ConsoleArea instance to which the output will be redirected
 	 */
 	public ConsoleAreaOutputStream(ConsoleArea consoleArea) {
+		this(consoleArea, false);
+	}
+	
+	/**
+	 * Constructs a stream that redirects standard or error output to the specified ConsoleArea.
+	 *
+	 * @param consoleArea the ConsoleArea instance to which the output will be redirected
+	 * @param error true to print the output as error output
+	 */
+	protected ConsoleAreaOutputStream(ConsoleArea consoleArea, boolean error) {
 		this.consoleArea = consoleArea;
+		this.error = error;
 	}
 	
 	// ------------------------------------------------------------------------------------
 	// Methods:
 	/**
-	 * Flushes the current content of the StringBuilder to the associated ConsoleArea.
-	 * This method clears the StringBuilder after writing its content to ensure no residual data is retained.
-	 * It uses the `outPrint` method of the ConsoleArea to display the message in the console view.
+	 * Prints the bytes written so far to the associated ConsoleArea, except for the start of a
+	 * character whose remaining bytes haven't been written yet.
 	 */
 	@Override
-	public void flush() {
-		consoleArea.outPrint(stringBuilder.toString());
-		stringBuilder.setLength(0);
+	public synchronized void flush() {
+		decode();
 	}
 	
 	/**
@@ -58,70 +83,69 @@ public class ConsoleAreaOutputStream extends OutputStream {
 		try {
 			super.close();
 		} catch (IOException e) {
-			System.err.println("Failed to close ConsoleAreaOutputStream: " + e.getMessage());
+			System.err.println("Failed to close " + getClass().getSimpleName() + ": " + e.getMessage());
 			e.printStackTrace();
 		}
 	}
 
 	/**
-	 * Writes a single byte to the output stream. This method processes the given byte and decides how to handle
-	 * it based on its value:
-	 * <p>- If the byte represents a newline character (`\n`), it triggers the handling of a new line.</p>
-	 * <p>- If the byte represents a carriage return (`\r`), it ignores it.</p>
-	 * <p>- For other bytes, it appends the character representation of the byte to the internal buffer and prints
-	 * it to the associated ConsoleArea.</p>
+	 * Writes a single byte to the output stream. The byte is collected with the bytes before it,
+	 * which are printed to the associated ConsoleArea when a line ends or the stream is flushed.
 	 *
-	 * @param b the byte to be written, typically representing a character value or control character
+	 * @param b the byte to be written
 	 */
 	@Override
-	public void write(int b) {
-		if (b == '\n') {
-			handleNewLineCharacter();
-			return;
+	public synchronized void write(int b) {
+		if (!bytes.hasRemaining()) {
+			decode();
 		}
-		if (b == '\r') {
-			return;
+		bytes.put((byte) b);
+		if (b == '\n') {
+			decode();
 		}
-		appendAndPrint(b);
 	}
 	
 	/**
 	 * Writes a portion of a byte array to the associated ConsoleArea.
-	 * This method converts the specified portion of the byte array into a string
-	 * and uses the outPrint method of the ConsoleArea to display it.
+	 * The bytes are decoded and printed with a single call to the ConsoleArea per
+	 * {@value #BUFFER_SIZE} bytes.
 	 *
 	 * @param b   the byte array containing the data to be written
 	 * @param off the start offset in the array where writing begins
 	 * @param len the number of bytes to write starting from the offset
 	 */
 	@Override
-	public void write(byte[] b, int off, int len) {
-		consoleArea.outPrint(new String(b, off, len));
-	}
-	
-	/**
-	 * Handles the occurrence of a newline character within the output process.
-	 * <p>
-	 * This method processes the current content of the internal `StringBuilder` by
-	 * appending a newline character to the accumulated text and printing the result
-	 * to the associated `ConsoleArea` using its `outPrint` method. Afterward, the
-	 * `StringBuilder` is cleared to ensure that no residual data remains for future use.
-	 * </p>
-	 */
-	private void handleNewLineCharacter() {
-		consoleArea.outPrint(stringBuilder.toString() + "\n"); //TODO safely remove toString()?
-		stringBuilder.setLength(0);
+	public synchronized void write(byte[] b, int off, int len) {
+		while (len > 0) {
+			int count = Math.min(len, bytes.remaining());
+			bytes.put(b, off, count);
+			off += count;
+			len -= count;
+			decode();
+		}
 	}
 	
 	/**
-	 * Appends the character representation of the given byte to the internal StringBuilder and prints it
-	 * to the associated ConsoleArea. This method ensures that the character is both added to an internal
-	 * buffer and displayed in the console output.
-	 *
-	 * @param b the byte to be converted to a character and processed
+	 * Decodes the collected bytes and prints the text to the associated ConsoleArea.
 	 */
-	private void appendAndPrint(int b) {
-		stringBuilder.append((char)b);
-		consoleArea.outPrint(Character.toString((char)b));
+	private void decode() {
+		bytes.flip();
+		StringBuilder text = new StringBuilder();
+		while (true) {
+			boolean overflow = decoder.decode(bytes, chars, false).isOverflow();
+			chars.flip();
+			text.append(chars);
+			chars.clear();
+			if (!overflow) {
+				break;
+			}
+		}
+		bytes.compact();
+		
+		if (error) {
+			consoleArea.printError(text.toString());
+		} else {
+			consoleArea.outPrint(text.toString());
+		}
 	}
-}
\ No newline at end of file
+}
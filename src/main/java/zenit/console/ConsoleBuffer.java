@@ -0,0 +1,95 @@
+package main.java.zenit.console;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Output waiting to be shown in a {@link ConsoleArea}: a ring of chunks of text that any thread
+ * can add to without taking a lock, and that the JavaFX thread takes from.
+ * <p>
+ * A writer first claims the next free slot and then fills it, and the reader stops at the first
+ * slot that is claimed but not yet filled, so chunks are taken in the order they were claimed.
+ * When the ring is full, writers wait until the reader has made room. A program that prints
+ * faster than the console can show its output is slowed down instead of filling the memory.
+ * </p>
+ */
+class ConsoleBuffer {
+	static final int CAPACITY = 1024;
+
+	private static final int MASK = CAPACITY - 1;
+	private static final long FULL_WAIT = 100_000;
+
+	private final AtomicReferenceArray<Chunk> slots = new AtomicReferenceArray<>(CAPACITY);
+	private final AtomicLong claimed = new AtomicLong();
+	private volatile long taken;
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Adds a chunk, waiting while the ring is full. Must not be called by the reader.
+	 *
+	 * @param chunk the chunk to add
+	 */
+	void put(Chunk chunk) {
+		while (!offer(chunk)) {
+			LockSupport.parkNanos(FULL_WAIT);
+		}
+	}
+
+	/**
+	 * Adds a chunk if the ring has room.
+	 *
+	 * @param chunk the chunk to add
+	 * @return false if the ring is full
+	 */
+	boolean offer(Chunk chunk) {
+		long index;
+		do {
+			index = claimed.get();
+			if (index - taken >= CAPACITY) {
+				return false;
+			}
+		} while (!claimed.compareAndSet(index, index + 1));
+
+		slots.set((int) (index & MASK), chunk);
+		return true;
+	}
+
+	/**
+	 * Takes the oldest chunk. Only called by the reader.
+	 *
+	 * @return the chunk, or null if there is none or the oldest isn't filled yet
+	 */
+	Chunk poll() {
+		long index = taken;
+		int slot = (int) (index & MASK);
+		Chunk chunk = slots.get(slot);
+		if (chunk == null) {
+			return null;
+		}
+		slots.set(slot, null);
+		taken = index + 1;
+		return chunk;
+	}
+
+	/**
+	 * @return true if no chunk is waiting or being added
+	 */
+	boolean isEmpty() {
+		return claimed.get() == taken;
+	}
+
+	/**
+	 * Text printed to a console, and whether it is error output.
+	 */
+	static class Chunk {
+		final String text;
+		final boolean error;
+
+		Chunk(String text, boolean error) {
+			this.text = text;
+			this.error = error;
+		}
+	}
+}
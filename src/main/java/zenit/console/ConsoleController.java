@@ -17,12 +17,16 @@ import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Label;
+import javafx.scene.control.MenuItem;
 import javafx.scene.control.TabPane;
+import javafx.scene.control.TextField;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.KeyCode;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
-import main.java.zenit.ConsoleRedirect;
 import main.java.zenit.ui.MainController;
 
 /**
@@ -39,6 +43,7 @@ import main.java.zenit.ui.MainController;
  */
 public class ConsoleController implements Initializable {
 	// variables:
+	private static final double INPUT_HEIGHT = 26.0;
 	private MainController mainController;
 	private final ArrayList<ConsoleArea> consoleList = new ArrayList<ConsoleArea>();
 	private final ArrayList<Terminal> terminalList = new ArrayList<Terminal>();
@@ -96,8 +101,9 @@ public class ConsoleController implements Initializable {
 	 * This method initializes a new `AnchorPane` to host the provided `ConsoleArea`, sets specific
 	 * IDs to the components for style or reference purposes, and adjusts their layout properties
 	 * using the `fillAnchor` method. The newly created console area is added to the `consoleList`
-	 * and displayed in the `consoleChoiceBox`. The `ConsoleRedirect` object is instantiated to handle
-	 * output redirection for the newly added console area. It also ensures the console tabs are visible.
+	 * and displayed in the `consoleChoiceBox`. Only the output of the run the console is created for is
+	 * printed to it, Zenit's own output goes to the {@link main.java.zenit.ZenitLog}. It also ensures the
+	 * console tabs are visible.
 	 *
 	 * @param consoleArea the `ConsoleArea` instance to be initialized and added to the application.
 	 *                    This object represents the interactive area for console output.
@@ -109,8 +115,9 @@ public class ConsoleController implements Initializable {
 		
 		fillAnchor(consoleArea);
 		fillAnchor(consoleAnchorPane);
+		AnchorPane.setBottomAnchor(consoleArea, INPUT_HEIGHT);
 		
-		consoleAnchorPane.getChildren().add(consoleArea);
+		consoleAnchorPane.getChildren().addAll(consoleArea, createInputField(consoleArea));
 		rootAnchor.getChildren().add(consoleAnchorPane);
 		
 		consoleList.add(consoleArea);
@@ -118,10 +125,85 @@ public class ConsoleController implements Initializable {
 		consoleChoiceBox.getItems().add(consoleArea);
 		consoleChoiceBox.getSelectionModel().select(consoleArea);
 		
-		new ConsoleRedirect(consoleArea);
+		MenuItem showLog = new MenuItem("Show full output");
+		showLog.setOnAction(event -> showLog(consoleArea));
+		ContextMenu contextMenu = new ContextMenu(showLog);
+		contextMenu.setOnShowing(event -> showLog.setDisable(consoleArea.getLog() == null));
+		consoleArea.setContextMenu(contextMenu);
+		
 		showConsoleTab();
 	}
 	
+	/**
+	 * Creates the input line of a console, which sends what is typed to the standard input of
+	 * the running process. Enter sends the line and Ctrl+D ends the input. Pasted text of several
+	 * lines is sent as it is. The line is disabled while no process takes input.
+	 *
+	 * @param consoleArea the console
+	 * @return the input line, anchored to the bottom of the console
+	 */
+	private TextField createInputField(ConsoleArea consoleArea) {
+		TextField inputField = new TextField() {
+			@Override
+			public void paste() {
+				String text = Clipboard.getSystemClipboard().getString();
+				if (text != null && text.indexOf('\n') >= 0) {
+					consoleArea.sendInput(getText() + text);
+					clear();
+				} else {
+					super.paste();
+				}
+			}
+		};
+		inputField.setId("consoleInput");
+		inputField.setPromptText("Input: Enter sends a line, Ctrl+D ends the input");
+		inputField.setStyle(consoleArea.getBackgroundColor() + "; -fx-text-fill: white; -fx-font-family: monospace;");
+		inputField.setPrefHeight(INPUT_HEIGHT);
+		inputField.disableProperty().bind(consoleArea.inputProperty().isNull());
+		
+		inputField.setOnAction(event -> {
+			if (consoleArea.sendInput(inputField.getText() + "\n")) {
+				inputField.clear();
+			}
+		});
+		inputField.setOnKeyPressed(event -> {
+			if (event.isControlDown() && event.getCode() == KeyCode.D) {
+				if (!inputField.getText().isEmpty()) {
+					consoleArea.sendInput(inputField.getText());
+				}
+				inputField.clear();
+				consoleArea.endInput();
+				event.consume();
+			}
+		});
+		
+		AnchorPane.setLeftAnchor(inputField, 0.0);
+		AnchorPane.setRightAnchor(inputField, 0.0);
+		AnchorPane.setBottomAnchor(inputField, 0.0);
+		return inputField;
+	}
+	
+	/**
+	 * Switches a console to a read-only view of its complete output, including the lines
+	 * trimmed from its scrollback. The context menu of the view switches back.
+	 *
+	 * @param consoleArea the console, which must have a log
+	 */
+	public void showLog(ConsoleArea consoleArea) {
+		AnchorPane anchorPane = (AnchorPane) consoleArea.getParent();
+		ConsoleLogView logView = new ConsoleLogView(consoleArea.getLog(), consoleArea.getBackgroundColor());
+		fillAnchor(logView);
+		AnchorPane.setBottomAnchor(logView, INPUT_HEIGHT);
+		
+		MenuItem showConsole = new MenuItem("Back to console");
+		showConsole.setOnAction(event -> {
+			logView.dispose();
+			anchorPane.getChildren().remove(logView);
+		});
+		logView.setContextMenu(new ContextMenu(showConsole));
+		anchorPane.getChildren().add(logView);
+	}
+	
 	/**
 	 * Switches the display to show console tabs and hides terminal tabs.
 	 * <p>
@@ -441,6 +523,14 @@ public class ConsoleController implements Initializable {
 		iconCloseConsoleInstance.setOnMouseClicked(event -> {
 			if (activeConsole != null) {
 				rootAnchor.getChildren().remove(activeConsole.getParent());
+				for (Node node : ((AnchorPane) activeConsole.getParent()).getChildren()) {
+					if (node instanceof ConsoleLogView) {
+						((ConsoleLogView) node).dispose();
+					}
+				}
+				if (activeConsole.getLog() != null) {
+					activeConsole.getLog().close();
+				}
 				consoleList.remove(activeConsole);
 				consoleChoiceBox.getItems().remove(activeConsole);
 				consoleChoiceBox.getSelectionModel().selectLast();
@@ -493,20 +583,44 @@ public class ConsoleController implements Initializable {
 	 * <p>
 	 * This method assigns a mouse click event listener to the terminate icon. When the icon
 	 * is clicked, it iterates through the list of console items to find the active console.
-	 * Upon locating the active console, the associated process is terminated by invoking
-	 * the destroy method.
+	 * Upon locating the active console, its process is terminated, or its compile is cancelled
+	 * if the process hasn't started yet.
 	 * </p>
 	 */
 	private void terminateProcessHandler () {
 		iconTerminateProcess.setOnMouseClicked(event -> {
 			for(var item : consoleList) {
 				if(item.equals(activeConsole)) {
-                    item.getProcess().destroy();
+                    item.terminate();
                 }
 			}
 		});
 	}
 	
+	/**
+	 * Shows the state of a run in the header of its console, for example "Main.java &lt;Compiling&gt;".
+	 * <p>
+	 * The choice box doesn't notice that the name of a console changed, so the console is put
+	 * back into it to show the new name.
+	 * </p>
+	 *
+	 * @param consoleArea the console of the run
+	 * @param state the state of the run
+	 */
+	public void setConsoleState(ConsoleArea consoleArea, String state) {
+		consoleArea.setID(consoleArea.getFileName() + " <" + state + ">");
+		
+		int index = consoleChoiceBox.getItems().indexOf(consoleArea);
+		if (index >= 0) {
+			boolean selected = consoleArea.equals(consoleChoiceBox.getSelectionModel().getSelectedItem());
+			consoleChoiceBox.getItems().set(index, consoleArea);
+			if (selected) {
+				consoleChoiceBox.getSelectionModel().clearSelection();
+				consoleChoiceBox.getSelectionModel().select(consoleArea);
+			}
+		}
+	}
+	
 	// ------------------------------------------------------------------------------------
 	// Getters:
 	/**
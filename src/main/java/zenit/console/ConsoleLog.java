@@ -0,0 +1,251 @@
+package main.java.zenit.console;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The complete output of a run, kept in a log file while the console only shows the most recent
+ * part of it, see {@link ConsoleArea#setScrollback(int, int)}.
+ * <p>
+ * Output is appended as UTF-8 through a buffered file channel. The offset at which every
+ * {@link #INDEX_INTERVAL}th line starts is kept in memory, so any range of lines can be read back
+ * by reading from the nearest indexed line before it and skipping the lines in between. The index
+ * takes eight bytes per {@value #INDEX_INTERVAL} lines.
+ * </p>
+ * <p>
+ * Log files are written to {@code zenit-logs} in the temporary directory and deleted when the
+ * log is closed. The logs still open when Zenit exits are deleted by a shutdown hook.
+ * </p>
+ */
+public class ConsoleLog implements Closeable {
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int INDEX_INTERVAL = 256;
+
+	private static final Set<ConsoleLog> open = ConcurrentHashMap.newKeySet();
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			for (ConsoleLog log : open) {
+				log.close();
+			}
+		}, "Zenit log cleanup"));
+	}
+
+	private final File file;
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private long length;
+	private long[] index = new long[1024];
+	private int lines = 1;
+	private long lastLineStart;
+	private boolean closed;
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	private ConsoleLog(File file, FileChannel channel) {
+		this.file = file;
+		this.channel = channel;
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Creates an empty log.
+	 *
+	 * @param name what is logged, used in the name of the file
+	 * @return the log, or null if the file couldn't be created
+	 */
+	public static ConsoleLog create(String name) {
+		try {
+			File directory = new File(System.getProperty("java.io.tmpdir"), "zenit-logs");
+			directory.mkdirs();
+			File file = File.createTempFile(name.replaceAll("[^\\w.-]", "_") + "-", ".log", directory);
+
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			ConsoleLog log = new ConsoleLog(file, channel);
+			open.add(log);
+			return log;
+		} catch (IOException ex) {
+			System.err.println("ConsoleLog.create: " + ex.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Appends output to the log. May be called from any thread.
+	 *
+	 * @param text the output
+	 */
+	public synchronized void append(String text) {
+		if (closed) {
+			return;
+		}
+
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < bytes.length; i++) {
+			// A newline byte is never part of a multibyte character in UTF-8
+			if (bytes[i] == '\n') {
+				addLineStart(length + i + 1);
+			}
+		}
+
+		try {
+			if (bytes.length > buffer.remaining()) {
+				flush();
+			}
+			if (bytes.length > buffer.capacity()) {
+				writeFully(ByteBuffer.wrap(bytes));
+			} else {
+				buffer.put(bytes);
+			}
+			length += bytes.length;
+		} catch (IOException ex) {
+			System.err.println("ConsoleLog.append: " + ex.getMessage());
+			closeQuietly();
+		}
+	}
+
+	/**
+	 * Counts a line, and indexes it if it is an {@link #INDEX_INTERVAL}th line. Lines after the
+	 * last one an int can count are written to the file, but can't be read back.
+	 */
+	private void addLineStart(long offset) {
+		if (lines == Integer.MAX_VALUE) {
+			return;
+		}
+		if (lines % INDEX_INTERVAL == 0) {
+			int entry = lines / INDEX_INTERVAL;
+			if (entry == index.length) {
+				index = Arrays.copyOf(index, index.length * 2);
+			}
+			index[entry] = offset;
+		}
+		lines++;
+		lastLineStart = offset;
+	}
+
+	/**
+	 * @return the offset of the indexed line at or after a line, or the length of the log if
+	 *         there is none
+	 */
+	private long indexedStartFrom(int line) {
+		long entry = ((long) line + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+		return entry * INDEX_INTERVAL < lines ? index[(int) entry] : length;
+	}
+
+	/**
+	 * Reads a range of lines from the log.
+	 *
+	 * @param first the index of the first line
+	 * @param count the number of lines to read
+	 * @return the lines without their line breaks. Fewer than {@code count} if the log ends
+	 *         before.
+	 */
+	public synchronized List<String> getLines(int first, int count) {
+		List<String> result = new ArrayList<>();
+		int lineCount = getLineCount();
+		if (closed || first < 0 || first >= lineCount) {
+			return result;
+		}
+		int last = (int) Math.min((long) first + count, lineCount);
+
+		// Read from the indexed line before the first one to the indexed line after the last one
+		long start = index[first / INDEX_INTERVAL];
+		long end = indexedStartFrom(last);
+		int skip = first % INDEX_INTERVAL;
+		try {
+			flush();
+			ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+			while (bytes.hasRemaining()) {
+				if (channel.read(bytes, start + bytes.position()) < 0) {
+					break;
+				}
+			}
+
+			String text = new String(bytes.array(), 0, bytes.position(), StandardCharsets.UTF_8);
+			int from = 0;
+			for (int i = 0; i < skip && from < text.length(); i++) {
+				int to = text.indexOf('\n', from);
+				from = to < 0 ? text.length() : to + 1;
+			}
+			while (from < text.length() && result.size() < last - first) {
+				int to = text.indexOf('\n', from);
+				if (to < 0) {
+					to = text.length();
+				}
+				int lineEnd = to > from && text.charAt(to - 1) == '\r' ? to - 1 : to;
+				result.add(text.substring(from, lineEnd));
+				from = to + 1;
+			}
+		} catch (IOException ex) {
+			System.err.println("ConsoleLog.getLines: " + ex.getMessage());
+		}
+		return result;
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		writeFully(buffer);
+		buffer.clear();
+	}
+
+	private void writeFully(ByteBuffer bytes) throws IOException {
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+	}
+
+	/**
+	 * Closes and deletes the log file.
+	 */
+	@Override
+	public synchronized void close() {
+		closeQuietly();
+	}
+
+	private void closeQuietly() {
+		closed = true;
+		open.remove(this);
+		try {
+			channel.close();
+			Files.deleteIfExists(file.toPath());
+		} catch (IOException ex) {
+			System.err.println("ConsoleLog.close: " + ex.getMessage());
+		}
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Getters:
+	/**
+	 * @return the number of lines in the log, counting a last line without line break
+	 */
+	public synchronized int getLineCount() {
+		return length > lastLineStart ? lines : lines - 1;
+	}
+
+	/**
+	 * @return the number of bytes in the log
+	 */
+	public synchronized long getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the log file
+	 */
+	public File getFile() {
+		return file;
+	}
+}
@@ -0,0 +1,127 @@
+package main.java.zenit.console;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.util.Duration;
+
+/**
+ * A read-only view of the complete output of a run, see {@link ConsoleLog}.
+ * <p>
+ * The list only creates cells for the visible lines, and the lines are read from the log in pages
+ * when they are first shown. Only a few pages are kept in memory, so logs of millions of lines
+ * can be scrolled through. Lines added to the log while the view is open are added to it.
+ * </p>
+ */
+public class ConsoleLogView extends ListView<String> {
+	private static final int PAGE_SIZE = 256;
+	private static final int CACHED_PAGES = 16;
+	private static final double REFRESH_INTERVAL = 250;
+
+	private final LogLines lines;
+	private final Timeline refresher;
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	/**
+	 * Creates a view of a log. It follows the log until it is disposed.
+	 *
+	 * @param log the log to show
+	 * @param backgroundColor the style of the background, as for a {@link ConsoleArea}
+	 */
+	public ConsoleLogView(ConsoleLog log, String backgroundColor) {
+		lines = new LogLines(log);
+		setItems(lines);
+		setStyle(backgroundColor);
+		setCellFactory(list -> new ListCell<>() {
+			@Override
+			protected void updateItem(String line, boolean empty) {
+				super.updateItem(line, empty);
+				setStyle("-fx-font-family: monospace; -fx-text-fill: white; -fx-background-color: transparent;");
+				setText(empty || line == null ? null : AnsiParser.strip(line));
+			}
+		});
+
+		refresher = new Timeline(new KeyFrame(Duration.millis(REFRESH_INTERVAL), event -> lines.refresh()));
+		refresher.setCycleCount(Timeline.INDEFINITE);
+		refresher.play();
+		scrollTo(lines.size());
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Stops following the log.
+	 */
+	public void dispose() {
+		refresher.stop();
+	}
+
+	/**
+	 * The lines of a log as a list, read a page at a time.
+	 */
+	private static class LogLines extends ObservableListBase<String> {
+		private final ConsoleLog log;
+		private final Map<Integer, List<String>> pages = new LinkedHashMap<>(CACHED_PAGES, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, List<String>> eldest) {
+				return size() > CACHED_PAGES;
+			}
+		};
+		private int size;
+		private long length;
+
+		LogLines(ConsoleLog log) {
+			this.log = log;
+			size = log.getLineCount();
+			length = log.getLength();
+		}
+
+		@Override
+		public String get(int index) {
+			List<String> page = pages.computeIfAbsent(index / PAGE_SIZE,
+					number -> log.getLines(number * PAGE_SIZE, PAGE_SIZE));
+			int offset = index % PAGE_SIZE;
+			return offset < page.size() ? page.get(offset) : "";
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Shows the lines added to the log since the last refresh. The last line may have grown
+		 * as well, so its page is read again.
+		 */
+		void refresh() {
+			long newLength = log.getLength();
+			if (newLength == length) {
+				return;
+			}
+			int oldSize = size;
+			size = log.getLineCount();
+			length = newLength;
+			if (oldSize > 0) {
+				pages.remove((oldSize - 1) / PAGE_SIZE);
+			}
+
+			beginChange();
+			if (oldSize > 0 && oldSize <= size) {
+				nextUpdate(oldSize - 1);
+			}
+			if (size > oldSize) {
+				nextAdd(oldSize, size);
+			}
+			endChange();
+		}
+	}
+}
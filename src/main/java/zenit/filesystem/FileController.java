@@ -1,11 +1,11 @@
 package main.java.zenit.filesystem;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.NoSuchFileException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.DoubleConsumer;
 
 import main.java.zenit.filesystem.helpers.CodeSnippets;
 import main.java.zenit.filesystem.helpers.FileNameHelpers;
@@ -103,6 +103,7 @@ public class FileController {
 	 * If the file is null, it returns an empty string.
 	 * If the file is not found, an error message is logged and an empty string is returned.
 	 * If an I/O error occurs while reading the file, an error message is logged and null is returned.
+	 * Line separators in the returned string are normalized to {@code '\n'}.
 	 *
 	 * @param file the File object representing the file to be read
 	 * @return the content of the file as a string if successfully read;
@@ -115,9 +116,9 @@ public class FileController {
 		}
 		
 		try {
-			return readFileContent(file);
+			return TextFileHandler.read(file).getText();
 		}
-		catch (FileNotFoundException e) {
+		catch (NoSuchFileException e) {
 			System.err.println("File not found: " + file.getAbsolutePath() + " " + e.getMessage());
 			return ""; // Return empty string if file not found
 		}
@@ -128,27 +129,38 @@ public class FileController {
 	}
 	
 	/**
-	 * Reads the content of the specified file and returns it as a string.
-	 * This method reads all lines of the file and appends them to a string
-	 * with each line separated by the system's line separator.
+	 * Reads the content and format of the specified file, so that it can be written back in the
+	 * same charset and with the same line separators.
 	 *
-	 * @param file the File object to be read
-	 * @return the content of the file as a string
-	 * @throws IOException if an I/O error occurs while reading the file
+	 * @param file the File object representing the file to be read
+	 * @return the content and format of the file, or null if it couldn't be read
 	 */
-	private static String readFileContent (File file) throws IOException {
-		StringBuilder contentBuilder = new StringBuilder();
+	public static TextFile readTextFile(File file) {
+		if (file == null) {
+			return null;
+		}
 		
-		try (
-				var fileReader = new FileReader(file);
-				var bufferedReader = new BufferedReader(fileReader)
-		) {
-			String line;
-			while ((line = bufferedReader.readLine()) != null) {
-				contentBuilder.append(line).append(System.lineSeparator());
-			}
+		try {
+			return TextFileHandler.read(file);
+		}
+		catch (IOException e) {
+			System.err.println("FileController.readTextFile: " + file.getAbsolutePath() + " " + e.getMessage());
+			return null;
 		}
-		return contentBuilder.toString();
+	}
+	
+	/**
+	 * Reads the content and format of the specified file on a background thread.
+	 * The charset is detected from the file and the original line separator is kept in the
+	 * returned {@link TextFile} so that the file can be saved in the same format.
+	 *
+	 * @param file the File object representing the file to be read
+	 * @param progress receives the fraction of the file read so far, called from the reading thread.
+	 *                 May be null.
+	 * @return a future completed with the content and format of the file
+	 */
+	public static CompletableFuture<TextFile> readFileAsync(File file, DoubleConsumer progress) {
+		return TextFileHandler.readAsync(file, progress);
 	}
 	
 	/**
@@ -173,6 +185,30 @@ public class FileController {
 		return false;
 	}
 	
+	/**
+	 * Writes the given content to the specified file in the given format, restoring the
+	 * charset, byte order mark and line separator the file was read with.
+	 * If the file, content or format is null, or if the write operation fails, the method will return false.
+	 *
+	 * @param file the File object representing the file to be written to
+	 * @param content the content to write into the specified file, with {@code '\n'} as line separator
+	 * @param format the format the file was read with
+	 * @return true if the file is successfully written; false otherwise
+	 */
+	public boolean writeContentToFile (File file, String content, TextFile format) {
+		if (file != null && content != null && format != null) {
+			
+			try {
+				TextFileHandler.write(file, content, format);
+				return true;
+			}
+			catch (IOException ex) {
+				System.err.println("FileController.writeFile: " + ex.getMessage());
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * Renames a specified file or directory to a new name. The operation distinguishes
 	 * between files and directories, utilizing appropriate handlers for each.
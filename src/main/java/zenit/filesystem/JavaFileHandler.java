@@ -1,12 +1,9 @@
 package main.java.zenit.filesystem;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 
 import main.java.zenit.exceptions.TypeCodeException;
@@ -109,40 +106,21 @@ public class JavaFileHandler extends FileHandler {
 	
 	/**
 	 * Reads the contents of the specified file and returns it as a single string.
-	 * Each line of the file is separated by a newline character in the returned string.
+	 * The charset is detected by the {@link TextFileHandler}, and each line of the file is
+	 * separated by a newline character in the returned string.
 	 *
 	 * @param file the {@code File} object representing the file to be read
 	 * @return a {@code String} containing the contents of the file
 	 * @throws IOException if an I/O error occurs while reading the file
 	 */
 	protected static String readFile(File file) throws IOException {
-		try (BufferedReader bufferedReader = createBufferedReader(file)) {
-			
-			StringBuilder fileContents = new StringBuilder();
-			String lineReader = bufferedReader.readLine();
-			String currentLine;
-
-			while ((currentLine = lineReader) != null) {
-				fileContents.append(currentLine).append("\n");
-			}
-			return fileContents.toString();
-			
+		try {
+			return TextFileHandler.read(file).getText();
 		} catch (IOException ex) {
 			throw new IOException("File couldn't be read: " + ex.getMessage());
 		}
 	}
 	
-	/**
-	 * Creates a buffered reader for the specified file using the configured text encoding.
-	 *
-	 * @param file the {@code File} object representing the file to be read
-	 * @return a {@code BufferedReader} that can be used to read the file
-	 * @throws IOException if an I/O error occurs while creating the buffered reader
-	 */
-	private static BufferedReader createBufferedReader(File file) throws IOException {
-		return new BufferedReader(new InputStreamReader(new FileInputStream(file), textEncoding));
-	}
-	
 	/**
 	 * Saves the given content to the specified file. The file's content will
 	 * be overwritten if it already exists.
@@ -0,0 +1,92 @@
+package main.java.zenit.filesystem;
+
+import java.nio.charset.Charset;
+
+/**
+ * The TextFile class holds the content of a text file together with the format it was stored in.
+ * The text is always normalized to use {@code '\n'} as line separator, while the original charset,
+ * byte order mark and line separator are kept so that the file can be written back unchanged.
+ */
+public class TextFile {
+	private final String text;
+	private final Charset charset;
+	private final String lineSeparator;
+	private final boolean byteOrderMark;
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	/**
+	 * Constructs a TextFile with the specified content and format.
+	 *
+	 * @param text the content of the file, with {@code '\n'} as the only line separator
+	 * @param charset the charset the file is encoded with
+	 * @param lineSeparator the line separator used in the file, e.g. {@code "\r\n"}
+	 * @param byteOrderMark true if the file starts with a byte order mark
+	 */
+	public TextFile(String text, Charset charset, String lineSeparator, boolean byteOrderMark) {
+		this.text = text;
+		this.charset = charset;
+		this.lineSeparator = lineSeparator;
+		this.byteOrderMark = byteOrderMark;
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Creates a TextFile with the same format as this one but with new content.
+	 *
+	 * @param newText the new content, with {@code '\n'} as the only line separator
+	 * @return a new TextFile with the given content and the format of this TextFile
+	 */
+	public TextFile withText(String newText) {
+		return new TextFile(newText, charset, lineSeparator, byteOrderMark);
+	}
+
+	/**
+	 * Creates an empty TextFile using the configured text encoding and the platform line separator.
+	 * Used for files that have not been read from disk yet.
+	 *
+	 * @return an empty TextFile with the default format
+	 */
+	public static TextFile defaultFormat() {
+		return new TextFile("", Charset.forName(FileHandler.textEncoding), System.lineSeparator(), false);
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Getters:
+	/**
+	 * Retrieves the content of the file, normalized to {@code '\n'} line separators.
+	 *
+	 * @return the content of the file
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Retrieves the charset the file is encoded with.
+	 *
+	 * @return the charset of the file
+	 */
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * Retrieves the line separator used in the file.
+	 *
+	 * @return the line separator of the file
+	 */
+	public String getLineSeparator() {
+		return lineSeparator;
+	}
+
+	/**
+	 * Checks if the file starts with a byte order mark.
+	 *
+	 * @return true if the file has a byte order mark, false otherwise
+	 */
+	public boolean hasByteOrderMark() {
+		return byteOrderMark;
+	}
+}
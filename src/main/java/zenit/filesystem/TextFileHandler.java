@@ -0,0 +1,341 @@
+package main.java.zenit.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.DoubleConsumer;
+
+/**
+ * The TextFileHandler class reads and writes text files through NIO channels. Files are read in
+ * fixed size chunks, the charset is detected from the byte order mark or by validating the content
+ * as UTF-8, and line separators are normalized to {@code '\n'} while the original style is recorded
+ * in the returned {@link TextFile} so that it can be restored on save.
+ * <p>
+ * Reading can be done on a background thread with progress reporting, which keeps the JavaFX
+ * application thread responsive when opening large files.
+ * </p>
+ */
+public class TextFileHandler extends FileHandler {
+	private static final int CHUNK_SIZE = 64 * 1024;
+	private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+	private static final byte[] UTF16BE_BOM = {(byte) 0xFE, (byte) 0xFF};
+	private static final byte[] UTF16LE_BOM = {(byte) 0xFF, (byte) 0xFE};
+
+	private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Zenit text file reader");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// ------------------------------------------------------------------------------------
+	// Reading:
+	/**
+	 * Reads the specified file on a background thread.
+	 *
+	 * @param file the file to read
+	 * @param progress receives the fraction of the file read so far, between 0 and 1. Called from the
+	 *                 reading thread. May be null.
+	 * @return a future completed with the content and format of the file, or completed exceptionally
+	 *         if the file couldn't be read
+	 */
+	public static CompletableFuture<TextFile> readAsync(File file, DoubleConsumer progress) {
+		CompletableFuture<TextFile> future = new CompletableFuture<>();
+		executor.execute(() -> {
+			try {
+				future.complete(read(file, progress));
+			} catch (IOException | RuntimeException ex) {
+				future.completeExceptionally(ex);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Reads the specified file on the calling thread.
+	 *
+	 * @param file the file to read
+	 * @return the content and format of the file
+	 * @throws IOException if the file couldn't be read
+	 */
+	public static TextFile read(File file) throws IOException {
+		return read(file, null);
+	}
+
+	/**
+	 * Reads the specified file on the calling thread, reporting progress after every chunk.
+	 * If the file has no byte order mark it is first decoded as strict UTF-8, and if that fails
+	 * it is decoded again with the fallback charset.
+	 *
+	 * @param file the file to read
+	 * @param progress receives the fraction of the file read so far. May be null.
+	 * @return the content and format of the file
+	 * @throws IOException if the file couldn't be read
+	 */
+	public static TextFile read(File file, DoubleConsumer progress) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			ByteBuffer head = ByteBuffer.allocate(UTF8_BOM.length);
+			channel.read(head, 0);
+			head.flip();
+
+			Charset bomCharset = detectByteOrderMark(head);
+			if (bomCharset != null) {
+				int bomLength = bomCharset.equals(StandardCharsets.UTF_8) ? UTF8_BOM.length : UTF16BE_BOM.length;
+				return decode(channel, size, bomLength, bomCharset, true, progress);
+			}
+
+			try {
+				return decode(channel, size, 0, StandardCharsets.UTF_8, false, progress);
+			} catch (CharacterCodingException ex) {
+				return decode(channel, size, 0, getFallbackCharset(), false, progress);
+			}
+		}
+	}
+
+	/**
+	 * Decodes the content of the channel in chunks, starting at the given position.
+	 *
+	 * @param channel the channel to read from
+	 * @param size the size of the file in bytes
+	 * @param start the position of the first byte after any byte order mark
+	 * @param charset the charset to decode with
+	 * @param byteOrderMark true if the file starts with a byte order mark
+	 * @param progress receives the fraction of the file read so far. May be null.
+	 * @return the decoded content and format of the file
+	 * @throws IOException if reading fails, or a {@link CharacterCodingException} if the content
+	 *                     is not valid in the given charset
+	 */
+	private static TextFile decode(FileChannel channel, long size, long start, Charset charset,
+			boolean byteOrderMark, DoubleConsumer progress) throws IOException {
+		CharsetDecoder decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT)
+				.onUnmappableCharacter(CodingErrorAction.REPORT);
+		ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SIZE);
+		CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+		LineSeparatorNormalizer normalizer = new LineSeparatorNormalizer((int) Math.min(size, Integer.MAX_VALUE - 8));
+
+		channel.position(start);
+		long read = start;
+		boolean endOfInput = false;
+
+		while (!endOfInput) {
+			int count = channel.read(bytes);
+			endOfInput = count == -1;
+			if (count > 0) {
+				read += count;
+			}
+			bytes.flip();
+			decodeChunk(decoder, bytes, chars, normalizer, endOfInput);
+			bytes.compact();
+
+			if (progress != null && size > 0) {
+				progress.accept(Math.min(1.0, (double) read / size));
+			}
+		}
+		flushDecoder(decoder, chars, normalizer);
+
+		return new TextFile(normalizer.getText(), charset, normalizer.getLineSeparator(), byteOrderMark);
+	}
+
+	/**
+	 * Decodes one chunk of bytes and passes the resulting characters to the normalizer.
+	 */
+	private static void decodeChunk(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chars,
+			LineSeparatorNormalizer normalizer, boolean endOfInput) throws CharacterCodingException {
+		CoderResult result;
+		do {
+			result = decoder.decode(bytes, chars, endOfInput);
+			if (result.isError()) {
+				result.throwException();
+			}
+			chars.flip();
+			normalizer.append(chars);
+			chars.clear();
+		} while (result.isOverflow());
+	}
+
+	/**
+	 * Flushes any characters buffered in the decoder to the normalizer.
+	 */
+	private static void flushDecoder(CharsetDecoder decoder, CharBuffer chars, LineSeparatorNormalizer normalizer)
+			throws CharacterCodingException {
+		CoderResult result;
+		do {
+			result = decoder.flush(chars);
+			if (result.isError()) {
+				result.throwException();
+			}
+			chars.flip();
+			normalizer.append(chars);
+			chars.clear();
+		} while (result.isOverflow());
+		normalizer.finish();
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Writing:
+	/**
+	 * Writes the text to the specified file using the format of the given TextFile. Every
+	 * {@code '\n'} in the text is replaced by the line separator of the format, and a byte
+	 * order mark is written if the format has one.
+	 *
+	 * @param file the file to write to. It is created if it doesn't exist and truncated otherwise.
+	 * @param text the text to write, with {@code '\n'} as line separator
+	 * @param format the format to write the text in
+	 * @throws IOException if the file couldn't be written
+	 */
+	public static void write(File file, String text, TextFile format) throws IOException {
+		String content = "\n".equals(format.getLineSeparator()) ? text :
+				text.replace("\n", format.getLineSeparator());
+		ByteBuffer encoded = format.getCharset().encode(content);
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			if (format.hasByteOrderMark()) {
+				writeFully(channel, ByteBuffer.wrap(getByteOrderMark(format.getCharset())));
+			}
+			writeFully(channel, encoded);
+		}
+	}
+
+	/**
+	 * Writes all remaining bytes in the buffer to the channel.
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Helper methods:
+	/**
+	 * Detects the charset of a file from its byte order mark.
+	 *
+	 * @param head the first bytes of the file
+	 * @return the charset indicated by the byte order mark, or null if there is none
+	 */
+	private static Charset detectByteOrderMark(ByteBuffer head) {
+		if (startsWith(head, UTF8_BOM)) {
+			return StandardCharsets.UTF_8;
+		} else if (startsWith(head, UTF16BE_BOM)) {
+			return StandardCharsets.UTF_16BE;
+		} else if (startsWith(head, UTF16LE_BOM)) {
+			return StandardCharsets.UTF_16LE;
+		}
+		return null;
+	}
+
+	/**
+	 * Checks if the buffer starts with the given bytes, without changing its position.
+	 */
+	private static boolean startsWith(ByteBuffer buffer, byte[] prefix) {
+		if (buffer.remaining() < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (buffer.get(buffer.position() + i) != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Retrieves the byte order mark to write for the given charset.
+	 */
+	private static byte[] getByteOrderMark(Charset charset) {
+		if (charset.equals(StandardCharsets.UTF_16BE)) {
+			return UTF16BE_BOM;
+		} else if (charset.equals(StandardCharsets.UTF_16LE)) {
+			return UTF16LE_BOM;
+		}
+		return UTF8_BOM;
+	}
+
+	/**
+	 * Retrieves the charset used for files that are not valid UTF-8. This is the configured
+	 * text encoding if it is something other than UTF-8, otherwise ISO-8859-1, which can
+	 * decode any byte sequence.
+	 *
+	 * @return the fallback charset
+	 */
+	private static Charset getFallbackCharset() {
+		Charset configured = Charset.forName(textEncoding);
+		return configured.equals(StandardCharsets.UTF_8) ? StandardCharsets.ISO_8859_1 : configured;
+	}
+
+	/**
+	 * Collects decoded characters while replacing {@code "\r\n"} and {@code "\r"} with
+	 * {@code '\n'}. Keeps count of each separator style so that the dominant one can be
+	 * restored when the file is saved. A carriage return at the end of a chunk is held
+	 * back until the next chunk shows whether it is followed by a line feed.
+	 */
+	private static class LineSeparatorNormalizer {
+		private final StringBuilder text;
+		private boolean pendingCarriageReturn;
+		private int lf, crlf, cr;
+
+		LineSeparatorNormalizer(int capacity) {
+			text = new StringBuilder(capacity);
+		}
+
+		void append(CharBuffer chars) {
+			while (chars.hasRemaining()) {
+				char c = chars.get();
+				if (pendingCarriageReturn) {
+					pendingCarriageReturn = false;
+					text.append('\n');
+					if (c == '\n') {
+						crlf++;
+						continue;
+					}
+					cr++;
+				}
+				if (c == '\r') {
+					pendingCarriageReturn = true;
+				} else {
+					if (c == '\n') {
+						lf++;
+					}
+					text.append(c);
+				}
+			}
+		}
+
+		void finish() {
+			if (pendingCarriageReturn) {
+				pendingCarriageReturn = false;
+				text.append('\n');
+				cr++;
+			}
+		}
+
+		String getText() {
+			return text.toString();
+		}
+
+		String getLineSeparator() {
+			if (lf == 0 && crlf == 0 && cr == 0) {
+				return System.lineSeparator();
+			} else if (crlf >= lf && crlf >= cr) {
+				return "\r\n";
+			} else if (lf >= cr) {
+				return "\n";
+			}
+			return "\r";
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package main.java.zenit.javacodecompiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A snapshot of everything a project build depends on: the content of its sources, the entries of
+ * its class path, the JDK and the compiler options. Comparing the snapshot taken before a run with
+ * the one stored after the last successful build tells whether the project needs to be compiled
+ * at all.
+ * <p>
+ * Sources are compared by a hash of their content. The hash of a source is reused from the
+ * previous snapshot while its size and modification time are unchanged, so only edited files are
+ * read. The snapshot is stored next to the project's {@code .metadata} file.
+ * </p>
+ */
+public class BuildState implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public static final String FILE_NAME = ".zenit-buildstate";
+
+	private final Map<String, SourceState> sources = new HashMap<>();
+	private final List<String> classpath = new ArrayList<>();
+	private final String JDK;
+	private final String options;
+
+	private BuildState(String JDK, String options) {
+		this.JDK = JDK;
+		this.options = options;
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Takes a snapshot of a project.
+	 *
+	 * @param sourceDirectory the source directory of the project
+	 * @param classpath the libraries of the project
+	 * @param JDK the path of the JDK the project is compiled with
+	 * @param options the compiler options of the project, in any form that changes when they do
+	 * @param previous an earlier snapshot whose source hashes may be reused, or null
+	 * @return the snapshot
+	 * @throws IOException if a source couldn't be read
+	 */
+	public static BuildState capture(File sourceDirectory, List<File> classpath, String JDK, String options,
+			BuildState previous) throws IOException {
+		BuildState state = new BuildState(JDK, options);
+		state.addSources(sourceDirectory, "", previous);
+
+		for (File entry : classpath) {
+			state.classpath.add(entry.getAbsolutePath() + "|" + entry.lastModified() + "|" + entry.length());
+		}
+		return state;
+	}
+
+	private void addSources(File directory, String prefix, BuildState previous) throws IOException {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+
+		for (File file : files) {
+			String key = prefix + file.getName();
+			if (file.isDirectory()) {
+				addSources(file, key + "/", previous);
+			} else if (file.getName().endsWith(".java")) {
+				SourceState known = previous == null ? null : previous.sources.get(key);
+				if (known != null && known.lastModified == file.lastModified() && known.length == file.length()) {
+					sources.put(key, known);
+				} else {
+					sources.put(key, new SourceState(file.lastModified(), file.length(), hash(file)));
+				}
+			}
+		}
+	}
+
+	private static String hash(File file) throws IOException {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file.toPath()));
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Checks if nothing a build depends on has changed between two snapshots.
+	 *
+	 * @param other the other snapshot, or null
+	 * @return true if a build made at the other snapshot is still current
+	 */
+	public boolean isUpToDate(BuildState other) {
+		if (other == null || !Objects.equals(JDK, other.JDK) || !Objects.equals(options, other.options)
+				|| !classpath.equals(other.classpath) || !sources.keySet().equals(other.sources.keySet())) {
+			return false;
+		}
+		for (Map.Entry<String, SourceState> source : sources.entrySet()) {
+			if (!source.getValue().hash.equals(other.sources.get(source.getKey()).hash)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads the snapshot of the last successful build of a project.
+	 *
+	 * @param projectDirectory the directory of the project
+	 * @return the stored snapshot, or null if there is none or it couldn't be read
+	 */
+	public static BuildState load(File projectDirectory) {
+		File file = new File(projectDirectory, FILE_NAME);
+		if (!file.isFile()) {
+			return null;
+		}
+
+		try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			return (BuildState) ois.readObject();
+		} catch (IOException | ClassNotFoundException | ClassCastException ex) {
+			System.err.println("BuildState.load: " + ex.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the snapshot as the state of the last successful build of a project.
+	 *
+	 * @param projectDirectory the directory of the project
+	 */
+	public void save(File projectDirectory) {
+		File file = new File(projectDirectory, FILE_NAME);
+
+		try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			oos.writeObject(this);
+		} catch (IOException ex) {
+			System.err.println("BuildState.save: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * What is recorded about one source.
+	 */
+	private static class SourceState implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final long lastModified;
+		private final long length;
+		private final String hash;
+
+		SourceState(long lastModified, long length, String hash) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.hash = hash;
+		}
+	}
+}
@@ -0,0 +1,305 @@
+package main.java.zenit.javacodecompiler;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import main.java.zenit.filesystem.jreversions.JDKDirectories;
+
+/**
+ * An AppCDS archive of the classes a runnable class loads, which lets later runs of the class map
+ * them from the archive instead of loading and verifying them again.
+ * <p>
+ * The first run of a class creates the archive with {@code -XX:ArchiveClassesAtExit} when the
+ * program exits, and later runs use it with {@code -XX:SharedArchiveFile}. This requires JDK 13
+ * or later. Since the JVM can only archive classes from jar files, the run uses a jar of the
+ * project's output directory, which is rebuilt when the compiled classes change.
+ * </p>
+ * <p>
+ * Archives are kept per project in {@code .zenit-cds} in the output directory. An archive is
+ * deleted and created again once the compiled classes, the libraries, the JDK or the VM arguments
+ * of the class change.
+ * </p>
+ */
+public class ClassDataArchive {
+	public static final int MINIMUM_JDK_VERSION = 13;
+	public static final String DIRECTORY_NAME = ".zenit-cds";
+
+	private static final String CLASSES_JAR = "classes.jar";
+	private static final String CLASSES_STATE = "classes.properties";
+
+	private final File archive;
+	private final File stateFile;
+	private final List<String> classpath;
+	private final boolean shared;
+	private final Properties state;
+
+	private ClassDataArchive(File archive, File stateFile, List<String> classpath, boolean shared,
+			Properties state) {
+		this.archive = archive;
+		this.stateFile = stateFile;
+		this.classpath = classpath;
+		this.shared = shared;
+		this.state = state;
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Prepares the archive of a runnable class for a run. The jar of the compiled classes is
+	 * brought up to date, and an archive that no longer matches the project is deleted.
+	 *
+	 * @param JDKPath the JDK of the project, or null to use the default JDK
+	 * @param outputDirectory the output directory of the project
+	 * @param className the class to run, in the form {@code package/Class}
+	 * @param libraries the libraries of the project
+	 * @param VMArguments the VM arguments of the class, or null
+	 * @return the archive, or null if the run can't use one, because the JDK is older than 13
+	 *         or unknown, or a library is a directory
+	 */
+	public static ClassDataArchive prepare(String JDKPath, File outputDirectory, String className,
+			List<File> libraries, String VMArguments) {
+		if (JDKPath == null) {
+			File defaultJDK = JDKDirectories.getDefaultJDKFile();
+			JDKPath = defaultJDK == null ? null : defaultJDK.getPath();
+		}
+		if (JDKPath == null || getFeatureVersion(new File(JDKPath)) < MINIMUM_JDK_VERSION) {
+			return null;
+		}
+
+		List<String> classpath = new ArrayList<>();
+		File directory = new File(outputDirectory, DIRECTORY_NAME);
+		File classesJar = new File(directory, CLASSES_JAR);
+		classpath.add(classesJar.getAbsolutePath());
+
+		StringBuilder key = new StringBuilder(JDKPath).append('|').append(VMArguments);
+		for (File library : libraries) {
+			if (library.isDirectory()) {
+				return null;
+			}
+			classpath.add(library.getAbsolutePath());
+			key.append('|').append(library.getAbsolutePath()).append('|').append(library.lastModified())
+					.append('|').append(library.length());
+		}
+
+		try {
+			directory.mkdirs();
+			updateClassesJar(outputDirectory, directory);
+
+			String name = className.replace('/', '.').replace('\\', '.');
+			File archive = new File(directory, name + ".jsa");
+			File stateFile = new File(directory, name + ".properties");
+			Properties state = load(stateFile);
+
+			String fingerprint = hash(key.toString());
+			boolean shared = archive.isFile() && fingerprint.equals(state.getProperty("key"));
+			if (!shared) {
+				delete(archive);
+				state.clear();
+				state.setProperty("key", fingerprint);
+				store(state, stateFile);
+			}
+			return new ClassDataArchive(archive, stateFile, classpath, shared, state);
+		} catch (IOException ex) {
+			System.err.println("ClassDataArchive.prepare: " + ex.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Rebuilds the jar of the compiled classes if they changed since it was built. All archives
+	 * refer to the jar, so they are deleted with it.
+	 */
+	private static void updateClassesJar(File outputDirectory, File directory) throws IOException {
+		List<File> files = new ArrayList<>();
+		collectFiles(outputDirectory, files);
+
+		StringBuilder content = new StringBuilder();
+		for (File file : files) {
+			content.append(file.getPath()).append('|').append(file.lastModified()).append('|')
+					.append(file.length()).append('\n');
+		}
+		String fingerprint = hash(content.toString());
+
+		File classesJar = new File(directory, CLASSES_JAR);
+		File stateFile = new File(directory, CLASSES_STATE);
+		Properties state = load(stateFile);
+		if (classesJar.isFile() && fingerprint.equals(state.getProperty("classes"))) {
+			return;
+		}
+
+		File[] archives = directory.listFiles((dir, name) -> name.endsWith(".jsa"));
+		if (archives != null) {
+			for (File archive : archives) {
+				delete(archive);
+			}
+		}
+
+		File temporary = new File(directory, CLASSES_JAR + ".tmp");
+		try (JarOutputStream jar = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+			String root = outputDirectory.getAbsolutePath() + File.separator;
+			byte[] data = new byte[8192];
+			for (File file : files) {
+				String entry = file.getAbsolutePath().substring(root.length()).replace(File.separatorChar, '/');
+				jar.putNextEntry(new JarEntry(entry));
+				try (InputStream in = new FileInputStream(file)) {
+					int read;
+					while ((read = in.read(data)) != -1) {
+						jar.write(data, 0, read);
+					}
+				}
+				jar.closeEntry();
+			}
+		}
+		Files.move(temporary.toPath(), classesJar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		state.setProperty("classes", fingerprint);
+		store(state, stateFile);
+	}
+
+	/**
+	 * Deletes an archive. The JVM creates archives read-only, which on Windows prevents deleting
+	 * them.
+	 */
+	private static void delete(File archive) throws IOException {
+		archive.setWritable(true);
+		Files.deleteIfExists(archive.toPath());
+	}
+
+	/**
+	 * Lists the files of the output directory in a stable order, leaving out the files Zenit
+	 * keeps there.
+	 */
+	private static void collectFiles(File directory, List<File> files) {
+		File[] children = directory.listFiles();
+		if (children == null) {
+			return;
+		}
+		Arrays.sort(children);
+
+		for (File child : children) {
+			if (child.getName().startsWith(".zenit-")) {
+				continue;
+			}
+			if (child.isDirectory()) {
+				collectFiles(child, files);
+			} else {
+				files.add(child);
+			}
+		}
+	}
+
+	/**
+	 * Reads the major version of a JDK from its {@code release} file.
+	 *
+	 * @param JDK the JDK directory, or on macOS the JDK bundle
+	 * @return the major version, for example 8 or 17, or -1 if it couldn't be read
+	 */
+	static int getFeatureVersion(File JDK) {
+		File release = new File(JDK, "release");
+		if (!release.isFile()) {
+			release = new File(JDK, "Contents" + File.separator + "Home" + File.separator + "release");
+		}
+		Properties properties = load(release);
+		String version = properties.getProperty("JAVA_VERSION", "").replace("\"", "");
+
+		String[] parts = version.split("[.+-]");
+		try {
+			int feature = Integer.parseInt(parts[0]);
+			return feature == 1 && parts.length > 1 ? Integer.parseInt(parts[1]) : feature;
+		} catch (NumberFormatException ex) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Records how long the program took to start, and describes it for the user.
+	 *
+	 * @param startup the time from launch until the program first printed something or exited,
+	 *                in milliseconds
+	 * @return the startup time, compared with the startup without the archive if it is known
+	 */
+	public String recordStartup(long startup) {
+		if (!shared) {
+			state.setProperty("startup", Long.toString(startup));
+			store(state, stateFile);
+			return "started in " + startup + " ms, creating class data archive";
+		}
+
+		String baseline = state.getProperty("startup");
+		return "started in " + startup + " ms with class data archive"
+				+ (baseline == null ? "" : " (" + baseline + " ms without)");
+	}
+
+	private static Properties load(File file) {
+		Properties properties = new Properties();
+		if (file.isFile()) {
+			try (InputStream in = new FileInputStream(file)) {
+				properties.load(in);
+			} catch (IOException ex) {
+				System.err.println("ClassDataArchive.load: " + ex.getMessage());
+			}
+		}
+		return properties;
+	}
+
+	private static void store(Properties properties, File file) {
+		try (OutputStream out = new FileOutputStream(file)) {
+			properties.store(out, null);
+		} catch (IOException ex) {
+			System.err.println("ClassDataArchive.store: " + ex.getMessage());
+		}
+	}
+
+	private static String hash(String content) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Getters:
+	/**
+	 * @return the VM option that either uses the archive or creates it when the program exits
+	 */
+	public String getVMOption() {
+		return (shared ? "-XX:SharedArchiveFile=" : "-XX:ArchiveClassesAtExit=") + archive.getAbsolutePath();
+	}
+
+	/**
+	 * @return the class path the archive was or will be created with: the jar of the compiled
+	 *         classes followed by the libraries
+	 */
+	public List<String> getClasspath() {
+		return new ArrayList<>(classpath);
+	}
+
+	/**
+	 * @return true if the run uses an existing archive, false if it creates one
+	 */
+	public boolean isShared() {
+		return shared;
+	}
+}
@@ -0,0 +1,295 @@
+package main.java.zenit.javacodecompiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads the information needed for incremental compilation from a class file: the name of the
+ * class, its superclass and interfaces, the classes it refers to, and a hash of its ABI.
+ * <p>
+ * The referenced classes are taken from the constant pool, both the class entries and the type
+ * names inside field and method descriptors. The ABI hash covers everything other classes can
+ * depend on: the class header, and the name, type and modifiers of every non-private field and
+ * method, including the values of constants since javac copies them into the classes using them.
+ * The generic signatures of the class and its members and the checked exceptions of methods are
+ * included as well, since the descriptors alone don't change when only a type argument does.
+ * Changes to method bodies or private members don't change the hash.
+ * </p>
+ */
+public class ClassFileInfo {
+	private static final int ACC_PRIVATE = 0x0002;
+
+	private final String className;
+	private final Set<String> supertypes;
+	private final Set<String> references;
+	private final long abiHash;
+
+	private ClassFileInfo(String className, Set<String> supertypes, Set<String> references, long abiHash) {
+		this.className = className;
+		this.supertypes = supertypes;
+		this.references = references;
+		this.abiHash = abiHash;
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Reads a class file.
+	 *
+	 * @param classFile the class file to read
+	 * @return the information read from the file
+	 * @throws IOException if the file couldn't be read or is not a valid class file
+	 */
+	public static ClassFileInfo read(File classFile) throws IOException {
+		byte[] bytes = Files.readAllBytes(classFile.toPath());
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+		if (in.readInt() != 0xCAFEBABE) {
+			throw new IOException("Not a class file: " + classFile);
+		}
+		in.readUnsignedShort();
+		in.readUnsignedShort();
+
+		int poolSize = in.readUnsignedShort();
+		String[] utf8 = new String[poolSize];
+		int[] classNames = new int[poolSize];
+		Object[] constants = new Object[poolSize];
+
+		for (int i = 1; i < poolSize; i++) {
+			int tag = in.readUnsignedByte();
+			switch (tag) {
+			case 1:
+				utf8[i] = in.readUTF();
+				break;
+			case 3:
+				constants[i] = in.readInt();
+				break;
+			case 4:
+				constants[i] = in.readFloat();
+				break;
+			case 5:
+				constants[i] = in.readLong();
+				i++;
+				break;
+			case 6:
+				constants[i] = in.readDouble();
+				i++;
+				break;
+			case 7:
+				classNames[i] = in.readUnsignedShort();
+				break;
+			case 8:
+				constants[i] = new StringConstant(in.readUnsignedShort());
+				break;
+			case 16:
+			case 19:
+			case 20:
+				in.readUnsignedShort();
+				break;
+			case 15:
+				in.readUnsignedByte();
+				in.readUnsignedShort();
+				break;
+			case 9:
+			case 10:
+			case 11:
+			case 12:
+			case 17:
+			case 18:
+				in.readInt();
+				break;
+			default:
+				throw new IOException("Unknown constant pool tag " + tag + " in " + classFile);
+			}
+		}
+
+		Set<String> references = new HashSet<>();
+		for (int i = 1; i < poolSize; i++) {
+			if (classNames[i] != 0) {
+				addReference(references, utf8[classNames[i]]);
+			} else if (utf8[i] != null) {
+				addDescriptorReferences(references, utf8[i]);
+			}
+		}
+
+		MessageDigest abi = createDigest();
+		int access = in.readUnsignedShort();
+		String className = utf8[classNames[in.readUnsignedShort()]];
+		int superClass = in.readUnsignedShort();
+		Set<String> supertypes = new HashSet<>();
+
+		update(abi, access + " " + className + " extends " + (superClass == 0 ? "" : utf8[classNames[superClass]]));
+		if (superClass != 0) {
+			supertypes.add(utf8[classNames[superClass]]);
+		}
+		int interfaces = in.readUnsignedShort();
+		for (int i = 0; i < interfaces; i++) {
+			String name = utf8[classNames[in.readUnsignedShort()]];
+			update(abi, " implements " + name);
+			supertypes.add(name);
+		}
+
+		readMembers(in, utf8, classNames, constants, abi, "field");
+		readMembers(in, utf8, classNames, constants, abi, "method");
+
+		int attributes = in.readUnsignedShort();
+		for (int i = 0; i < attributes; i++) {
+			String attributeName = utf8[in.readUnsignedShort()];
+			int length = in.readInt();
+			if ("Signature".equals(attributeName)) {
+				update(abi, "\nsignature " + utf8[in.readUnsignedShort()]);
+			} else {
+				in.skipBytes(length);
+			}
+		}
+
+		references.remove(className);
+		return new ClassFileInfo(className, supertypes, references, toLong(abi.digest()));
+	}
+
+	/**
+	 * Reads the fields or methods of a class and adds the non-private ones to the ABI hash.
+	 */
+	private static void readMembers(DataInputStream in, String[] utf8, int[] classNames, Object[] constants,
+			MessageDigest abi, String kind) throws IOException {
+		int count = in.readUnsignedShort();
+
+		for (int i = 0; i < count; i++) {
+			int access = in.readUnsignedShort();
+			String name = utf8[in.readUnsignedShort()];
+			String descriptor = utf8[in.readUnsignedShort()];
+			String constantValue = "";
+			String signature = "";
+			StringBuilder exceptions = new StringBuilder();
+
+			int attributes = in.readUnsignedShort();
+			for (int j = 0; j < attributes; j++) {
+				String attributeName = utf8[in.readUnsignedShort()];
+				int length = in.readInt();
+				if ("ConstantValue".equals(attributeName)) {
+					int index = in.readUnsignedShort();
+					Object value = constants[index];
+					constantValue = value instanceof StringConstant ? utf8[((StringConstant) value).index] :
+							String.valueOf(value);
+				} else if ("Signature".equals(attributeName)) {
+					signature = utf8[in.readUnsignedShort()];
+				} else if ("Exceptions".equals(attributeName)) {
+					int exceptionCount = in.readUnsignedShort();
+					for (int k = 0; k < exceptionCount; k++) {
+						exceptions.append(' ').append(utf8[classNames[in.readUnsignedShort()]]);
+					}
+				} else {
+					in.skipBytes(length);
+				}
+			}
+
+			if ((access & ACC_PRIVATE) == 0) {
+				update(abi, "\n" + kind + " " + access + " " + name + " " + descriptor + " " + constantValue
+						+ " " + signature + " throws" + exceptions);
+			}
+		}
+	}
+
+	/**
+	 * Adds a class name from a class entry, which may be an array descriptor.
+	 */
+	private static void addReference(Set<String> references, String name) {
+		if (name.startsWith("[")) {
+			addDescriptorReferences(references, name);
+		} else {
+			references.add(name);
+		}
+	}
+
+	/**
+	 * Adds the class names in a field or method descriptor or a generic signature, written as
+	 * {@code Lname;} or {@code Lname<...>;}.
+	 */
+	private static void addDescriptorReferences(Set<String> references, String descriptor) {
+		int index = descriptor.indexOf('L');
+		while (index != -1) {
+			int end = index + 1;
+			while (end < descriptor.length() && descriptor.charAt(end) != ';' && descriptor.charAt(end) != '<') {
+				char c = descriptor.charAt(end);
+				if (!Character.isJavaIdentifierPart(c) && c != '/') {
+					break;
+				}
+				end++;
+			}
+			if (end < descriptor.length() && end > index + 1
+					&& (descriptor.charAt(end) == ';' || descriptor.charAt(end) == '<')) {
+				references.add(descriptor.substring(index + 1, end));
+			}
+			index = descriptor.indexOf('L', end);
+		}
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	private static void update(MessageDigest digest, String text) {
+		digest.update(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static long toLong(byte[] digest) {
+		long value = 0;
+		for (int i = 0; i < Long.BYTES; i++) {
+			value = (value << 8) | (digest[i] & 0xFF);
+		}
+		return value;
+	}
+
+	/**
+	 * A string entry of the constant pool, holding the index of its text.
+	 */
+	private static class StringConstant {
+		private final int index;
+
+		StringConstant(int index) {
+			this.index = index;
+		}
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Getters:
+	/**
+	 * @return the internal name of the class, e.g. {@code main/Main$Inner}
+	 */
+	public String getClassName() {
+		return className;
+	}
+
+	/**
+	 * @return the internal names of the superclass and the interfaces of the class
+	 */
+	public Set<String> getSupertypes() {
+		return supertypes;
+	}
+
+	/**
+	 * @return the internal names of the classes this class refers to
+	 */
+	public Set<String> getReferences() {
+		return references;
+	}
+
+	/**
+	 * @return a hash of the parts of the class other classes can depend on
+	 */
+	public long getAbiHash() {
+		return abiHash;
+	}
+}
@@ -4,13 +4,34 @@ import main.java.zenit.filesystem.jreversions.JDKVerifier;
 import main.java.zenit.filesystem.jreversions.JDKDirectories;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 
+/**
+ * Builds the command line of a java or javac process as a list of arguments, which is passed to
+ * {@link ProcessBuilder} directly without going through a shell. Paths with spaces therefore need
+ * no quoting, and the class path is joined with the path separator of the platform.
+ * <p>
+ * A class path that is too long for the command line limits of the platform is written to an
+ * argument file in the argument file directory, see {@link #setArgumentFileDirectory(File)}, and
+ * passed as {@code @file}. Argument files are supported by javac, and by java from JDK 9.
+ * </p>
+ */
 public class CommandBuilder {
 
     public static final String RUN = "java";
     public static final String COMPILE = "javac";
 
+    /**
+     * Class paths longer than this are passed in an argument file. Windows limits the whole
+     * command line to 32767 characters.
+     */
+    static final int MAX_CLASSPATH_LENGTH = 8000;
+
     String tool;
     String JDK;
     String directory;
@@ -21,6 +42,9 @@ public class CommandBuilder {
     String runPath;
     String programArguments;
     String VMArguments;
+    List<String> VMOptions = new ArrayList<>();
+    List<String> classpath;
+    File argumentFileDirectory;
 
     public CommandBuilder(String tool) {
         this.tool = tool;
@@ -32,9 +56,9 @@ public class CommandBuilder {
             this.JDK = JDKVerifier.getExecutablePath(JDK, tool);
             //If default JDK is set
         } else {
-            String defaultJDK = JDKDirectories.getDefaultJDKFile().getPath();
+            File defaultJDK = JDKDirectories.getDefaultJDKFile();
             if (defaultJDK != null) {
-                this.JDK = JDKVerifier.getExecutablePath(defaultJDK, tool);
+                this.JDK = JDKVerifier.getExecutablePath(defaultJDK.getPath(), tool);
             }
         }
 
@@ -49,7 +73,7 @@ public class CommandBuilder {
     }
 
     public void setSourcepath(String sourcepath) {
-        this.sourcepath = "-sourcepath " + sourcepath;
+        this.sourcepath = sourcepath;
     }
 
     public void setInternalLibraries(String[] internalLibraries) {
@@ -72,6 +96,35 @@ public class CommandBuilder {
         this.VMArguments = VMArguments;
     }
 
+    /**
+     * Adds an option for the JVM, passed ahead of the VM arguments of the user.
+     *
+     * @param option the option, for example {@code -Xshare:auto}
+     */
+    public void addVMOption(String option) {
+        VMOptions.add(option);
+    }
+
+    /**
+     * Sets the class path to run with, instead of building it from the directory and the
+     * libraries.
+     *
+     * @param classpath the entries of the class path
+     */
+    public void setClasspath(List<String> classpath) {
+        this.classpath = classpath;
+    }
+
+    /**
+     * Sets the directory long class paths are written to as argument files. Without it the class
+     * path is always passed on the command line.
+     *
+     * @param argumentFileDirectory the directory, usually the output directory of the project
+     */
+    public void setArgumentFileDirectory(File argumentFileDirectory) {
+        this.argumentFileDirectory = argumentFileDirectory;
+    }
+
     private void mergeLibraries() {
         int intLength = 0;
         int extLength = 0;
@@ -96,53 +149,129 @@ public class CommandBuilder {
         }
     }
 
-    public String generateCommand() {
-        String command = JDK;
+    /**
+     * Builds the command as a list of arguments, starting with the executable.
+     *
+     * @return the arguments to start the process with
+     */
+    public List<String> generateArguments() {
+        List<String> command = new ArrayList<>();
+        command.add(JDK);
 
+        command.addAll(VMOptions);
         if (VMArguments != null) {
-            command += " " + VMArguments;
+            command.addAll(splitArguments(VMArguments));
         }
 
         mergeLibraries();
 
-        if(tool.equals(RUN) && directory != null) {
-            command += " -cp ./" + directory;
-        }
-
-        if (libraries != null) {
-            if (tool.equals(COMPILE)) {
-                command += " -cp " + libraries[0];
-                if (libraries.length > 1) {
-                    for (int i = 1; i < libraries.length; i++) {
-                        command += ":" + libraries[i];
-                    }
-                }
-            } else if (tool.equals(RUN)) {
-                for (int i = 0; i < libraries.length; i++) {
-                    command += ":." + File.separator + libraries[i];
+        List<String> classpath = new ArrayList<>();
+        if (this.classpath != null) {
+            classpath.addAll(this.classpath);
+        } else if (tool.equals(RUN)) {
+            if (directory != null) {
+                classpath.add("." + File.separator + directory);
+            }
+            if (libraries != null) {
+                for (String library : libraries) {
+                    classpath.add("." + File.separator + library);
                 }
-                command += ":.";
+                classpath.add(".");
+            }
+        } else if (libraries != null) {
+            for (String library : libraries) {
+                classpath.add(library);
             }
         }
+        if (!classpath.isEmpty()) {
+            addClasspath(command, String.join(File.pathSeparator, classpath));
+        }
 
         if (directory != null && tool.equals(COMPILE)) {
-            command += " -d " + directory;
+            command.add("-d");
+            command.add(directory);
         }
         if (sourcepath != null) {
-            command += " " + sourcepath;
+            command.add("-sourcepath");
+            command.add(sourcepath);
         }
 
         if (runPath != null) {
             if (tool.equals(RUN)) {
                 runPath = runPath.replaceAll(Matcher.quoteReplacement(File.separator), "/");
             }
-            command += " " + runPath;
+            command.add(runPath);
         }
 
         if (programArguments != null) {
-            command += " " + programArguments;
+            command.addAll(splitArguments(programArguments));
         }
 
         return command;
     }
-}
\ No newline at end of file
+
+    /**
+     * Adds the class path to the command, through an argument file if it is too long.
+     */
+    private void addClasspath(List<String> command, String classpath) {
+        if (classpath.length() > MAX_CLASSPATH_LENGTH && argumentFileDirectory != null) {
+            File argumentFile = new File(argumentFileDirectory, ".zenit-" + tool + "-classpath.args");
+            String content = "-cp \"" + classpath.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+
+            try {
+                argumentFileDirectory.mkdirs();
+                Files.write(argumentFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+                command.add("@" + argumentFile.getPath());
+                return;
+            } catch (IOException ex) {
+                System.err.println("CommandBuilder.addClasspath: " + ex.getMessage());
+            }
+        }
+
+        command.add("-cp");
+        command.add(classpath);
+    }
+
+    /**
+     * Splits arguments typed by the user the way a shell would, at white space outside of single
+     * or double quotes. The quotes themselves are removed.
+     *
+     * @param arguments the arguments as one string
+     * @return the separate arguments
+     */
+    static List<String> splitArguments(String arguments) {
+        List<String> result = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inArgument = false;
+        char quote = 0;
+
+        for (int i = 0; i < arguments.length(); i++) {
+            char c = arguments.charAt(i);
+
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inArgument = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inArgument) {
+                    result.add(current.toString());
+                    current.setLength(0);
+                    inArgument = false;
+                }
+            } else {
+                current.append(c);
+                inArgument = true;
+            }
+        }
+        if (inArgument) {
+            result.add(current.toString());
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,106 @@
+package main.java.zenit.javacodecompiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Remembers the built command lines of runnable classes, so that running a class again doesn't
+ * read the project metadata and build the command again. A command is rebuilt once the metadata
+ * file, which holds the libraries and the arguments of the class, or the default JDK changes.
+ */
+public class CommandCache {
+	private static final File DEFAULT_JDK_FILE = new File("res/JDK/DefaultJDK.dat");
+	private static final Map<Key, Entry> commands = new HashMap<>();
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Retrieves a cached command.
+	 *
+	 * @param tool {@link CommandBuilder#RUN} or {@link CommandBuilder#COMPILE}
+	 * @param metadataFile the metadata file of the project
+	 * @param runPath the class or source the command is for
+	 * @return the command, or null if none is cached or the project has changed since
+	 */
+	public static synchronized List<String> get(String tool, File metadataFile, String runPath) {
+		Key key = new Key(tool, metadataFile, runPath);
+		Entry entry = commands.get(key);
+		if (entry == null || !entry.isValid(metadataFile)) {
+			commands.remove(key);
+			return null;
+		}
+		return new ArrayList<>(entry.command);
+	}
+
+	/**
+	 * Caches a command.
+	 *
+	 * @param tool {@link CommandBuilder#RUN} or {@link CommandBuilder#COMPILE}
+	 * @param metadataFile the metadata file of the project
+	 * @param runPath the class or source the command is for
+	 * @param command the built command
+	 */
+	public static synchronized void put(String tool, File metadataFile, String runPath, List<String> command) {
+		commands.put(new Key(tool, metadataFile, runPath), new Entry(metadataFile, command));
+	}
+
+	private static class Key {
+		private final String tool;
+		private final File metadataFile;
+		private final String runPath;
+
+		Key(String tool, File metadataFile, String runPath) {
+			this.tool = tool;
+			this.metadataFile = metadataFile.getAbsoluteFile();
+			this.runPath = runPath;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return tool.equals(key.tool) && metadataFile.equals(key.metadataFile) && runPath.equals(key.runPath);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(tool, metadataFile, runPath);
+		}
+	}
+
+	/**
+	 * A cached command together with the state of the files it was built from.
+	 */
+	private static class Entry {
+		private final List<String> command;
+		private final long metadataModified;
+		private final long metadataLength;
+		private final long defaultJDKModified;
+
+		Entry(File metadataFile, List<String> command) {
+			this.command = new ArrayList<>(command);
+			metadataModified = metadataFile.lastModified();
+			metadataLength = metadataFile.length();
+			defaultJDKModified = DEFAULT_JDK_FILE.lastModified();
+		}
+
+		boolean isValid(File metadataFile) {
+			if (metadataFile.lastModified() != metadataModified || metadataFile.length() != metadataLength
+					|| DEFAULT_JDK_FILE.lastModified() != defaultJDKModified) {
+				return false;
+			}
+			for (String argument : command) {
+				if (argument.startsWith("@") && !new File(argument.substring(1)).isFile()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package main.java.zenit.javacodecompiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A long-lived worker that runs all compiles of Zenit: compiles started by the user, checks of
+ * saved files and checks of unsaved editor content while typing. The errors found by checks are
+ * recorded in the {@link DiagnosticsStore}.
+ * <p>
+ * All compiles run on one thread inside Zenit, so javac and the file managers of
+ * {@link InProcessCompiler} stay loaded and warm between compiles instead of a new javac process
+ * being started for each one. Waiting work is ordered by {@link Priority}, so a compile started
+ * by the user never waits behind background checks.
+ * </p>
+ * <p>
+ * A check replaces any check of the same project that hasn't started yet, and the result of a
+ * check that was overtaken by a newer one is dropped. Checks of unsaved content are also
+ * abandoned while running when newer edits arrive or the user starts a compile.
+ * </p>
+ */
+public class CompileDaemon {
+
+	/**
+	 * The kinds of work the daemon does, most urgent first.
+	 */
+	public enum Priority {
+		USER, SAVE, TYPING
+	}
+
+	private static final CompileDaemon instance = new CompileDaemon();
+
+	private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+			new PriorityBlockingQueue<>(), runnable -> {
+				Thread thread = new Thread(runnable, "Zenit compile daemon");
+				thread.setDaemon(true);
+				return thread;
+			});
+
+	private final AtomicLong sequence = new AtomicLong();
+	private final Map<File, Job> saveChecks = new HashMap<>();
+	private final Map<File, Job> typingChecks = new HashMap<>();
+
+	private CompileDaemon() {
+		executor.execute(new Job(Priority.USER, job -> InProcessCompiler.warmUp()));
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * @return the compile daemon of Zenit
+	 */
+	public static CompileDaemon getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Runs a compile started by the user ahead of all background checks. A check of unsaved
+	 * content that is running is abandoned.
+	 *
+	 * @param task the compile to run
+	 */
+	public synchronized void execute(Runnable task) {
+		for (Job check : typingChecks.values()) {
+			check.cancel();
+		}
+		typingChecks.clear();
+		executor.execute(new Job(Priority.USER, job -> task.run()));
+	}
+
+	/**
+	 * Requests a background compile of a saved file. The compile replaces the waiting compile and
+	 * any check of unsaved content of the same project.
+	 *
+	 * @param file the file to compile
+	 * @param metadataFile the metadata file of the file's project, or null if it is not part
+	 *                     of a project
+	 * @param onResult called on the daemon thread with the result of the compile, unless a newer
+	 *                 request for the same project is made before the compile is done
+	 */
+	public synchronized void submit(File file, File metadataFile, Consumer<CompileResult> onResult) {
+		File project = getProjectKey(file, metadataFile);
+		cancel(typingChecks, project);
+		cancel(saveChecks, project);
+
+		Job request = new Job(Priority.SAVE, job -> {
+			DebugErrorBuffer buffer = new DebugErrorBuffer();
+			JavaSourceCodeCompiler compiler = new JavaSourceCodeCompiler(file, metadataFile, true, buffer, null);
+
+			long start = System.nanoTime();
+			boolean success = compiler.compile();
+			long compileTime = (System.nanoTime() - start) / 1_000_000;
+
+			List<DebugError> diagnostics = drain(buffer);
+			Set<File> changedFiles = DiagnosticsStore.getInstance().update(compiler.getProjectDirectory(),
+					List.of(file), success, diagnostics);
+			if (finish(saveChecks, project, job)) {
+				onResult.accept(new CompileResult(file, success, diagnostics, compileTime, changedFiles));
+			}
+		});
+		saveChecks.put(project, request);
+		executor.execute(request);
+	}
+
+	/**
+	 * Requests a check of the unsaved content of the editors of a project. Nothing is written to
+	 * disk. The check replaces, and if running abandons, any earlier check of unsaved content of
+	 * the same project.
+	 *
+	 * @param buffers the content of each unsaved editor of the project, keyed by its file
+	 * @param metadataFile the metadata file of the project, or null if the files are not part of
+	 *                     a project
+	 * @param onResult called on the daemon thread with the result of the check, unless it was
+	 *                 abandoned
+	 */
+	public synchronized void check(Map<File, String> buffers, File metadataFile, Consumer<CompileResult> onResult) {
+		if (buffers.isEmpty()) {
+			return;
+		}
+		File file = buffers.keySet().iterator().next();
+		File project = getProjectKey(file, metadataFile);
+		cancel(typingChecks, project);
+
+		Job request = new Job(Priority.TYPING, job -> {
+			DebugErrorBuffer buffer = new DebugErrorBuffer();
+			JavaSourceCodeCompiler compiler = new JavaSourceCodeCompiler(file, metadataFile, true, buffer, null);
+
+			if (!compiler.canCheck()) {
+				return;
+			}
+
+			long start = System.nanoTime();
+			boolean success = compiler.check(buffers, job::isCancelled);
+			long compileTime = (System.nanoTime() - start) / 1_000_000;
+
+			if (job.isCancelled()) {
+				return;
+			}
+			List<DebugError> diagnostics = drain(buffer);
+			Set<File> changedFiles = DiagnosticsStore.getInstance().update(compiler.getProjectDirectory(),
+					buffers.keySet(), false, diagnostics);
+			if (finish(typingChecks, project, job)) {
+				onResult.accept(new CompileResult(file, success, diagnostics, compileTime, changedFiles));
+			}
+		});
+		typingChecks.put(project, request);
+		executor.execute(request);
+	}
+
+	private static File getProjectKey(File file, File metadataFile) {
+		return metadataFile != null ? metadataFile.getAbsoluteFile() : file.getAbsoluteFile();
+	}
+
+	private static void cancel(Map<File, Job> jobs, File project) {
+		Job previous = jobs.remove(project);
+		if (previous != null) {
+			previous.cancel();
+		}
+	}
+
+	/**
+	 * Checks if a job is still the newest one for its project, and forgets it if so.
+	 */
+	private synchronized boolean finish(Map<File, Job> jobs, File project, Job job) {
+		if (job.isCancelled() || jobs.get(project) != job) {
+			return false;
+		}
+		jobs.remove(project);
+		return true;
+	}
+
+	private static List<DebugError> drain(DebugErrorBuffer buffer) {
+		List<DebugError> diagnostics = new ArrayList<>();
+		while (!buffer.isEmpty()) {
+			diagnostics.add(buffer.get());
+		}
+		return diagnostics;
+	}
+
+	/**
+	 * A piece of work waiting for or running on the daemon thread. Jobs run in order of priority,
+	 * and in the order they were requested within the same priority.
+	 */
+	private class Job implements Runnable, Comparable<Job> {
+		private final Priority priority;
+		private final long order = sequence.getAndIncrement();
+		private final Consumer<Job> body;
+		private volatile boolean cancelled;
+
+		Job(Priority priority, Consumer<Job> body) {
+			this.priority = priority;
+			this.body = body;
+		}
+
+		@Override
+		public void run() {
+			if (cancelled) {
+				return;
+			}
+			try {
+				body.accept(this);
+			} catch (RuntimeException ex) {
+				System.err.println("CompileDaemon.run: " + ex.getMessage());
+			}
+		}
+
+		void cancel() {
+			cancelled = true;
+		}
+
+		boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public int compareTo(Job other) {
+			int result = priority.compareTo(other.priority);
+			return result != 0 ? result : Long.compare(order, other.order);
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package main.java.zenit.javacodecompiler;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The outcome of a background compile: whether it succeeded, the errors and warnings it found,
+ * and how long it took.
+ */
+public class CompileResult {
+	private final File file;
+	private final boolean success;
+	private final List<DebugError> diagnostics;
+	private final long compileTime;
+	private final Set<File> changedFiles;
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	/**
+	 * @param file the file the compile was requested for
+	 * @param success true if the compile finished without errors
+	 * @param diagnostics the errors and warnings found
+	 * @param compileTime the time spent compiling, in milliseconds
+	 * @param changedFiles the files whose diagnostics in the {@link DiagnosticsStore} were
+	 *                     replaced by this compile
+	 */
+	public CompileResult(File file, boolean success, List<DebugError> diagnostics, long compileTime,
+			Set<File> changedFiles) {
+		this.file = file;
+		this.success = success;
+		this.diagnostics = Collections.unmodifiableList(diagnostics);
+		this.compileTime = compileTime;
+		this.changedFiles = Collections.unmodifiableSet(changedFiles);
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Getters:
+	/**
+	 * @return the file the compile was requested for
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return true if the compile finished without errors
+	 */
+	public boolean isSuccess() {
+		return success;
+	}
+
+	/**
+	 * @return the errors and warnings found, in the order javac reported them
+	 */
+	public List<DebugError> getDiagnostics() {
+		return diagnostics;
+	}
+
+	/**
+	 * @return the time spent compiling, in milliseconds
+	 */
+	public long getCompileTime() {
+		return compileTime;
+	}
+
+	/**
+	 * @return the files whose diagnostics were replaced by this compile, normalized as by
+	 *         {@link DiagnosticsStore#normalize(File)}
+	 */
+	public Set<File> getChangedFiles() {
+		return changedFiles;
+	}
+}
@@ -0,0 +1,250 @@
+package main.java.zenit.javacodecompiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The class level dependencies of the sources in a project, used to decide which sources need to
+ * be recompiled after a change. For every source the graph records the classes compiled from it,
+ * the classes they refer to, and the size and modification time of the source when it was
+ * compiled. For every class it records the hash of its ABI and its superclass and interfaces.
+ * The graph also records the environment the sources were compiled in, the libraries and the JDK,
+ * since a change to either can change how every source compiles.
+ * <p>
+ * The graph is stored in the project's output directory, next to the class files it describes.
+ * </p>
+ */
+public class DependencyGraph implements Serializable {
+	private static final long serialVersionUID = 3L;
+
+	public static final String FILE_NAME = ".zenit-dependencies";
+
+	private final Map<String, SourceEntry> sources = new HashMap<>();
+	private final Map<String, Long> abiHashes = new HashMap<>();
+	private final Map<String, Set<String>> supertypes = new HashMap<>();
+	private String environment = "";
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Reads the graph stored in an output directory.
+	 *
+	 * @param outputDirectory the directory class files are compiled to
+	 * @return the stored graph, or an empty graph if there is none or it couldn't be read
+	 */
+	public static DependencyGraph load(File outputDirectory) {
+		File file = new File(outputDirectory, FILE_NAME);
+		if (!file.isFile()) {
+			return new DependencyGraph();
+		}
+
+		try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			return (DependencyGraph) ois.readObject();
+		} catch (IOException | ClassNotFoundException | ClassCastException ex) {
+			System.err.println("DependencyGraph.load: " + ex.getMessage());
+			return new DependencyGraph();
+		}
+	}
+
+	/**
+	 * Stores the graph in an output directory.
+	 *
+	 * @param outputDirectory the directory class files are compiled to
+	 */
+	public void save(File outputDirectory) {
+		File file = new File(outputDirectory, FILE_NAME);
+
+		try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			oos.writeObject(this);
+		} catch (IOException ex) {
+			System.err.println("DependencyGraph.save: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Checks if a source has changed since it was last compiled, or has never been compiled.
+	 *
+	 * @param source the source file
+	 * @param key the path of the source relative to the source directory
+	 * @return true if the source needs to be compiled
+	 */
+	public boolean isChanged(File source, String key) {
+		SourceEntry entry = sources.get(key);
+		return entry == null || entry.lastModified != source.lastModified() || entry.length != source.length();
+	}
+
+	/**
+	 * Records the environment the sources are compiled in.
+	 *
+	 * @param environment a description of the libraries and the JDK, as built by
+	 * {@link IncrementalBuilder}
+	 * @return true if the environment differs from the one the sources were last compiled in
+	 */
+	public boolean setEnvironment(String environment) {
+		boolean changed = !this.environment.equals(environment);
+		this.environment = environment;
+		return changed;
+	}
+
+	/**
+	 * Records the result of compiling a source, replacing what was recorded before.
+	 *
+	 * @param source the source file
+	 * @param key the path of the source relative to the source directory
+	 * @param classes the classes compiled from the source
+	 */
+	public void update(File source, String key, Iterable<ClassFileInfo> classes) {
+		SourceEntry entry = new SourceEntry(source.lastModified(), source.length());
+		SourceEntry previous = sources.get(key);
+		if (previous != null) {
+			supertypes.keySet().removeAll(previous.classes);
+		}
+
+		for (ClassFileInfo info : classes) {
+			entry.classes.add(info.getClassName());
+			entry.references.addAll(info.getReferences());
+			abiHashes.put(info.getClassName(), info.getAbiHash());
+			supertypes.put(info.getClassName(), info.getSupertypes());
+		}
+		entry.references.removeAll(entry.classes);
+		sources.put(key, entry);
+	}
+
+	/**
+	 * Marks a source as needing to be compiled, e.g. because it failed to compile after a class
+	 * it depends on changed.
+	 *
+	 * @param key the path of the source relative to the source directory
+	 */
+	public void invalidate(String key) {
+		SourceEntry entry = sources.get(key);
+		if (entry != null) {
+			entry.lastModified = -1;
+		}
+	}
+
+	/**
+	 * Removes a source from the graph.
+	 *
+	 * @param key the path of the source relative to the source directory
+	 * @return the classes that were compiled from the source
+	 */
+	public Set<String> remove(String key) {
+		SourceEntry entry = sources.remove(key);
+		if (entry == null) {
+			return new HashSet<>();
+		}
+		for (String className : entry.classes) {
+			abiHashes.remove(className);
+			supertypes.remove(className);
+		}
+		return entry.classes;
+	}
+
+	/**
+	 * Finds the sources that refer to any of the given classes.
+	 *
+	 * @param classNames the internal names of the classes
+	 * @return the paths of the dependent sources relative to the source directory
+	 */
+	public Set<String> getDependents(Set<String> classNames) {
+		Set<String> dependents = new HashSet<>();
+		for (Map.Entry<String, SourceEntry> source : sources.entrySet()) {
+			for (String reference : source.getValue().references) {
+				if (classNames.contains(reference)) {
+					dependents.add(source.getKey());
+					break;
+				}
+			}
+		}
+		return dependents;
+	}
+
+	/**
+	 * Finds the classes that extend or implement any of the given classes, directly or through
+	 * other classes. A change to the ABI of a class changes the inherited ABI of these classes.
+	 *
+	 * @param classNames the internal names of the classes
+	 * @return the internal names of the subtypes, not including the given classes
+	 */
+	public Set<String> getSubtypes(Set<String> classNames) {
+		Map<String, Set<String>> subtypes = new HashMap<>();
+		for (Map.Entry<String, Set<String>> type : supertypes.entrySet()) {
+			for (String supertype : type.getValue()) {
+				subtypes.computeIfAbsent(supertype, name -> new HashSet<>()).add(type.getKey());
+			}
+		}
+
+		Set<String> found = new HashSet<>();
+		Deque<String> pending = new ArrayDeque<>(classNames);
+		while (!pending.isEmpty()) {
+			for (String subtype : subtypes.getOrDefault(pending.pop(), Collections.emptySet())) {
+				if (!classNames.contains(subtype) && found.add(subtype)) {
+					pending.push(subtype);
+				}
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Retrieves the classes that were compiled from a source.
+	 *
+	 * @param key the path of the source relative to the source directory
+	 * @return the internal names of the classes, empty if the source is not in the graph
+	 */
+	public Set<String> getClasses(String key) {
+		SourceEntry entry = sources.get(key);
+		return entry == null ? new HashSet<>() : new HashSet<>(entry.classes);
+	}
+
+	/**
+	 * Retrieves the recorded ABI hash of a class.
+	 *
+	 * @param className the internal name of the class
+	 * @return the hash, or null if the class is not in the graph
+	 */
+	public Long getAbiHash(String className) {
+		return abiHashes.get(className);
+	}
+
+	/**
+	 * Retrieves the paths of all sources in the graph.
+	 *
+	 * @return the paths relative to the source directory
+	 */
+	public Set<String> getSources() {
+		return new HashSet<>(sources.keySet());
+	}
+
+	/**
+	 * What is recorded about one source.
+	 */
+	private static class SourceEntry implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private long lastModified;
+		private final long length;
+		private final Set<String> classes = new HashSet<>();
+		private final Set<String> references = new HashSet<>();
+
+		SourceEntry(long lastModified, long length) {
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+	}
+}
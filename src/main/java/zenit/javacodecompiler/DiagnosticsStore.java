@@ -0,0 +1,156 @@
+package main.java.zenit.javacodecompiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Holds the latest errors and warnings of every project, indexed by file and line.
+ * <p>
+ * Each compile only replaces the diagnostics of the files it reports on and of the files it was
+ * requested for, so diagnostics of files that weren't compiled are kept. A compile without errors
+ * also clears the errors of the other files of the project, since a project build only succeeds
+ * when every source it had to compile is free of errors.
+ * </p>
+ */
+public class DiagnosticsStore {
+	private static final DiagnosticsStore instance = new DiagnosticsStore();
+
+	private final Map<File, Map<File, NavigableMap<Integer, List<DebugError>>>> projects = new HashMap<>();
+
+	private DiagnosticsStore() {
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * @return the diagnostics store of Zenit
+	 */
+	public static DiagnosticsStore getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Records the diagnostics of a compile.
+	 *
+	 * @param projectDirectory the directory of the compiled project, which relative file names
+	 *                         in the diagnostics are resolved against
+	 * @param requested the files the compile was requested for
+	 * @param complete true if the compile finished without errors and covered every source of
+	 *                 the project that had errors, so the errors of other files are fixed
+	 * @param diagnostics the errors and warnings reported by the compile
+	 * @return the files whose diagnostics were replaced
+	 */
+	public synchronized Set<File> update(File projectDirectory, Collection<File> requested, boolean complete,
+			List<DebugError> diagnostics) {
+		File project = normalize(projectDirectory);
+		Map<File, NavigableMap<Integer, List<DebugError>>> files = projects.computeIfAbsent(project,
+				key -> new HashMap<>());
+
+		Map<File, NavigableMap<Integer, List<DebugError>>> reported = new HashMap<>();
+		for (DebugError diagnostic : diagnostics) {
+			File place = new File(diagnostic.getPlace());
+			if (!place.isAbsolute()) {
+				place = new File(project, diagnostic.getPlace());
+			}
+			reported.computeIfAbsent(normalize(place), key -> new TreeMap<>())
+					.computeIfAbsent(diagnostic.getRow(), key -> new ArrayList<>()).add(diagnostic);
+		}
+
+		Set<File> replaced = new HashSet<>(reported.keySet());
+		for (File file : requested) {
+			replaced.add(normalize(file));
+		}
+		if (complete) {
+			for (Map.Entry<File, NavigableMap<Integer, List<DebugError>>> entry : files.entrySet()) {
+				if (hasErrors(entry.getValue())) {
+					replaced.add(entry.getKey());
+				}
+			}
+		}
+
+		Set<File> changed = new HashSet<>();
+		for (File place : replaced) {
+			NavigableMap<Integer, List<DebugError>> previous = files.remove(place);
+			NavigableMap<Integer, List<DebugError>> current = reported.get(place);
+			if (current != null) {
+				files.put(place, current);
+			}
+			if (previous != null || current != null) {
+				changed.add(place);
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Retrieves the diagnostics of a file.
+	 *
+	 * @param file the file
+	 * @return the diagnostics ordered by line, empty if there are none
+	 */
+	public synchronized List<DebugError> getDiagnostics(File file) {
+		List<DebugError> diagnostics = new ArrayList<>();
+		NavigableMap<Integer, List<DebugError>> lines = find(normalize(file));
+		if (lines != null) {
+			for (List<DebugError> line : lines.values()) {
+				diagnostics.addAll(line);
+			}
+		}
+		return diagnostics;
+	}
+
+	/**
+	 * Retrieves the diagnostics of one line of a file.
+	 *
+	 * @param file the file
+	 * @param row the line, starting at 1
+	 * @return the diagnostics of the line, empty if there are none
+	 */
+	public synchronized List<DebugError> getDiagnostics(File file, int row) {
+		NavigableMap<Integer, List<DebugError>> lines = find(normalize(file));
+		if (lines == null || !lines.containsKey(row)) {
+			return Collections.emptyList();
+		}
+		return new ArrayList<>(lines.get(row));
+	}
+
+	private NavigableMap<Integer, List<DebugError>> find(File file) {
+		for (Map<File, NavigableMap<Integer, List<DebugError>>> files : projects.values()) {
+			NavigableMap<Integer, List<DebugError>> lines = files.get(file);
+			if (lines != null) {
+				return lines;
+			}
+		}
+		return null;
+	}
+
+	private static boolean hasErrors(NavigableMap<Integer, List<DebugError>> lines) {
+		for (List<DebugError> line : lines.values()) {
+			for (DebugError diagnostic : line) {
+				if ("error".equals(diagnostic.getProblemType())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Turns a file into the absolute, normalized form the store is indexed by.
+	 *
+	 * @param file the file
+	 * @return the normalized file
+	 */
+	public static File normalize(File file) {
+		return file.getAbsoluteFile().toPath().normalize().toFile();
+	}
+}
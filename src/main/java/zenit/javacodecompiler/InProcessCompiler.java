@@ -0,0 +1,497 @@
+package main.java.zenit.javacodecompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import main.java.zenit.filesystem.jreversions.JDKDirectories;
+
+/**
+ * Compiles Java source files inside the running JVM through the {@code javax.tools} API, which
+ * avoids starting a new javac process for every compile.
+ * <p>
+ * One file manager is kept per output directory and reused between compiles, so the JDK platform
+ * classes and the library jars are opened and listed once instead of on every save. Class files are
+ * written to the output directory, usually the {@code bin} directory of the project, which is also
+ * searched for classes compiled earlier.
+ * </p>
+ * <p>
+ * In-process compilation is only used when the project is compiled with the JDK Zenit is running
+ * on, see {@link #canCompile(String)}. Otherwise the compile is forked as before.
+ * </p>
+ */
+public class InProcessCompiler {
+	private static final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+	private static final Map<File, CachingFileManager> fileManagers = new HashMap<>();
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Checks if a project using the given JDK can be compiled in-process. This requires that
+	 * Zenit runs on a JDK, not a JRE, and that it is the same JDK the project is set to use.
+	 *
+	 * @param JDKPath the JDK of the project, or null to use the default JDK
+	 * @return true if the project can be compiled in-process, false if javac must be forked
+	 */
+	public static boolean canCompile(String JDKPath) {
+		if (compiler == null) {
+			return false;
+		}
+
+		if (JDKPath == null) {
+			File defaultJDK = JDKDirectories.getDefaultJDKFile();
+			if (defaultJDK == null) {
+				return true;
+			}
+			JDKPath = defaultJDK.getPath();
+		}
+		return isRunningJDK(new File(JDKPath));
+	}
+
+	/**
+	 * Checks if the given JDK directory is the one Zenit is running on. On macOS the JDK
+	 * directory is the bundle, with the actual JDK in {@code Contents/Home}.
+	 */
+	private static boolean isRunningJDK(File JDK) {
+		try {
+			File javaHome = new File(System.getProperty("java.home")).getCanonicalFile();
+			File bundleHome = new File(JDK, "Contents" + File.separator + "Home");
+
+			return javaHome.equals(JDK.getCanonicalFile()) || javaHome.equals(bundleHome.getCanonicalFile());
+		} catch (IOException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Compiles the given source files.
+	 *
+	 * @param sources the source files to compile
+	 * @param sourcepath the directory to look for other sources in, or null
+	 * @param classpath the libraries to compile against
+	 * @param outputDirectory the directory class files are written to
+	 * @param errors receives the errors and warnings of the compile. May be null.
+	 * @param log receives the errors and warnings formatted as by javac. May be null.
+	 * @return true if the sources compiled without errors
+	 */
+	public static boolean compile(List<File> sources, File sourcepath, List<File> classpath,
+			File outputDirectory, DebugErrorBuffer errors, PrintStream log) {
+		return compile(sources, sourcepath, classpath, outputDirectory, errors, log, null);
+	}
+
+	/**
+	 * Compiles the given source files and records which class files were written.
+	 *
+	 * @param sources the source files to compile
+	 * @param sourcepath the directory to look for other sources in, or null
+	 * @param classpath the libraries to compile against
+	 * @param outputDirectory the directory class files are written to
+	 * @param errors receives the errors and warnings of the compile. May be null.
+	 * @param log receives the errors and warnings formatted as by javac. May be null.
+	 * @param classOutputs receives the binary name of every class written, mapped to the source
+	 *                     it was compiled from. This includes sources javac compiled because they
+	 *                     were needed by the given sources. May be null.
+	 * @return true if the sources compiled without errors
+	 */
+	public static boolean compile(List<File> sources, File sourcepath, List<File> classpath,
+			File outputDirectory, DebugErrorBuffer errors, PrintStream log, Map<String, File> classOutputs) {
+		List<JavaFileObject> units = new ArrayList<>();
+		CachingFileManager fileManager = getFileManager(outputDirectory);
+
+		synchronized (fileManager) {
+			for (JavaFileObject source : fileManager.getStandardFileManager().getJavaFileObjectsFromFiles(sources)) {
+				units.add(source);
+			}
+			fileManager.recordOutputs(classOutputs);
+			try {
+				return compile(fileManager, units, sourcepath, classpath, outputDirectory, errors, log);
+			} finally {
+				fileManager.recordOutputs(null);
+			}
+		}
+	}
+
+	/**
+	 * Compiles sources given as text, e.g. the content of an editor that has not been saved.
+	 *
+	 * @param sources the text of each source, keyed by the file it belongs to
+	 * @param sourcepath the directory to look for other sources in, or null
+	 * @param classpath the libraries to compile against
+	 * @param outputDirectory the directory class files are written to
+	 * @param errors receives the errors and warnings of the compile. May be null.
+	 * @param log receives the errors and warnings formatted as by javac. May be null.
+	 * @return true if the sources compiled without errors
+	 */
+	public static boolean compileText(Map<File, String> sources, File sourcepath, List<File> classpath,
+			File outputDirectory, DebugErrorBuffer errors, PrintStream log) {
+		List<JavaFileObject> units = new ArrayList<>();
+		for (Map.Entry<File, String> source : sources.entrySet()) {
+			units.add(new MemorySource(source.getKey(), source.getValue()));
+		}
+
+		CachingFileManager fileManager = getFileManager(outputDirectory);
+		synchronized (fileManager) {
+			return compile(fileManager, units, sourcepath, classpath, outputDirectory, errors, log);
+		}
+	}
+
+	/**
+	 * Checks sources given as text for errors without writing any class files. Classes that are
+	 * not given are taken from the output directory or the source path.
+	 *
+	 * @param sources the text of each source, keyed by the file it belongs to
+	 * @param sourcepath the directory to look for other sources in, or null
+	 * @param classpath the libraries to compile against
+	 * @param outputDirectory the directory holding the compiled classes of the project
+	 * @param errors receives the errors and warnings of the check. May be null.
+	 * @param cancelled polled while javac runs. The check is abandoned, without reporting
+	 *                  anything, once it returns true.
+	 * @return true if the sources have no errors, false if they have or the check was cancelled
+	 */
+	public static boolean check(Map<File, String> sources, File sourcepath, List<File> classpath,
+			File outputDirectory, DebugErrorBuffer errors, BooleanSupplier cancelled) {
+		List<JavaFileObject> units = new ArrayList<>();
+		for (Map.Entry<File, String> source : sources.entrySet()) {
+			units.add(new MemorySource(source.getKey(), source.getValue()));
+		}
+
+		CachingFileManager fileManager = getFileManager(outputDirectory);
+		synchronized (fileManager) {
+			if (cancelled.getAsBoolean()) {
+				return false;
+			}
+			DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+			try {
+				fileManager.setLocations(sourcepath, classpath, outputDirectory);
+				JavacTask task = (JavacTask) compiler.getTask(null, fileManager, diagnostics,
+						Arrays.asList("-proc:none"), null, units);
+				task.addTaskListener(new TaskListener() {
+					@Override
+					public void started(TaskEvent event) {
+						if (cancelled.getAsBoolean()) {
+							throw new CancellationException();
+						}
+					}
+				});
+				task.analyze();
+			} catch (IOException | RuntimeException ex) {
+				if (!cancelled.getAsBoolean()) {
+					System.err.println("InProcessCompiler.check: " + ex.getMessage());
+				}
+				return false;
+			}
+
+			report(diagnostics.getDiagnostics(), errors, null);
+			return diagnostics.getDiagnostics().stream().noneMatch(d -> d.getKind() == Diagnostic.Kind.ERROR);
+		}
+	}
+
+	/**
+	 * Loads javac and lets it analyze a small class, so that the first compile after Zenit has
+	 * started doesn't pay for loading and initializing the compiler. Does nothing if
+	 * in-process compilation is not available.
+	 */
+	public static void warmUp() {
+		if (compiler == null) {
+			return;
+		}
+
+		JavaFileObject source = new MemorySource(new File("Warmup.java"),
+				"class Warmup { String text = String.valueOf(new java.util.ArrayList<Integer>()); }");
+		try {
+			JavaCompiler.CompilationTask task = compiler.getTask(null, null, new DiagnosticCollector<>(),
+					null, null, Collections.singletonList(source));
+			((JavacTask) task).analyze();
+		} catch (IOException | RuntimeException ex) {
+			System.err.println("InProcessCompiler.warmUp: " + ex.getMessage());
+		}
+	}
+
+	/**
+	 * Runs javac on the given compilation units with the file manager set up for the project.
+	 */
+	private static boolean compile(CachingFileManager fileManager, List<JavaFileObject> units, File sourcepath,
+			List<File> classpath, File outputDirectory, DebugErrorBuffer errors, PrintStream log) {
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+		try {
+			outputDirectory.mkdirs();
+			fileManager.setLocations(sourcepath, classpath, outputDirectory);
+
+			boolean success = compiler.getTask(null, fileManager, diagnostics, null, null, units).call();
+			report(diagnostics.getDiagnostics(), errors, log);
+			return success;
+		} catch (IOException | RuntimeException ex) {
+			System.err.println("InProcessCompiler.compile: " + ex.getMessage());
+			if (log != null) {
+				log.println(ex.getMessage());
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Passes the diagnostics of a compile to the error buffer and the log.
+	 */
+	private static void report(List<Diagnostic<? extends JavaFileObject>> diagnostics, DebugErrorBuffer errors,
+			PrintStream log) {
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+			String place = diagnostic.getSource() == null ? "" : diagnostic.getSource().getName();
+			String problemType = getProblemType(diagnostic.getKind());
+			String problem = diagnostic.getMessage(Locale.getDefault());
+
+			if (errors != null && diagnostic.getLineNumber() != Diagnostic.NOPOS && !problemType.equals("note")) {
+				errors.put(new DebugError(place, problemType, problem, (int) diagnostic.getLineNumber(),
+						(int) diagnostic.getColumnNumber()));
+			}
+			if (log != null) {
+				if (diagnostic.getLineNumber() == Diagnostic.NOPOS) {
+					log.println(problemType + ": " + problem);
+				} else {
+					log.println(place + ":" + diagnostic.getLineNumber() + ": " + problemType + ": " + problem);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Names a kind of diagnostic the way javac prints it.
+	 */
+	private static String getProblemType(Diagnostic.Kind kind) {
+		switch (kind) {
+		case ERROR:
+			return "error";
+		case WARNING:
+		case MANDATORY_WARNING:
+			return "warning";
+		default:
+			return "note";
+		}
+	}
+
+	/**
+	 * Retrieves the cached file manager for an output directory, creating it the first time.
+	 */
+	private static synchronized CachingFileManager getFileManager(File outputDirectory) {
+		return fileManagers.computeIfAbsent(outputDirectory.getAbsoluteFile(),
+				directory -> new CachingFileManager(compiler.getStandardFileManager(null, null, null)));
+	}
+
+	/**
+	 * A file manager that remembers the class files found in the JDK and in the library jars.
+	 * javac lists the content of every package it looks in, which otherwise means walking the
+	 * JDK modules and library jars again on every compile. The cache is cleared when the
+	 * libraries change or a library jar is modified.
+	 * <p>
+	 * The output directory is also on the class path, so that classes compiled earlier are used
+	 * instead of being compiled again from the source path. It is listed through a location of
+	 * its own and never cached, since its content changes with every compile.
+	 * </p>
+	 */
+	private static class CachingFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+		private static final Location OUTPUT_CLASSES = new Location() {
+			@Override
+			public String getName() {
+				return "ZENIT_OUTPUT_CLASSES";
+			}
+
+			@Override
+			public boolean isOutputLocation() {
+				return false;
+			}
+		};
+
+		private final Map<ListKey, List<JavaFileObject>> listCache = new HashMap<>();
+		private List<File> libraries = Collections.emptyList();
+		private long librariesModified;
+		private Map<String, File> classOutputs;
+
+		CachingFileManager(StandardJavaFileManager fileManager) {
+			super(fileManager);
+		}
+
+		StandardJavaFileManager getStandardFileManager() {
+			return fileManager;
+		}
+
+		/**
+		 * Points the file manager at the project's directories, keeping the cache if the
+		 * libraries are unchanged.
+		 */
+		void setLocations(File sourcepath, List<File> libraries, File outputDirectory) throws IOException {
+			long modified = 0;
+			for (File library : libraries) {
+				modified = Math.max(modified, library.lastModified());
+			}
+
+			if (!libraries.equals(this.libraries) || modified != librariesModified) {
+				listCache.clear();
+				// Closing drops the jars opened by the standard file manager, which reopens them when needed
+				fileManager.close();
+				fileManager.setLocation(StandardLocation.CLASS_PATH, libraries);
+				this.libraries = new ArrayList<>(libraries);
+				librariesModified = modified;
+			}
+
+			fileManager.setLocation(OUTPUT_CLASSES, Arrays.asList(outputDirectory));
+			fileManager.setLocation(StandardLocation.SOURCE_PATH,
+					sourcepath == null ? Collections.emptyList() : Arrays.asList(sourcepath));
+			fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Arrays.asList(outputDirectory));
+		}
+
+		/**
+		 * Records the class files written during the following compiles.
+		 *
+		 * @param classOutputs receives the binary name of every class written, mapped to the
+		 *                     source it was compiled from. Null to stop recording.
+		 */
+		void recordOutputs(Map<String, File> classOutputs) {
+			this.classOutputs = classOutputs;
+		}
+
+		@Override
+		public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds,
+				boolean recurse) throws IOException {
+			if (location == StandardLocation.CLASS_PATH) {
+				List<JavaFileObject> files = new ArrayList<>();
+				for (JavaFileObject file : super.list(OUTPUT_CLASSES, packageName, kinds, recurse)) {
+					files.add(file);
+				}
+				files.addAll(listCached(location, packageName, kinds, recurse));
+				return files;
+			} else if (isCacheable(location)) {
+				return listCached(location, packageName, kinds, recurse);
+			}
+			return super.list(location, packageName, kinds, recurse);
+		}
+
+		private List<JavaFileObject> listCached(Location location, String packageName, Set<JavaFileObject.Kind> kinds,
+				boolean recurse) throws IOException {
+			ListKey key = new ListKey(location, packageName, kinds, recurse);
+			List<JavaFileObject> files = listCache.get(key);
+			if (files == null) {
+				files = new ArrayList<>();
+				for (JavaFileObject file : super.list(location, packageName, kinds, recurse)) {
+					files.add(file);
+				}
+				listCache.put(key, files);
+			}
+			return files;
+		}
+
+		@Override
+		public String inferBinaryName(Location location, JavaFileObject file) {
+			String name = super.inferBinaryName(location, file);
+			if (name == null && location == StandardLocation.CLASS_PATH) {
+				name = super.inferBinaryName(OUTPUT_CLASSES, file);
+			}
+			return name;
+		}
+
+		@Override
+		public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+				FileObject sibling) throws IOException {
+			if (classOutputs != null && kind == JavaFileObject.Kind.CLASS && sibling != null) {
+				classOutputs.put(className, new File(sibling.toUri()));
+			}
+			return super.getJavaFileForOutput(location, className, kind, sibling);
+		}
+
+		/**
+		 * Checks if a location only holds class files that don't change while Zenit is running:
+		 * the JDK modules and the platform classes.
+		 */
+		private static boolean isCacheable(Location location) {
+			return location == StandardLocation.PLATFORM_CLASS_PATH
+					|| location.getName().startsWith(StandardLocation.SYSTEM_MODULES.getName());
+		}
+
+		@Override
+		public void close() throws IOException {
+			// The file manager is shared between compiles and is never closed
+		}
+	}
+
+	/**
+	 * The arguments of a call to {@link JavaFileManager#list}, used as key in the list cache.
+	 */
+	private static class ListKey {
+		private final JavaFileManager.Location location;
+		private final String packageName;
+		private final Set<JavaFileObject.Kind> kinds;
+		private final boolean recurse;
+
+		ListKey(JavaFileManager.Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse) {
+			this.location = location;
+			this.packageName = packageName;
+			this.kinds = kinds;
+			this.recurse = recurse;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof ListKey)) {
+				return false;
+			}
+			ListKey key = (ListKey) other;
+			return location.equals(key.location) && packageName.equals(key.packageName)
+					&& kinds.equals(key.kinds) && recurse == key.recurse;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(location, packageName, kinds, recurse);
+		}
+	}
+
+	/**
+	 * A source file whose content is held in memory instead of read from disk.
+	 */
+	private static class MemorySource extends SimpleJavaFileObject {
+		private final String content;
+
+		MemorySource(File file, String content) {
+			super(URI.create(file.toURI().toString()), JavaFileObject.Kind.SOURCE);
+			this.content = content;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return content;
+		}
+
+		@Override
+		public String getName() {
+			return new File(toUri()).getPath();
+		}
+	}
+}
@@ -0,0 +1,512 @@
+package main.java.zenit.javacodecompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.Permission;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a class inside Zenit's JVM instead of starting a new one, which saves the startup of a
+ * JVM on every run.
+ * <p>
+ * The class is loaded from the output directory and the libraries of its project by a new
+ * {@link URLClassLoader} that only sees the platform classes, not Zenit's. Its {@code main} runs
+ * in a thread group of its own. Output printed by the threads of the group goes to the console
+ * of the run, and they read the input written to {@link #getOutputStream()}, since
+ * {@link System#out}, {@link System#err} and {@link System#in} are routed by thread group, see
+ * {@link #setConsoleStreams(PrintStream, PrintStream)}. Calls to {@link System#exit(int)} from
+ * the group end the run instead of Zenit.
+ * </p>
+ * <p>
+ * A run behaves like a process: it ends when its last non-daemon thread ends, or when it is
+ * destroyed. Its threads are then stopped, the class loader is closed and the thread group is
+ * destroyed, so the classes and the console of the run can be garbage collected. Runs share Zenit's working directory and system properties, so
+ * VM arguments aren't applied.
+ * </p>
+ * <p>
+ * {@link System#exit(int)} is intercepted with a security manager, which Java 17 deprecates for
+ * removal and Java 18 and later refuse unless started with {@code -Djava.security.manager=allow}.
+ * There is no other way to keep a class from ending the JVM, so on those versions
+ * {@link #isSupported()} is false and classes run in a process of their own.
+ * </p>
+ */
+public class InProcessRunner extends Process {
+	private static final int DESTROYED_EXIT_VALUE = 143;
+	private static final long STOP_TIMEOUT = 1000;
+	private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+	private static final InputStream consoleIn = System.in;
+	private static final PrintStream discarded = new PrintStream(OutputStream.nullOutputStream());
+
+	private static final PrintStream routedOut = new PrintStream(new RoutingStream(false));
+	private static final PrintStream routedErr = new PrintStream(new RoutingStream(true));
+	private static final InputStream routedIn = new RoutingInputStream();
+	private static volatile PrintStream consoleOut = System.out;
+	private static volatile PrintStream consoleErr = System.err;
+	private static boolean exitIntercepted;
+
+	private final RunThreadGroup group;
+	private final CountDownLatch finished = new CountDownLatch(1);
+	private final CompletableFuture<Process> exited = new CompletableFuture<>();
+	private final PipedInputStream input = new PipedInputStream(INPUT_BUFFER_SIZE);
+	private final PipedOutputStream inputWriter;
+	private URLClassLoader loader;
+	private volatile boolean stopRequested;
+	private volatile int exitValue;
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	private InProcessRunner(String className, URLClassLoader loader, PrintStream out, PrintStream err) {
+		this.loader = loader;
+		group = new RunThreadGroup(className, this, out, err);
+		try {
+			inputWriter = new PipedOutputStream(input);
+		} catch (IOException ex) {
+			// Only thrown if the pipe is already connected
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Starts a run.
+	 *
+	 * @param classpath the output directory and libraries of the project
+	 * @param className the binary name of the class to run
+	 * @param arguments the program arguments
+	 * @param out receives the standard output of the run
+	 * @param err receives the error output of the run
+	 * @return the run, or null if calls to {@link System#exit(int)} can't be intercepted on
+	 *         this JVM, in which case the class must run in a process of its own
+	 */
+	public static InProcessRunner start(List<File> classpath, String className, String[] arguments,
+			PrintStream out, PrintStream err) {
+		if (!interceptExit()) {
+			return null;
+		}
+
+		URL[] urls = new URL[classpath.size()];
+		try {
+			for (int i = 0; i < urls.length; i++) {
+				urls[i] = classpath.get(i).toURI().toURL();
+			}
+		} catch (MalformedURLException ex) {
+			System.err.println("InProcessRunner.start: " + ex.getMessage());
+			return null;
+		}
+
+		URLClassLoader loader = new URLClassLoader(urls, ClassLoader.getPlatformClassLoader());
+		InProcessRunner runner = new InProcessRunner(className, loader, out, err);
+
+		// A new thread inherits the daemon flag of the thread creating it, which may be a daemon
+		Thread main = new Thread(runner.group, () -> runner.runMain(className, arguments), "main");
+		main.setDaemon(false);
+		main.setContextClassLoader(loader);
+		main.start();
+
+		Thread monitor = new Thread(runner::monitor, "Zenit run monitor: " + className);
+		monitor.setDaemon(true);
+		monitor.start();
+		return runner;
+	}
+
+	/**
+	 * Sets the streams output goes to that isn't printed by a run, and routes {@link System#out},
+	 * {@link System#err} and {@link System#in} through the runs.
+	 *
+	 * @param out the stream for standard output outside of runs
+	 * @param err the stream for error output outside of runs
+	 */
+	public static synchronized void setConsoleStreams(PrintStream out, PrintStream err) {
+		consoleOut = out;
+		consoleErr = err;
+		System.setOut(routedOut);
+		System.setErr(routedErr);
+		System.setIn(routedIn);
+	}
+
+	/**
+	 * Checks if classes can run inside Zenit on this JVM, which needs calls to
+	 * {@link System#exit(int)} to be intercepted.
+	 *
+	 * @return true if {@link #start(List, String, String[], PrintStream, PrintStream)} can run
+	 *         classes, false if they must run in a process of their own
+	 */
+	public static boolean isSupported() {
+		return interceptExit();
+	}
+
+	/**
+	 * Installs the security manager that turns {@link System#exit(int)} of a run into the end of
+	 * the run. It allows everything else.
+	 */
+	// The security manager is deprecated for removal without a replacement for intercepting
+	// System.exit. Java 17 prints a warning when it is installed, later versions refuse it.
+	@SuppressWarnings("removal")
+	private static synchronized boolean interceptExit() {
+		if (exitIntercepted) {
+			return true;
+		}
+		if (System.getSecurityManager() != null) {
+			return false;
+		}
+
+		try {
+			System.setSecurityManager(new ExitGuard());
+			exitIntercepted = true;
+		} catch (UnsupportedOperationException | SecurityException ex) {
+			System.err.println("InProcessRunner.interceptExit: " + ex.getMessage());
+		}
+		return exitIntercepted;
+	}
+
+	private void runMain(String className, String[] arguments) {
+		try {
+			Class<?> mainClass = Class.forName(className, true, loader);
+			Method main = mainClass.getMethod("main", String[].class);
+			if (!Modifier.isStatic(main.getModifiers())) {
+				throw new NoSuchMethodException(className + ".main is not static");
+			}
+			main.setAccessible(true);
+			main.invoke(null, (Object) arguments);
+		} catch (InvocationTargetException ex) {
+			group.uncaughtException(Thread.currentThread(), ex.getCause());
+		} catch (ReflectiveOperationException | LinkageError ex) {
+			group.err.println("Error: could not run " + className + ": " + ex);
+			stop(1);
+		}
+	}
+
+	/**
+	 * Waits until the run has no non-daemon threads left or is stopped, and then tears it down.
+	 */
+	private void monitor() {
+		try {
+			while (!stopRequested) {
+				Thread running = null;
+				for (Thread thread : getThreads()) {
+					if (!thread.isDaemon()) {
+						running = thread;
+						break;
+					}
+				}
+				if (running == null) {
+					break;
+				}
+				running.join(100);
+			}
+		} catch (InterruptedException ex) {
+			stop(DESTROYED_EXIT_VALUE);
+		}
+		tearDown();
+	}
+
+	/**
+	 * Interrupts the remaining threads of the run, stops the ones that don't end within
+	 * {@link #STOP_TIMEOUT}, closes the class loader and releases the thread group.
+	 */
+	@SuppressWarnings("deprecation")
+	private void tearDown() {
+		for (Thread thread : getThreads()) {
+			thread.interrupt();
+		}
+
+		long deadline = System.currentTimeMillis() + STOP_TIMEOUT;
+		for (Thread thread : getThreads()) {
+			long remaining = deadline - System.currentTimeMillis();
+			try {
+				if (remaining > 0) {
+					thread.join(remaining);
+				}
+				if (thread.isAlive()) {
+					thread.stop();
+				}
+			} catch (InterruptedException | UnsupportedOperationException ex) {
+				System.err.println("InProcessRunner.tearDown: couldn't stop " + thread.getName());
+			}
+		}
+
+		try {
+			loader.close();
+		} catch (IOException ex) {
+			System.err.println("InProcessRunner.tearDown: " + ex.getMessage());
+		}
+		loader = null;
+		try {
+			inputWriter.close();
+			input.close();
+		} catch (IOException ex) {
+			System.err.println("InProcessRunner.tearDown: " + ex.getMessage());
+		}
+		group.out.flush();
+		group.err.flush();
+		group.release();
+		finished.countDown();
+		exited.complete(this);
+	}
+
+	private Thread[] getThreads() {
+		Thread[] threads = new Thread[group.activeCount() + 8];
+		int count = group.enumerate(threads, true);
+		Thread[] result = new Thread[count];
+		System.arraycopy(threads, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * Ends the run with an exit value, unless it is already ending.
+	 */
+	private synchronized void stop(int exitValue) {
+		if (!stopRequested) {
+			this.exitValue = exitValue;
+			stopRequested = true;
+		}
+	}
+
+	/**
+	 * Finds the run the current thread belongs to.
+	 *
+	 * @return the thread group of the run, or null if the thread isn't part of one
+	 */
+	private static RunThreadGroup currentRun() {
+		ThreadGroup group = Thread.currentThread().getThreadGroup();
+		while (group != null && !(group instanceof RunThreadGroup)) {
+			group = group.getParent();
+		}
+		return (RunThreadGroup) group;
+	}
+
+	/**
+	 * @return the standard input of the run, which its threads read from {@link System#in}
+	 */
+	@Override
+	public OutputStream getOutputStream() {
+		return inputWriter;
+	}
+
+	/**
+	 * @return an empty stream, the output of the run goes directly to its console
+	 */
+	@Override
+	public InputStream getInputStream() {
+		return InputStream.nullInputStream();
+	}
+
+	/**
+	 * @return an empty stream, the output of the run goes directly to its console
+	 */
+	@Override
+	public InputStream getErrorStream() {
+		return InputStream.nullInputStream();
+	}
+
+	@Override
+	public int waitFor() throws InterruptedException {
+		finished.await();
+		return exitValue;
+	}
+
+	@Override
+	public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+		return finished.await(timeout, unit);
+	}
+
+	/**
+	 * @return a future completed when the run has ended and been torn down, the same for
+	 *         every call
+	 */
+	@Override
+	public CompletableFuture<Process> onExit() {
+		return exited;
+	}
+
+	@Override
+	public int exitValue() {
+		if (finished.getCount() > 0) {
+			throw new IllegalThreadStateException("The run hasn't ended");
+		}
+		return exitValue;
+	}
+
+	@Override
+	public void destroy() {
+		stop(DESTROYED_EXIT_VALUE);
+	}
+
+	@Override
+	public boolean isAlive() {
+		return finished.getCount() > 0;
+	}
+
+	/**
+	 * The threads of a run, together with where their output goes.
+	 */
+	private static class RunThreadGroup extends ThreadGroup {
+		private volatile InProcessRunner runner;
+		private volatile PrintStream out;
+		private volatile PrintStream err;
+
+		RunThreadGroup(String name, InProcessRunner runner, PrintStream out, PrintStream err) {
+			super("Zenit run: " + name);
+			this.runner = runner;
+			this.out = out;
+			this.err = err;
+		}
+
+		/**
+		 * Lets go of the run and its console, and removes the group from its parent, which
+		 * otherwise keeps it as long as Zenit runs. Output of threads that couldn't be stopped
+		 * is discarded, and the group is removed once they end.
+		 */
+		// ThreadGroup.setDaemon and destroy are deprecated for removal, but until Java 19 a
+		// parent group keeps every subgroup that isn't destroyed
+		@SuppressWarnings("removal")
+		void release() {
+			runner = null;
+			out = discarded;
+			err = discarded;
+			try {
+				setDaemon(true);
+				if (activeCount() == 0 && !isDestroyed()) {
+					destroy();
+				}
+			} catch (IllegalThreadStateException ex) {
+				// Destroyed as a daemon group when its last thread ended
+			}
+		}
+
+		@Override
+		public void uncaughtException(Thread thread, Throwable throwable) {
+			if (throwable instanceof ExitException) {
+				return;
+			}
+			PrintStream err = this.err;
+			err.print("Exception in thread \"" + thread.getName() + "\" ");
+			throwable.printStackTrace(err);
+			InProcessRunner runner = this.runner;
+			if (runner != null && thread.getName().equals("main")) {
+				runner.exitValue = 1;
+			}
+		}
+	}
+
+	/**
+	 * Passes output to the stream of the run of the writing thread, or to the console streams
+	 * outside of runs.
+	 */
+	private static class RoutingStream extends OutputStream {
+		private final boolean error;
+
+		RoutingStream(boolean error) {
+			this.error = error;
+		}
+
+		private PrintStream target() {
+			RunThreadGroup run = currentRun();
+			if (run != null) {
+				return error ? run.err : run.out;
+			}
+			return error ? consoleErr : consoleOut;
+		}
+
+		@Override
+		public void write(int b) {
+			target().write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			target().write(b, off, len);
+		}
+
+		@Override
+		public void flush() {
+			target().flush();
+		}
+	}
+
+	/**
+	 * Reads the standard input of the run of the reading thread, or Zenit's own standard input
+	 * outside of runs.
+	 */
+	private static class RoutingInputStream extends InputStream {
+
+		private InputStream source() {
+			RunThreadGroup run = currentRun();
+			if (run == null) {
+				return consoleIn;
+			}
+			InProcessRunner runner = run.runner;
+			return runner != null ? runner.input : InputStream.nullInputStream();
+		}
+
+		@Override
+		public int read() throws IOException {
+			return source().read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return source().read(b, off, len);
+		}
+
+		@Override
+		public int available() throws IOException {
+			return source().available();
+		}
+	}
+
+	/**
+	 * Turns {@link System#exit(int)} in a run into the end of the run. All other operations are
+	 * allowed, as without a security manager.
+	 */
+	// See interceptExit for why the deprecated security manager is used
+	@SuppressWarnings("removal")
+	private static class ExitGuard extends SecurityManager {
+
+		@Override
+		public void checkPermission(Permission permission) {
+		}
+
+		@Override
+		public void checkPermission(Permission permission, Object context) {
+		}
+
+		@Override
+		public void checkExit(int status) {
+			RunThreadGroup run = currentRun();
+			if (run != null) {
+				InProcessRunner runner = run.runner;
+				if (runner != null) {
+					runner.stop(status);
+				}
+				throw new ExitException(status);
+			}
+		}
+	}
+
+	/**
+	 * Thrown to unwind a thread of a run that called {@link System#exit(int)}.
+	 */
+	private static class ExitException extends SecurityException {
+		private static final long serialVersionUID = 1L;
+
+		ExitException(int status) {
+			super("System.exit(" + status + ") ended the run");
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package main.java.zenit.javacodecompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compiles the sources of a project incrementally. Only the sources that changed since the last
+ * build are compiled, followed by the sources that depend on a class whose ABI changed as a
+ * result, until no more ABIs change. A class inherits the ABI of its supertypes, so the sources
+ * that depend on a subtype of a changed class are compiled as well.
+ * <p>
+ * Which classes each source produces and refers to is kept in a {@link DependencyGraph} stored in
+ * the output directory, so it survives restarts of Zenit. A project without a stored graph gets
+ * a full build, and so does a project whose libraries or JDK changed since the last build.
+ * </p>
+ */
+public class IncrementalBuilder {
+	private static final Map<File, DependencyGraph> graphs = new HashMap<>();
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Brings the output directory up to date with the sources of a project.
+	 *
+	 * @param sourceDirectory the source directory of the project
+	 * @param libraries the libraries to compile against
+	 * @param outputDirectory the directory class files are written to
+	 * @param errors receives the errors and warnings of the compile. May be null.
+	 * @param log receives the errors and warnings formatted as by javac. May be null.
+	 * @return true if all sources compiled without errors
+	 */
+	public static boolean build(File sourceDirectory, List<File> libraries, File outputDirectory,
+			DebugErrorBuffer errors, PrintStream log) {
+		outputDirectory = outputDirectory.getAbsoluteFile();
+		sourceDirectory = sourceDirectory.getAbsoluteFile();
+		outputDirectory.mkdirs();
+		DependencyGraph graph = getGraph(outputDirectory);
+
+		synchronized (graph) {
+			Map<String, File> sources = new HashMap<>();
+			findSources(sourceDirectory, "", sources);
+
+			Set<String> changedClasses = new HashSet<>();
+			for (String key : graph.getSources()) {
+				if (!sources.containsKey(key)) {
+					Set<String> removed = graph.remove(key);
+					deleteClassFiles(outputDirectory, removed);
+					changedClasses.addAll(removed);
+				}
+			}
+
+			boolean environmentChanged = graph.setEnvironment(describeEnvironment(libraries));
+			Set<String> dirty = new HashSet<>();
+			for (Map.Entry<String, File> source : sources.entrySet()) {
+				if (environmentChanged || graph.isChanged(source.getValue(), source.getKey())) {
+					dirty.add(source.getKey());
+				}
+			}
+
+			Set<String> compiled = new HashSet<>();
+			boolean success = true;
+
+			while (success && !(dirty.isEmpty() && changedClasses.isEmpty())) {
+				changedClasses.addAll(graph.getSubtypes(changedClasses));
+				dirty.addAll(graph.getDependents(changedClasses));
+				dirty.removeAll(compiled);
+				changedClasses.clear();
+				if (dirty.isEmpty()) {
+					break;
+				}
+
+				List<File> files = new ArrayList<>();
+				for (String key : dirty) {
+					files.add(sources.get(key));
+				}
+
+				Map<String, File> classOutputs = new HashMap<>();
+				success = InProcessCompiler.compile(files, sourceDirectory, libraries, outputDirectory, errors, log,
+						classOutputs);
+				if (success) {
+					Set<String> updated = update(graph, sourceDirectory, outputDirectory, classOutputs, changedClasses);
+					compiled.addAll(dirty);
+					compiled.addAll(updated);
+				} else {
+					for (String key : dirty) {
+						graph.invalidate(key);
+					}
+				}
+				dirty.clear();
+			}
+
+			graph.save(outputDirectory);
+			return success;
+		}
+	}
+
+	/**
+	 * Records the classes written by a compile in the graph and deletes the class files of
+	 * classes the compiled sources no longer declare.
+	 *
+	 * @param changedClasses receives the classes whose ABI changed, or that were added or removed
+	 * @return the sources that were compiled
+	 */
+	private static Set<String> update(DependencyGraph graph, File sourceDirectory, File outputDirectory,
+			Map<String, File> classOutputs, Set<String> changedClasses) {
+		Map<String, List<ClassFileInfo>> classesBySource = new HashMap<>();
+		Map<String, File> sourceFiles = new HashMap<>();
+		Path sourcePath = sourceDirectory.toPath();
+
+		for (Map.Entry<String, File> output : classOutputs.entrySet()) {
+			File source = output.getValue();
+			if (!source.toPath().startsWith(sourcePath)) {
+				continue;
+			}
+			String key = sourcePath.relativize(source.toPath()).toString().replace(File.separatorChar, '/');
+			File classFile = new File(outputDirectory, output.getKey().replace('.', File.separatorChar) + ".class");
+
+			try {
+				classesBySource.computeIfAbsent(key, k -> new ArrayList<>()).add(ClassFileInfo.read(classFile));
+				sourceFiles.put(key, source);
+			} catch (IOException ex) {
+				System.err.println("IncrementalBuilder.update: " + ex.getMessage());
+			}
+		}
+
+		for (Map.Entry<String, List<ClassFileInfo>> source : classesBySource.entrySet()) {
+			Set<String> stale = graph.getClasses(source.getKey());
+
+			for (ClassFileInfo info : source.getValue()) {
+				stale.remove(info.getClassName());
+				Long previous = graph.getAbiHash(info.getClassName());
+				if (previous == null || previous != info.getAbiHash()) {
+					changedClasses.add(info.getClassName());
+				}
+			}
+
+			deleteClassFiles(outputDirectory, stale);
+			changedClasses.addAll(stale);
+			graph.update(sourceFiles.get(source.getKey()), source.getKey(), source.getValue());
+		}
+		return classesBySource.keySet();
+	}
+
+	/**
+	 * Collects the Java sources in a directory and its subdirectories.
+	 *
+	 * @param sources receives the sources, keyed by their path relative to the source directory
+	 */
+	private static void findSources(File directory, String prefix, Map<String, File> sources) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+
+		for (File file : files) {
+			if (file.isDirectory()) {
+				findSources(file, prefix + file.getName() + "/", sources);
+			} else if (file.getName().endsWith(".java")) {
+				sources.put(prefix + file.getName(), file);
+			}
+		}
+	}
+
+	/**
+	 * Describes the libraries and the JDK a project is compiled against, so that a change to
+	 * either can be detected. A library is identified by its path, modification time and size.
+	 */
+	private static String describeEnvironment(List<File> libraries) {
+		StringBuilder environment = new StringBuilder(System.getProperty("java.home"));
+		for (File library : libraries) {
+			File file = library.getAbsoluteFile();
+			environment.append(File.pathSeparatorChar).append(file.getPath()).append(' ')
+					.append(file.lastModified()).append(' ').append(file.length());
+		}
+		return environment.toString();
+	}
+
+	private static void deleteClassFiles(File outputDirectory, Set<String> classNames) {
+		for (String className : classNames) {
+			File classFile = new File(outputDirectory, className.replace('/', File.separatorChar) + ".class");
+			if (classFile.exists() && !classFile.delete()) {
+				System.err.println("IncrementalBuilder.deleteClassFiles: couldn't delete " + classFile);
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the graph of an output directory, reading it again if the stored graph was
+	 * deleted together with the class files.
+	 */
+	private static synchronized DependencyGraph getGraph(File outputDirectory) {
+		DependencyGraph graph = graphs.get(outputDirectory);
+		if (graph == null || !new File(outputDirectory, DependencyGraph.FILE_NAME).isFile()) {
+			graph = DependencyGraph.load(outputDirectory);
+			graphs.put(outputDirectory, graph);
+		}
+		return graph;
+	}
+}
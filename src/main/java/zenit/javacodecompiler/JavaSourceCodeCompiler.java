@@ -1,8 +1,23 @@
 package main.java.zenit.javacodecompiler;
 
 import java.io.File;
-import java.util.concurrent.Executors;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
 import java.util.regex.Matcher;
+
+import javafx.application.Platform;
+import main.java.zenit.console.ConsoleArea;
+import main.java.zenit.console.ConsoleAreaErrorStream;
+import main.java.zenit.console.ConsoleAreaOutputStream;
 import main.java.zenit.console.ConsoleController;
 import main.java.zenit.filesystem.RunnableClass;
 import main.java.zenit.filesystem.metadata.Metadata;
@@ -16,6 +31,10 @@ public class JavaSourceCodeCompiler {
 	protected Buffer<?> buffer;
 	protected MainController cont;
 	protected ConsoleController consoleController;
+	protected boolean classDataSharing;
+	protected boolean runInProcess;
+	protected ConsoleArea console;
+	protected RunTimeline timeline;
 
 	public JavaSourceCodeCompiler(File file, boolean inBackground) {
 		this(file, null, inBackground, null, null);
@@ -29,15 +48,113 @@ public class JavaSourceCodeCompiler {
 		this.cont = cont;
 	}
 
+	/**
+	 * Makes runs of classes in a project use an AppCDS archive, see {@link ClassDataArchive}.
+	 *
+	 * @param classDataSharing true to create and use archives
+	 */
+	public void setClassDataSharing(boolean classDataSharing) {
+		this.classDataSharing = classDataSharing;
+	}
+
+	/**
+	 * Makes classes in a project run inside Zenit's JVM, see {@link InProcessRunner}.
+	 *
+	 * @param runInProcess true to run inside Zenit, false to run in a process of its own
+	 */
+	public void setRunInProcess(boolean runInProcess) {
+		this.runInProcess = runInProcess;
+	}
+
+	/**
+	 * Sets the console the output of compiles and runs is printed to.
+	 *
+	 * @param console the console, or null to print to the standard streams of Zenit
+	 */
+	public void setConsole(ConsoleArea console) {
+		this.console = console;
+	}
+
+	/**
+	 * Sets the timeline the phases of a compile and run are recorded in.
+	 *
+	 * @param timeline the timeline, or null to record nothing
+	 */
+	public void setTimeline(RunTimeline timeline) {
+		this.timeline = timeline;
+	}
+
 	public void startCompile() {
-		new Compile().start();
+		CompileDaemon.getInstance().execute(new Compile());
+	}
+
+	/**
+	 * Compiles the file in the calling thread.
+	 *
+	 * @return true if the file compiled without errors
+	 */
+	public boolean compile() {
+		return new Compile().compileFile();
+	}
+
+	/**
+	 * Compiles every source of the project in the calling thread. The file given to the compiler
+	 * is only used to find the project.
+	 *
+	 * @param log receives the errors and warnings formatted as by javac
+	 * @return true if the project compiled without errors
+	 */
+	public boolean buildProject(PrintStream log) {
+		return new Compile().buildProject(log);
 	}
 
-	public void startCompileAndRun() {
-		new CompileAndRun().start();
+	/**
+	 * @return the directory of the project the file belongs to, or the directory of the file
+	 *         if it isn't part of a project
+	 */
+	public File getProjectDirectory() {
+		return metadataFile != null ? metadataFile.getParentFile() : file.getAbsoluteFile().getParentFile();
 	}
 
-	private class Compile extends Thread {
+	/**
+	 * Checks unsaved editor content for errors in the calling thread, without writing any class
+	 * files. Only possible when {@link #canCheck()} is true.
+	 *
+	 * @param buffers the content of each unsaved editor, keyed by its file
+	 * @param cancelled polled during the check, which is abandoned once it returns true
+	 * @return true if the content has no errors
+	 */
+	public boolean check(Map<File, String> buffers, BooleanSupplier cancelled) {
+		return new Compile().check(buffers, cancelled);
+	}
+
+	/**
+	 * @return true if unsaved content can be checked, which requires in-process compilation
+	 */
+	public boolean canCheck() {
+		Compile compile = new Compile();
+		compile.decodeProject();
+		return InProcessCompiler.canCompile(compile.JDKPath);
+	}
+
+	/**
+	 * Compiles and runs the file in the background.
+	 * <p>
+	 * The returned future completes with the started process, or with null if the file didn't
+	 * compile or couldn't be started. Cancelling the future kills a running javac, and the class
+	 * isn't run. A compile inside Zenit's JVM is left to finish, since stopping it could leave
+	 * half-written class files.
+	 * </p>
+	 *
+	 * @return the future of the run
+	 */
+	public CompletableFuture<Process> startCompileAndRun() {
+		CompileAndRun compileAndRun = new CompileAndRun();
+		CompileDaemon.getInstance().execute(compileAndRun);
+		return compileAndRun.result;
+	}
+
+	private class Compile implements Runnable {
 		protected String JDKPath = null;
 		protected String sourcepath;
 		protected String directory;
@@ -45,20 +162,196 @@ public class JavaSourceCodeCompiler {
 		protected File projectFile;
 		protected String[] internalLibraries;
 		protected String[] externalLibraries;
+		protected boolean compileSkipped;
+		protected volatile boolean cancelled;
+		private volatile Process javac;
 
 		public void run() {
+			boolean success = compileFile();
+
+			if (inBackground && buffer instanceof DebugErrorBuffer && cont != null) {
+				DebugErrorBuffer deb = (DebugErrorBuffer) buffer;
+				List<DebugError> diagnostics = new ArrayList<>();
+				while (!deb.isEmpty()) {
+					diagnostics.add(deb.get());
+				}
+				Set<File> changedFiles = DiagnosticsStore.getInstance().update(getProjectDirectory(), List.of(file),
+						success, diagnostics);
+				Platform.runLater(() -> cont.errorHandler(changedFiles));
+			}
+		}
+
+		protected boolean compileFile() {
+			if (metadataFile != null) {
+				decodeProject();
+				return compileProject(false);
+			} else {
+				return compile();
+			}
+		}
+
+		/**
+		 * Compiles the project and stores the state it was compiled at, see {@link BuildState}.
+		 *
+		 * @param skipIfUpToDate true to skip the compile if nothing changed since the last
+		 *                       successful build, which sets {@link #compileSkipped}
+		 * @return true if the project compiled without errors or was up to date
+		 */
+		protected boolean compileProject(boolean skipIfUpToDate) {
+			BuildState previous = BuildState.load(projectFile);
+			BuildState current = captureBuildState(previous);
+			mark("build state checked");
+
+			if (skipIfUpToDate && current != null && current.isUpToDate(previous) && isRunClassCompiled()) {
+				compileSkipped = true;
+				mark("compile skipped, up to date");
+				return true;
+			}
+
+			boolean compiled = compileInPackage();
+			if (compiled && current != null) {
+				current.save(projectFile);
+			}
+			return compiled;
+		}
+
+		/**
+		 * Compiles every source of the project, in-process when possible and otherwise by
+		 * passing all sources to a forked javac in an argument file.
+		 */
+		protected boolean buildProject(PrintStream log) {
+			if (metadataFile == null) {
+				return false;
+			}
+			decodeProject();
+
+			File sourceDirectory = sourcepath == null ? null : resolveInProject(sourcepath);
+			if (sourceDirectory == null || !sourceDirectory.isDirectory()) {
+				log.println("No source directory");
+				return false;
+			}
+
+			BuildState current = captureBuildState(BuildState.load(projectFile));
+			boolean compiled;
+			if (InProcessCompiler.canCompile(JDKPath)) {
+				compiled = IncrementalBuilder.build(sourceDirectory, getLibraries(), getOutputDirectory(), null, log);
+			} else {
+				compiled = buildForked(sourceDirectory, log);
+			}
+
+			if (compiled && current != null) {
+				current.save(projectFile);
+			}
+			return compiled;
+		}
+
+		private boolean buildForked(File sourceDirectory, PrintStream log) {
+			File outputDirectory = getOutputDirectory();
+			File sourceList = new File(outputDirectory, ".zenit-javac-sources.args");
+			List<String> sources = new ArrayList<>();
+			collectSources(sourceDirectory, sources);
+
+			try {
+				outputDirectory.mkdirs();
+				Files.write(sourceList.toPath(), sources, StandardCharsets.UTF_8);
+			} catch (IOException ex) {
+				log.println(ex.getMessage());
+				return false;
+			}
+
+			CommandBuilder cb = new CommandBuilder(CommandBuilder.COMPILE);
+			cb.setJDK(JDKPath);
+			cb.setRunPath("@" + sourceList.getAbsolutePath());
+			cb.setDirectory(directory);
+			cb.setSourcepath(sourcepath);
+			cb.setInternalLibraries(internalLibraries);
+			cb.setExternalLibraries(externalLibraries);
+			cb.setArgumentFileDirectory(outputDirectory);
+
+			Process process = TerminalHelpers.runCommand(cb.generateArguments(), projectFile);
+			if (process == null) {
+				return false;
+			}
+			new StreamRedirector(process.getErrorStream(), log::println).run();
+			return isCompiled(process);
+		}
+
+		/**
+		 * Lists the sources of a directory and its subdirectories, quoted for an argument file.
+		 */
+		private void collectSources(File directory, List<String> sources) {
+			File[] files = directory.listFiles();
+			if (files == null) {
+				return;
+			}
+			for (File child : files) {
+				if (child.isDirectory()) {
+					collectSources(child, sources);
+				} else if (child.getName().endsWith(".java")) {
+					sources.add("\"" + child.getAbsolutePath().replace("\\", "\\\\") + "\"");
+				}
+			}
+		}
+
+		/**
+		 * Takes a snapshot of what the build of the project depends on.
+		 *
+		 * @return the snapshot, or null if the project has no source directory or it couldn't
+		 *         be read
+		 */
+		private BuildState captureBuildState(BuildState previous) {
+			runPath = new File(createRunPathInProject());
+			File sourceDirectory = sourcepath == null ? null : resolveInProject(sourcepath);
+			if (sourceDirectory == null || !sourceDirectory.isDirectory()) {
+				return null;
+			}
+
+			boolean inProcess = InProcessCompiler.canCompile(JDKPath);
+			String JDK = inProcess ? System.getProperty("java.home") : JDKPath;
+			String options = "directory=" + directory + ";sourcepath=" + sourcepath + ";in-process=" + inProcess;
+
+			try {
+				return BuildState.capture(sourceDirectory, getLibraries(), JDK, options, previous);
+			} catch (IOException ex) {
+				System.err.println("JavaSourceCodeCompiler.captureBuildState: " + ex.getMessage());
+				return null;
+			}
+		}
+
+		/**
+		 * Checks that the class to run exists in the output directory, in case it was deleted
+		 * after the last build.
+		 */
+		private boolean isRunClassCompiled() {
+			String className = createRunPathForRunning(runPath.getPath());
+			return new File(getOutputDirectory(), className + ".class").isFile();
+		}
+
+		protected String createRunPathForRunning(String runPath) {
+			String newRunPath;
+			newRunPath = runPath.replaceAll(Matcher.quoteReplacement("src" + File.separator), "");
+			newRunPath = newRunPath.replaceAll(".java", "");
+
+			return newRunPath;
+		}
+
+		protected void decodeProject() {
 			if (metadataFile != null) {
 				decodeMetadata();
 				createProjectPath();
-				compileInPackage();
-			} else {
-				compile();
 			}
+		}
 
-			if (inBackground && buffer instanceof DebugErrorBuffer) {
-				DebugErrorBuffer deb = (DebugErrorBuffer) buffer;
-				cont.errorHandler(deb);
+		protected boolean check(Map<File, String> buffers, BooleanSupplier cancelled) {
+			decodeProject();
+			if (metadataFile == null) {
+				return InProcessCompiler.check(buffers, null, Collections.emptyList(),
+						file.getAbsoluteFile().getParentFile(), getErrorBuffer(), cancelled);
 			}
+
+			File sourceDirectory = sourcepath == null ? null : resolveInProject(sourcepath);
+			return InProcessCompiler.check(buffers, sourceDirectory, getLibraries(), getOutputDirectory(),
+					getErrorBuffer(), cancelled);
 		}
 
 		protected void createProjectPath() {
@@ -75,36 +368,152 @@ public class JavaSourceCodeCompiler {
 			externalLibraries = metadata.getExternalLibraries();
 		}
 
-		protected Process compile() {
+		protected boolean compile() {
+			if (InProcessCompiler.canCompile(JDKPath)) {
+				boolean compiled = InProcessCompiler.compile(Collections.singletonList(file), null,
+						Collections.emptyList(), file.getAbsoluteFile().getParentFile(), getErrorBuffer(),
+						getCompilerLog());
+				mark("compiled in-process");
+				return compiled;
+			}
 
 			CommandBuilder cb = new CommandBuilder(CommandBuilder.COMPILE);
 			cb.setJDK(JDKPath);
 			cb.setRunPath(file.getPath());
 
-			String command = cb.generateCommand();
+			List<String> command = cb.generateArguments();
+			mark("javac command built");
 			Process process = executeCommand(command, null);
 			redirectStreams(process);
-			return process;
+			return isCompiled(process);
 		}
 
-		protected Process compileInPackage() {
+		protected boolean compileInPackage() {
 			runPath = new File(createRunPathInProject());
 
-			CommandBuilder cb = new CommandBuilder(CommandBuilder.COMPILE);
-			cb.setJDK(JDKPath);
-			cb.setRunPath(runPath.getPath());
-			cb.setDirectory(directory);
-			cb.setSourcepath(sourcepath);
-			cb.setInternalLibraries(internalLibraries);
-			cb.setExternalLibraries(externalLibraries);
+			if (InProcessCompiler.canCompile(JDKPath)) {
+				File outputDirectory = getOutputDirectory();
+				File sourceDirectory = sourcepath == null ? null : resolveInProject(sourcepath);
+
+				boolean compiled;
+				if (sourceDirectory != null && sourceDirectory.isDirectory()) {
+					compiled = IncrementalBuilder.build(sourceDirectory, getLibraries(), outputDirectory,
+							getErrorBuffer(), getCompilerLog());
+				} else {
+					compiled = InProcessCompiler.compile(Collections.singletonList(resolveInProject(runPath.getPath())),
+							sourceDirectory, getLibraries(), outputDirectory, getErrorBuffer(),
+							getCompilerLog());
+				}
+				mark("compiled in-process");
+				return compiled;
+			}
 
-			String command = cb.generateCommand();
+			List<String> command = CommandCache.get(CommandBuilder.COMPILE, metadataFile, runPath.getPath());
+			mark(command == null ? "javac command built" : "javac command cached");
+			if (command == null) {
+				CommandBuilder cb = new CommandBuilder(CommandBuilder.COMPILE);
+				cb.setJDK(JDKPath);
+				cb.setRunPath(runPath.getPath());
+				cb.setDirectory(directory);
+				cb.setSourcepath(sourcepath);
+				cb.setInternalLibraries(internalLibraries);
+				cb.setExternalLibraries(externalLibraries);
+				cb.setArgumentFileDirectory(getOutputDirectory());
+
+				command = cb.generateArguments();
+				CommandCache.put(CommandBuilder.COMPILE, metadataFile, runPath.getPath(), command);
+			}
 			Process process = executeCommand(command, projectFile);
 			redirectStreams(process);
-			return process;
+			return isCompiled(process);
 		}
 
-		protected Process executeCommand(String command, File projectFile) {
+		/**
+		 * Waits for a forked compile to finish.
+		 *
+		 * @param process the javac process, or null if it couldn't be started
+		 * @return true if javac exited successfully
+		 */
+		protected boolean isCompiled(Process process) {
+			if (process == null) {
+				return false;
+			}
+
+			javac = process;
+			if (cancelled) {
+				process.destroy();
+			}
+
+			int exitValue = -1;
+			try {
+				exitValue = process.waitFor();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			javac = null;
+
+			return exitValue == 0 && !cancelled;
+		}
+
+		/**
+		 * Cancels the compile. A forked javac is killed, and one that is about to start is killed
+		 * as soon as it has.
+		 */
+		protected void cancel() {
+			cancelled = true;
+			Process process = javac;
+			if (process != null) {
+				process.destroy();
+			}
+		}
+
+		/**
+		 * Resolves a path from the metadata, which is relative to the project unless absolute.
+		 */
+		protected File resolveInProject(String path) {
+			File resolved = new File(path);
+			return resolved.isAbsolute() ? resolved : new File(projectFile, path);
+		}
+
+		/**
+		 * Finds the directory class files are written to, the file's own directory if the project
+		 * doesn't name one.
+		 */
+		protected File getOutputDirectory() {
+			return directory == null ? file.getAbsoluteFile().getParentFile() : resolveInProject(directory);
+		}
+
+		/**
+		 * Collects the internal and external libraries of the project.
+		 */
+		protected List<File> getLibraries() {
+			List<File> libraries = new ArrayList<>();
+			for (String[] group : new String[][] {internalLibraries, externalLibraries}) {
+				if (group != null) {
+					for (String library : group) {
+						libraries.add(resolveInProject(library));
+					}
+				}
+			}
+			return libraries;
+		}
+
+		/**
+		 * @return the stream the messages of the in-process compiler are printed to: the error
+		 *         output of the console, or of Zenit if there is none. Null in the background.
+		 */
+		protected PrintStream getCompilerLog() {
+			if (inBackground) {
+				return null;
+			}
+			return console != null ? new PrintStream(new ConsoleAreaErrorStream(console), true) : System.err;
+		}
+
+		protected DebugErrorBuffer getErrorBuffer() {
+			return inBackground && buffer instanceof DebugErrorBuffer ? (DebugErrorBuffer) buffer : null;
+		}
+
+		protected Process executeCommand(List<String> command, File projectFile) {
 			if (inBackground) {
 				DebugErrorBuffer deb = null;
 				if (buffer != null && buffer instanceof DebugErrorBuffer) {
@@ -112,7 +521,16 @@ public class JavaSourceCodeCompiler {
 				}
 				return TerminalHelpers.runBackgroundCommand(command, projectFile, deb);
 			} else {
-				return TerminalHelpers.runCommand(command, projectFile);
+				return TerminalHelpers.runCommand(command, projectFile, timeline);
+			}
+		}
+
+		/**
+		 * Records a phase in the timeline of the compile, if it has one.
+		 */
+		protected void mark(String phase) {
+			if (timeline != null) {
+				timeline.mark(phase);
 			}
 		}
 
@@ -127,105 +545,264 @@ public class JavaSourceCodeCompiler {
 		}
 
 		protected void redirectStreams(Process process) {
-			StreamRedirector inStream = new StreamRedirector(process.getInputStream(), System.out::println);
-			StreamRedirector errorStream = new StreamRedirector(process.getErrorStream(), System.err::println);
+			redirectStreams(process, null);
+		}
+
+		/**
+		 * Prints the output of a process to the console of the compiler, or to the standard
+		 * streams of Zenit if it has none. The output is pumped by the {@link ProcessIOService}.
+		 * The first output is recorded in the timeline, if there is one.
+		 *
+		 * @param started completed with the time the process first printed something or exited,
+		 *                from {@link System#nanoTime()}. May be null.
+		 */
+		protected void redirectStreams(Process process, CompletableFuture<Long> started) {
+			if (process == null) {
+				return;
+			}
+
+			ProcessIOService.Sink out = console != null ? console::offerOutput : chunk -> {
+				System.out.print(chunk);
+				return true;
+			};
+			ProcessIOService.Sink err = console != null ? console::offerError : chunk -> {
+				System.err.print(chunk);
+				return true;
+			};
+			if (timeline != null || started != null) {
+				out = markFirstOutput(out, started);
+				err = markFirstOutput(err, started);
+			}
+			if (started != null) {
+				process.onExit().thenRun(() -> started.complete(System.nanoTime()));
+			}
 
-			Executors.newSingleThreadExecutor().submit(inStream);
-			Executors.newSingleThreadExecutor().submit(errorStream);
+			ProcessIOService service = ProcessIOService.getInstance();
+			service.register(process, process.getInputStream(), out);
+			service.register(process, process.getErrorStream(), err);
+		}
+
+		/**
+		 * Records when the first chunk of output of a stream is offered to a sink. The timeline
+		 * keeps the first output of either stream of the process.
+		 *
+		 * @param started completed with the time of the first output. May be null.
+		 */
+		private ProcessIOService.Sink markFirstOutput(ProcessIOService.Sink sink, CompletableFuture<Long> started) {
+			return new ProcessIOService.Sink() {
+				private boolean marked;
+
+				@Override
+				public boolean offer(String chunk) {
+					if (!marked) {
+						marked = true;
+						if (started != null) {
+							started.complete(System.nanoTime());
+						}
+						if (timeline != null) {
+							timeline.markOnce("first output");
+						}
+					}
+					return sink.offer(chunk);
+				}
+			};
 		}
 	}
 
 	private class CompileAndRun extends Compile {
+		private final CompletableFuture<Process> result = new CompletableFuture<>();
+		private ClassDataArchive archive;
+		private long processStart;
+
+		CompileAndRun() {
+			result.whenComplete((process, ex) -> {
+				if (result.isCancelled()) {
+					cancel();
+				}
+			});
+		}
 
 		@Override
 		public void run() {
-			Process process;
+			Process process = null;
+			try {
+				if (!result.isCancelled()) {
+					process = compileAndRun();
+				}
+			} finally {
+				// A run that was cancelled while it was being launched is stopped right away
+				if (!result.complete(process) && process != null) {
+					process.destroy();
+				}
+				if (buffer != null && buffer instanceof ProcessBuffer) {
+					ProcessBuffer pb = (ProcessBuffer) buffer;
+					pb.put(result.isCancelled() ? null : process);
+				}
+			}
+		}
+
+		private Process compileAndRun() {
+			Process process = null;
 			if (metadataFile != null) {
-				decodeMetadata();
-				createProjectPath();
-				process = compileInPackage();
+				decodeProject();
+				mark("metadata decoded");
+
+				long start = System.nanoTime();
+				boolean compiled = compileProject(true);
+				long built = System.nanoTime();
+
+				if (cancelled) {
+					mark("cancelled");
+					if (cont != null) {
+						Platform.runLater(() -> cont.updateStatusRight("Compile cancelled"));
+					}
+					return null;
+				}
+
+				CompletableFuture<Long> started = new CompletableFuture<>();
+				String fallback = "";
+				if (compiled && runInProcess && console != null) {
+					process = runInProcess();
+					if (process == null) {
+						fallback = InProcessRunner.isSupported() ? " in a new JVM (couldn't run inside Zenit)" :
+								" in a new JVM (Java " + Runtime.version().feature() + " can't run classes inside Zenit)";
+					}
+				}
+				if (compiled && process == null) {
+					process = runFileInPackage(started);
+				}
+				long launched = System.nanoTime();
 
-				if (isCompiled(process)) {
-					process = runFileInPackage();
+				String compilePhase = compileSkipped ? "Compile skipped, up to date (checked in " + millis(start, built) + " ms)" :
+						(compiled ? "Compiled" : "Compile failed") + " in " + millis(start, built) + " ms";
+				String launchPhase = compiled ? ", launched in " + millis(built, launched) + " ms" + fallback : "";
+				if (cont != null) {
+					Platform.runLater(() -> cont.updateStatusRight(compilePhase + launchPhase));
+				}
+
+				if (archive != null && process != null) {
+					started.thenAccept(time -> {
+						String startup = archive.recordStartup(millis(processStart, time));
+						if (cont != null) {
+							Platform.runLater(() -> cont.updateStatusRight(compilePhase + launchPhase + ", " + startup));
+						}
+					});
 				}
 			} else {
-				process = compile();
-				if (isCompiled(process)) {
-					process = runFile();
+				if (compile() && !cancelled) {
+					process = runFile(new CompletableFuture<>());
 				}
 			}
 
-			if (buffer != null && buffer instanceof ProcessBuffer) {
-				ProcessBuffer pb = (ProcessBuffer) buffer;
-				pb.put(process);
-			}
+			return process;
 		}
 
-		private boolean isCompiled(Process process) {
-			int exitValue = -1;
-			try {
-				exitValue = process.waitFor();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-
-			if (exitValue == 0) {
-				return true;
-			} else {
-				return false;
-			}
+		private long millis(long from, long to) {
+			return (to - from) / 1_000_000;
 		}
 
-		private Process runFile() {
+		private Process runFile(CompletableFuture<Long> started) {
 			runPath = new File(createRunPathForRunning(file.getName()));
 
 			CommandBuilder cb = new CommandBuilder(CommandBuilder.RUN);
 			cb.setJDK(JDKPath);
 			cb.setRunPath(runPath.getPath());
 
-			String command = cb.generateCommand();
+			List<String> command = cb.generateArguments();
+			mark("JVM command built");
 
 			Process process = executeCommand(command, file.getParentFile());
 
-			redirectStreams(process);
+			redirectStreams(process, started);
 			return process;
 		}
 
-		private Process runFileInPackage() {
+		/**
+		 * Runs the class inside Zenit's JVM.
+		 *
+		 * @return the run, or null if the class must run in a process of its own
+		 */
+		private Process runInProcess() {
 			runPath = new File(createRunPathForRunning(super.runPath.getPath()));
 
-			CommandBuilder cb = new CommandBuilder(CommandBuilder.RUN);
-			cb.setJDK(JDKPath);
-			cb.setRunPath(runPath.getPath());
-
-			cb.setInternalLibraries(internalLibraries);
-			cb.setExternalLibraries(externalLibraries);
-			cb.setDirectory(directory);
+			List<File> classpath = new ArrayList<>();
+			classpath.add(getOutputDirectory());
+			classpath.addAll(getLibraries());
 
 			Metadata metadata = new Metadata(metadataFile);
 			RunnableClass rc = metadata.containRunnableClass(runPath.getPath());
+			String[] arguments = new String[0];
+			if (rc != null && rc.getPaArguments() != null) {
+				arguments = CommandBuilder.splitArguments(rc.getPaArguments()).toArray(arguments);
+			}
 
-			if (rc != null) {
-				cb.setProgramArguments(rc.getPaArguments());
-				cb.setVMArguments(rc.getVmArguments());
+			String className = runPath.getPath().replace('/', '.').replace('\\', '.');
+			Process run = InProcessRunner.start(classpath, className, arguments,
+					new PrintStream(new ConsoleAreaOutputStream(console)),
+					new PrintStream(new ConsoleAreaErrorStream(console)));
+			if (run != null) {
+				ProcessRegistry.getInstance().register(run);
+				if (timeline != null) {
+					timeline.markProcess(run, "in-process run");
+				}
 			}
+			return run;
+		}
 
-			String command = cb.generateCommand();
+		/**
+		 * Runs the class in its project.
+		 *
+		 * @param started completed when the program has started, if it runs with a class data
+		 *                archive
+		 */
+		private Process runFileInPackage(CompletableFuture<Long> started) {
+			runPath = new File(createRunPathForRunning(super.runPath.getPath()));
+
+			List<String> command = classDataSharing ? null : CommandCache.get(CommandBuilder.RUN, metadataFile,
+					runPath.getPath());
+			boolean cached = command != null;
+			if (command == null) {
+				CommandBuilder cb = new CommandBuilder(CommandBuilder.RUN);
+				cb.setJDK(JDKPath);
+				cb.setRunPath(runPath.getPath());
+
+				cb.setInternalLibraries(internalLibraries);
+				cb.setExternalLibraries(externalLibraries);
+				cb.setDirectory(directory);
+				cb.setArgumentFileDirectory(getOutputDirectory());
+
+				Metadata metadata = new Metadata(metadataFile);
+				RunnableClass rc = metadata.containRunnableClass(runPath.getPath());
+
+				if (rc != null) {
+					cb.setProgramArguments(rc.getPaArguments());
+					cb.setVMArguments(rc.getVmArguments());
+				}
+
+				if (classDataSharing) {
+					archive = ClassDataArchive.prepare(JDKPath, getOutputDirectory(), runPath.getPath(),
+							getLibraries(), rc == null ? null : rc.getVmArguments());
+				}
+				if (archive != null) {
+					cb.setClasspath(archive.getClasspath());
+					cb.addVMOption(archive.getVMOption());
+				}
 
+				command = cb.generateArguments();
+				if (!classDataSharing) {
+					CommandCache.put(CommandBuilder.RUN, metadataFile, runPath.getPath(), command);
+				}
+			}
+
+			mark(cached ? "JVM command cached" : "JVM command built");
+
+			processStart = System.nanoTime();
 			Process process = executeCommand(command, projectFile);
 
 			// Runs command
-			redirectStreams(process);
+			redirectStreams(process, started);
 
 			return process;
 		}
-
-		private String createRunPathForRunning(String runPath) {
-			String newRunPath;
-			newRunPath = runPath.replaceAll(Matcher.quoteReplacement("src" + File.separator), "");
-			newRunPath = newRunPath.replaceAll(".java", "");
-
-			return newRunPath;
-		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+package main.java.zenit.javacodecompiler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns the error output of a forked javac into {@link DebugError}s, one line at a time, so the
+ * output can be read while javac is still running.
+ * <p>
+ * javac prints each diagnostic as a header line {@code File.java:line: kind: message}, followed
+ * by the source line, a line with a caret under the column, and for some diagnostics indented
+ * detail lines such as {@code symbol:} and {@code location:}. The file name is matched up to
+ * {@code .java:}, so drive letters and colons in paths don't confuse the parser, and detail
+ * lines are kept as part of the message. Lines that can't be parsed are skipped.
+ * </p>
+ */
+public class JavacOutputParser {
+	private static final Pattern HEADER = Pattern.compile("^(.+?\\.java):(\\d+): (error|warning): (.*)$");
+	private static final Pattern CARET = Pattern.compile("^\\s*\\^\\s*$");
+	private static final Pattern SUMMARY = Pattern.compile("^(\\d+ (errors?|warnings?)|Note: .*)$");
+
+	private final Consumer<DebugError> consumer;
+
+	private String place;
+	private String problemType;
+	private StringBuilder problem;
+	private int row;
+	private int column;
+	private boolean caretSeen;
+	private final List<String> beforeCaret = new ArrayList<>();
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	/**
+	 * @param consumer receives each diagnostic once all of its lines have been read
+	 */
+	public JavacOutputParser(Consumer<DebugError> consumer) {
+		this.consumer = consumer;
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Reads javac's error output until it ends and passes every diagnostic to the consumer.
+	 *
+	 * @param reader the error output of javac
+	 * @throws IOException if the output couldn't be read
+	 */
+	public void parse(BufferedReader reader) throws IOException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			accept(line);
+		}
+		finish();
+	}
+
+	/**
+	 * Parses the next line of output.
+	 *
+	 * @param line a line of javac's error output
+	 */
+	public void accept(String line) {
+		Matcher header = HEADER.matcher(line);
+		if (header.matches()) {
+			finish();
+			place = header.group(1);
+			row = Integer.parseInt(header.group(2));
+			problemType = header.group(3);
+			problem = new StringBuilder(header.group(4));
+		} else if (place == null) {
+			return;
+		} else if (SUMMARY.matcher(line).matches()) {
+			finish();
+		} else if (!caretSeen && CARET.matcher(line).matches()) {
+			// The line right above the caret is the source line, earlier ones continue the message
+			for (int i = 0; i < beforeCaret.size() - 1; i++) {
+				problem.append('\n').append(beforeCaret.get(i));
+			}
+			beforeCaret.clear();
+			column = line.indexOf('^') + 1;
+			caretSeen = true;
+		} else if (!caretSeen) {
+			beforeCaret.add(line);
+		} else if (!line.isEmpty() && Character.isWhitespace(line.charAt(0))) {
+			problem.append('\n').append(line);
+		} else {
+			finish();
+		}
+	}
+
+	/**
+	 * Passes on the diagnostic being read, if any. Called when the output ends.
+	 */
+	public void finish() {
+		if (place == null) {
+			return;
+		}
+
+		for (String line : beforeCaret) {
+			problem.append('\n').append(line);
+		}
+		consumer.accept(new DebugError(place, problemType, problem.toString(), row, column));
+
+		place = null;
+		problemType = null;
+		problem = null;
+		row = 0;
+		column = 0;
+		caretSeen = false;
+		beforeCaret.clear();
+	}
+}
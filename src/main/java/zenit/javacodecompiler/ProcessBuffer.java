@@ -3,34 +3,38 @@ package main.java.zenit.javacodecompiler;
 public class ProcessBuffer implements Buffer<Process>{
 	
 	private Process buffer;
+	private boolean filled;
 	
+	/**
+	 * Puts a process in the buffer. A null process is stored as well, to tell the waiting
+	 * thread that no process was started, e.g. because the compile failed.
+	 */
 	public synchronized void put(Process process) {
-		if (buffer == null) {
+		if (!filled) {
 			buffer = process;
+			filled = true;
 			notifyAll();
 		}
 	}
 	
 	public synchronized Process get() {
-		if (buffer == null) {
+		while (!filled) {
 			try {
 				wait();
 			} catch (InterruptedException e) {
 				e.printStackTrace();
+				return null;
 			}
 		}
-		if (buffer != null) {
-			Process process = buffer;
-			buffer = null;
-			return process;
-		} else {
-			return null;
-		}
+		Process process = buffer;
+		buffer = null;
+		filled = false;
+		return process;
 	}
 
 	@Override
-	public boolean isEmpty() {
-		if (buffer == null) {
+	public synchronized boolean isEmpty() {
+		if (!filled) {
 			return true;
 		} else {
 			return false;
@@ -0,0 +1,331 @@
+package main.java.zenit.javacodecompiler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pumps the output of all processes started by Zenit to where it is shown, on a single thread.
+ * <p>
+ * The pipes of a process can't be selected on like sockets, so the pump thread polls the
+ * registered streams and only reads the bytes a stream already has available. A read therefore
+ * never blocks, and one thread serves any number of processes. When no stream has output the
+ * thread waits a little longer each round, up to {@link #MAX_IDLE_WAIT} milliseconds.
+ * </p>
+ * <p>
+ * Bytes are read into a buffer of each stream, decoded with the platform charset and passed on
+ * in chunks as they arrive rather than line by line. A character split between two reads is
+ * kept until the rest of it arrives.
+ * </p>
+ * <p>
+ * A {@link Sink} never blocks the pump thread. A sink that can't take more output refuses the
+ * chunk, and the stream isn't read again until the sink has taken it, so a process whose output
+ * can't be shown fast enough waits on its own pipe while the other processes are served. A sink
+ * that throws only ends the pumping of its own stream.
+ * </p>
+ */
+public class ProcessIOService {
+	private static final int BUFFER_SIZE = 8192;
+	private static final long MAX_IDLE_WAIT = 16;
+
+	private static final ProcessIOService instance = new ProcessIOService();
+
+	private final List<Pump> pumps = new CopyOnWriteArrayList<>();
+	private final CharBuffer decoded = CharBuffer.allocate(BUFFER_SIZE);
+	private final AtomicLong bytesPumped = new AtomicLong();
+	private final Thread thread;
+	private volatile boolean running = true;
+
+	private ProcessIOService() {
+		thread = new Thread(this::run, "Zenit process I/O");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * @return the process I/O service of Zenit
+	 */
+	public static ProcessIOService getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Starts pumping the output of a process. The stream is closed once the process has exited
+	 * and all its output has been passed on.
+	 *
+	 * @param process the process the stream belongs to
+	 * @param stream the standard or error output of the process
+	 * @param sink receives the output in chunks, on the pump thread
+	 * @return the registration of the stream
+	 */
+	public Pump register(Process process, InputStream stream, Sink sink) {
+		Pump pump = new Pump(process, stream, sink);
+		if (!running) {
+			pump.close();
+			return pump;
+		}
+		pumps.add(pump);
+		synchronized (this) {
+			notifyAll();
+		}
+		return pump;
+	}
+
+	/**
+	 * Passes on the output that is already available, closes all streams and stops the pump
+	 * thread.
+	 */
+	public void shutdown() {
+		running = false;
+		synchronized (this) {
+			notifyAll();
+		}
+		try {
+			thread.join(1000);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		long idleWait = 1;
+		while (running) {
+			boolean progress = false;
+			for (Pump pump : pumps) {
+				progress |= pump(pump);
+				if (pump.isFinished()) {
+					pumps.remove(pump);
+				}
+			}
+
+			if (progress) {
+				idleWait = 1;
+				continue;
+			}
+			try {
+				synchronized (this) {
+					if (!running) {
+						break;
+					}
+					if (pumps.isEmpty()) {
+						wait();
+					} else {
+						wait(idleWait);
+						idleWait = Math.min(idleWait * 2, MAX_IDLE_WAIT);
+					}
+				}
+			} catch (InterruptedException ex) {
+				break;
+			}
+		}
+
+		for (Pump pump : pumps) {
+			while (pump(pump) && !pump.isFinished()) {
+				// Drain what is already available
+			}
+			try {
+				pump.end(decoded);
+			} catch (RuntimeException ex) {
+				System.err.println("ProcessIOService.run: " + ex);
+			}
+			// Output a sink still refuses is dropped, Zenit is closing
+			pump.close();
+		}
+		pumps.clear();
+	}
+
+	/**
+	 * Pumps one stream, ending only that stream if its sink throws.
+	 *
+	 * @return true if anything was read or delivered
+	 */
+	private boolean pump(Pump pump) {
+		try {
+			return pump.pump(decoded);
+		} catch (RuntimeException ex) {
+			System.err.println("ProcessIOService.pump: " + ex);
+			decoded.clear();
+			pump.close();
+			return true;
+		}
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Getters:
+	/**
+	 * @return the number of bytes pumped from all processes since Zenit started
+	 */
+	public long getBytesPumped() {
+		return bytesPumped.get();
+	}
+
+	/**
+	 * @return the number of streams currently pumped
+	 */
+	public int getActiveStreams() {
+		return pumps.size();
+	}
+
+	/**
+	 * Where the output of a stream is passed on to. Called on the pump thread, which is shared by
+	 * all processes, so it must not block.
+	 */
+	@FunctionalInterface
+	public interface Sink {
+		/**
+		 * Takes a chunk of output if there is room for it.
+		 *
+		 * @param chunk the output
+		 * @return false if the chunk can't be taken now, in which case it is offered again later
+		 *         and nothing more is read from the stream until it has been taken
+		 */
+		boolean offer(String chunk);
+	}
+
+	/**
+	 * One stream being pumped.
+	 */
+	public class Pump {
+		private final Process process;
+		private final InputStream stream;
+		private final Sink sink;
+		private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+		private final CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		private String refused;
+		private long count;
+		private boolean ended;
+		private volatile boolean finished;
+
+		Pump(Process process, InputStream stream, Sink sink) {
+			this.process = process;
+			this.stream = stream;
+			this.sink = sink;
+		}
+
+		/**
+		 * Reads and passes on the bytes the stream has available, without blocking. A chunk the
+		 * sink refused earlier is offered again first.
+		 *
+		 * @return true if anything was read or delivered
+		 */
+		boolean pump(CharBuffer chars) {
+			if (finished) {
+				return false;
+			}
+			if (refused != null) {
+				if (!sink.offer(refused)) {
+					return false;
+				}
+				refused = null;
+				if (ended) {
+					close();
+				}
+				return true;
+			}
+
+			try {
+				// Checked first, so output written just before the process exited isn't missed
+				boolean alive = process.isAlive();
+				int available = stream.available();
+				if (available > 0) {
+					int read = stream.read(bytes.array(), bytes.position(), Math.min(available, bytes.remaining()));
+					if (read < 0) {
+						end(chars);
+						return true;
+					}
+					bytes.position(bytes.position() + read);
+					count += read;
+					bytesPumped.addAndGet(read);
+
+					bytes.flip();
+					decoder.decode(bytes, chars, false);
+					bytes.compact();
+					deliver(chars);
+					return true;
+				}
+
+				if (!alive) {
+					end(chars);
+				}
+			} catch (IOException ex) {
+				end(chars);
+			}
+			return false;
+		}
+
+		/**
+		 * Passes on what is left of the output once the stream has ended, and closes the stream
+		 * when the sink has taken it.
+		 */
+		void end(CharBuffer chars) {
+			if (ended || finished) {
+				return;
+			}
+			ended = true;
+
+			bytes.flip();
+			decoder.decode(bytes, chars, true);
+			decoder.flush(chars);
+			deliver(chars);
+			if (refused == null) {
+				close();
+			}
+		}
+
+		/**
+		 * Closes the stream, dropping output the sink hasn't taken.
+		 */
+		void close() {
+			if (finished) {
+				return;
+			}
+			finished = true;
+			refused = null;
+
+			try {
+				stream.close();
+			} catch (IOException ex) {
+				System.err.println("ProcessIOService.close: " + ex.getMessage());
+			}
+		}
+
+		/**
+		 * Offers the decoded characters to the sink, keeping them if it refuses.
+		 */
+		private void deliver(CharBuffer chars) {
+			chars.flip();
+			String chunk = chars.hasRemaining() ? chars.toString() : null;
+			chars.clear();
+			if (chunk != null && !sink.offer(chunk)) {
+				refused = chunk;
+			}
+		}
+
+		// ------------------------------------------------------------------------------------
+		// Getters:
+		/**
+		 * @return the number of bytes pumped from the stream
+		 */
+		public long getBytesPumped() {
+			return count;
+		}
+
+		/**
+		 * @return true once the stream has ended and all its output has been passed on
+		 */
+		public boolean isFinished() {
+			return finished;
+		}
+	}
+}
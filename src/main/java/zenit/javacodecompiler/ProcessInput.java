@@ -0,0 +1,132 @@
+package main.java.zenit.javacodecompiler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes input to the standard input of a process without blocking the caller.
+ * <p>
+ * Input is queued and written by a thread of its own, which is started with the first input. A
+ * process that is slow to read only holds up that thread. Large input is split into chunks of
+ * {@link #CHUNK_SIZE} bytes, so it is streamed to the process as it reads. The input can be ended,
+ * which the process sees as the end of its standard input once everything before has been
+ * written. Input left in the queue when the process exits is dropped.
+ * </p>
+ */
+public class ProcessInput {
+	public static final int CHUNK_SIZE = 8192;
+
+	private static final byte[] END = new byte[0];
+
+	private final Process process;
+	private final OutputStream stdin;
+	private final LinkedBlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+	private final AtomicLong pending = new AtomicLong();
+	private Thread writer;
+	private volatile boolean ended;
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	/**
+	 * @param process the process to write to
+	 */
+	public ProcessInput(Process process) {
+		this.process = process;
+		this.stdin = process.getOutputStream();
+		process.onExit().thenRun(this::discard);
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Queues input for the process.
+	 *
+	 * @param text the input, encoded with the platform charset
+	 * @return false if the input has been ended or the process has exited
+	 */
+	public synchronized boolean send(String text) {
+		if (ended || !process.isAlive()) {
+			return false;
+		}
+
+		byte[] bytes = text.getBytes(Charset.defaultCharset());
+		for (int offset = 0; offset < bytes.length; offset += CHUNK_SIZE) {
+			queue.add(Arrays.copyOfRange(bytes, offset, Math.min(offset + CHUNK_SIZE, bytes.length)));
+		}
+		pending.addAndGet(bytes.length);
+		startWriter();
+		return true;
+	}
+
+	/**
+	 * Ends the input. The standard input of the process is closed once the queued input has been
+	 * written.
+	 */
+	public synchronized void end() {
+		if (!ended) {
+			ended = true;
+			queue.add(END);
+			startWriter();
+		}
+	}
+
+	private void startWriter() {
+		if (writer == null) {
+			writer = new Thread(this::write, "Zenit process input");
+			writer.setDaemon(true);
+			writer.start();
+		}
+	}
+
+	private void write() {
+		try {
+			while (true) {
+				byte[] chunk = queue.take();
+				if (chunk == END) {
+					stdin.close();
+					return;
+				}
+				stdin.write(chunk);
+				stdin.flush();
+				pending.addAndGet(-chunk.length);
+			}
+		} catch (IOException ex) {
+			// The process closed its standard input or exited
+			discard();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Drops the queued input and stops the writer.
+	 */
+	private synchronized void discard() {
+		ended = true;
+		queue.clear();
+		pending.set(0);
+		if (writer != null) {
+			writer.interrupt();
+		}
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Getters:
+	/**
+	 * @return the number of bytes queued but not yet written
+	 */
+	public long getPendingBytes() {
+		return pending.get();
+	}
+
+	/**
+	 * @return true if the input has been ended or the process has exited
+	 */
+	public boolean isEnded() {
+		return ended;
+	}
+}
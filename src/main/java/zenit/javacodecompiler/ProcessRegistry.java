@@ -0,0 +1,163 @@
+package main.java.zenit.javacodecompiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps track of every process Zenit starts, until it exits.
+ * <p>
+ * A program can start processes of its own, which would keep running if only the process Zenit
+ * started was destroyed. Processes are therefore terminated as a tree: the process and all its
+ * descendants are first asked to terminate, and whatever is still alive after
+ * {@link #GRACE_PERIOD} milliseconds is killed forcibly. When Zenit exits, all processes that
+ * are still running are terminated the same way.
+ * </p>
+ * <p>
+ * Runs inside Zenit's JVM, see {@link InProcessRunner}, have no process handle and are only
+ * destroyed themselves.
+ * </p>
+ */
+public class ProcessRegistry {
+	public static final long GRACE_PERIOD = 2000;
+
+	private static final ProcessRegistry instance = new ProcessRegistry();
+
+	private final Set<Process> processes = ConcurrentHashMap.newKeySet();
+	private final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Zenit process reaper");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private ProcessRegistry() {
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * @return the process registry of Zenit
+	 */
+	public static ProcessRegistry getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Tracks a process until it exits. Registering a process again has no further effect.
+	 *
+	 * @param process the started process
+	 * @return completes when the process has exited, on a thread of the JVM
+	 */
+	public CompletableFuture<Process> register(Process process) {
+		if (processes.add(process)) {
+			process.onExit().thenRun(() -> processes.remove(process));
+		}
+		return process.onExit();
+	}
+
+	/**
+	 * Terminates a process and its descendants in the background: they are asked to terminate,
+	 * and killed if they haven't after {@link #GRACE_PERIOD} milliseconds.
+	 *
+	 * @param process the process to terminate
+	 */
+	public void terminate(Process process) {
+		List<ProcessHandle> tree = getTree(process);
+		destroy(process, tree, false);
+		reaper.schedule(() -> destroy(process, tree, true), GRACE_PERIOD, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Terminates every process that is still running and waits for them to exit, for at most
+	 * {@link #GRACE_PERIOD} milliseconds before they are killed. Called when Zenit exits.
+	 */
+	public void terminateAll() {
+		List<Process> running = getProcesses();
+		List<List<ProcessHandle>> trees = new ArrayList<>();
+		for (Process process : running) {
+			List<ProcessHandle> tree = getTree(process);
+			trees.add(tree);
+			destroy(process, tree, false);
+		}
+
+		long deadline = System.currentTimeMillis() + GRACE_PERIOD;
+		for (int i = 0; i < running.size(); i++) {
+			Process process = running.get(i);
+			try {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0 || !process.waitFor(remaining, TimeUnit.MILLISECONDS)) {
+					destroy(process, trees.get(i), true);
+				}
+				for (ProcessHandle handle : trees.get(i)) {
+					remaining = deadline - System.currentTimeMillis();
+					if (handle.isAlive()) {
+						handle.onExit().get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+					}
+				}
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				destroy(process, trees.get(i), true);
+			} catch (Exception ex) {
+				destroy(process, trees.get(i), true);
+			}
+		}
+		reaper.shutdownNow();
+	}
+
+	/**
+	 * Destroys the descendants of a process before the process itself, so the process can't
+	 * start new ones in their place.
+	 *
+	 * @param forcibly true to kill, false to ask to terminate
+	 */
+	private void destroy(Process process, List<ProcessHandle> tree, boolean forcibly) {
+		for (ProcessHandle handle : tree) {
+			if (handle.isAlive()) {
+				if (forcibly) {
+					handle.destroyForcibly();
+				} else {
+					handle.destroy();
+				}
+			}
+		}
+
+		if (process.isAlive()) {
+			if (forcibly) {
+				process.destroyForcibly();
+			} else {
+				process.destroy();
+			}
+		}
+	}
+
+	/**
+	 * Finds the descendants of a process, deepest first.
+	 *
+	 * @return the descendants, or an empty list if the process has no handle
+	 */
+	private static List<ProcessHandle> getTree(Process process) {
+		try {
+			List<ProcessHandle> descendants = process.toHandle().descendants().collect(Collectors.toList());
+			Collections.reverse(descendants);
+			return descendants;
+		} catch (UnsupportedOperationException ex) {
+			return Collections.emptyList();
+		}
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Getters:
+	/**
+	 * @return the processes that are still running
+	 */
+	public List<Process> getProcesses() {
+		return new ArrayList<>(processes);
+	}
+}
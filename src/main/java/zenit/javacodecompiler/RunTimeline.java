@@ -0,0 +1,181 @@
+package main.java.zenit.javacodecompiler;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The timeline of one compile and run: when each phase of it happened, counted from the moment
+ * the user started it. Phases are marked by the code doing the work, on whatever thread it runs.
+ * <p>
+ * The last {@link #HISTORY_SIZE} timelines are kept in memory, newest first, so it can be seen
+ * where the turnaround time of runs goes.
+ * </p>
+ */
+public class RunTimeline {
+	public static final int HISTORY_SIZE = 20;
+
+	private static final LinkedList<RunTimeline> history = new LinkedList<>();
+	private static final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+	private final String name;
+	private final long startTime = System.currentTimeMillis();
+	private final long start = System.nanoTime();
+	private final List<Event> events = new ArrayList<>();
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	/**
+	 * Starts a timeline and adds it to the history.
+	 *
+	 * @param name what is compiled and run, usually the name of the file
+	 */
+	public RunTimeline(String name) {
+		this.name = name;
+
+		synchronized (history) {
+			history.addFirst(this);
+			if (history.size() > HISTORY_SIZE) {
+				history.removeLast();
+			}
+		}
+		changed();
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Records that a phase happened now.
+	 *
+	 * @param phase the phase, for example "javac started"
+	 */
+	public void mark(String phase) {
+		synchronized (events) {
+			events.add(new Event(phase, System.nanoTime() - start));
+		}
+		changed();
+	}
+
+	/**
+	 * Records that a phase happened now, unless it was recorded before.
+	 *
+	 * @param phase the phase, for example "first output"
+	 */
+	public void markOnce(String phase) {
+		synchronized (events) {
+			for (Event event : events) {
+				if (event.phase.equals(phase)) {
+					return;
+				}
+			}
+			events.add(new Event(phase, System.nanoTime() - start));
+		}
+		changed();
+	}
+
+	/**
+	 * Records a phase at the start of a process and at its exit.
+	 *
+	 * @param process the process
+	 * @param name the name the process is recorded by, for example "javac"
+	 */
+	public void markProcess(Process process, String name) {
+		mark(name + " started");
+		process.onExit().thenRun(() -> mark(name + " exited"));
+	}
+
+	/**
+	 * @return the recent timelines, newest first
+	 */
+	public static List<RunTimeline> getRecent() {
+		synchronized (history) {
+			return new ArrayList<>(history);
+		}
+	}
+
+	/**
+	 * Adds a listener that is notified, on the thread that made the change, whenever a
+	 * timeline is started or a phase is recorded.
+	 *
+	 * @param listener the listener
+	 */
+	public static void addListener(Runnable listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * @param listener a listener added before
+	 */
+	public static void removeListener(Runnable listener) {
+		listeners.remove(listener);
+	}
+
+	private static void changed() {
+		for (Runnable listener : listeners) {
+			listener.run();
+		}
+	}
+
+	/**
+	 * Describes the timeline with one line per phase: the time since the start and the time
+	 * since the phase before.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder(name);
+		long previous = 0;
+		for (Event event : getEvents()) {
+			text.append(String.format("%n%8d ms  %-28s +%d ms", event.getMillis(), event.getPhase(),
+					event.getMillis() - previous));
+			previous = event.getMillis();
+		}
+		return text.toString();
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Getters:
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return when the timeline started, in milliseconds since the epoch
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * @return the recorded phases in the order they happened
+	 */
+	public List<Event> getEvents() {
+		synchronized (events) {
+			return new ArrayList<>(events);
+		}
+	}
+
+	/**
+	 * A phase of a timeline.
+	 */
+	public static class Event {
+		private final String phase;
+		private final long offset;
+
+		Event(String phase, long offset) {
+			this.phase = phase;
+			this.offset = offset;
+		}
+
+		public String getPhase() {
+			return phase;
+		}
+
+		/**
+		 * @return the time from the start of the timeline to the phase, in milliseconds
+		 */
+		public long getMillis() {
+			return offset / 1_000_000;
+		}
+	}
+}
@@ -4,86 +4,90 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
+import java.util.List;
 
 public class TerminalHelpers {
 	
-	protected static Process runCommand(String command) {
+	protected static Process runCommand(List<String> command) {
 		return runCommand(command, null);
 	}
 
-	protected static Process runCommand(String command, File directory) {
-		try {
-			ProcessBuilder builder = new ProcessBuilder();
-			if (System.getProperty("os.name").startsWith("Windows")) {
-				builder.command("cmd.exe", "/c", command);
-			} else {
-				builder.command("sh", "-c", command);
-			}
+	/**
+	 * Starts a process directly from its arguments, without a shell in between.
+	 *
+	 * @param command the executable followed by its arguments
+	 * @param directory the directory to run the process in, or null
+	 * @return the started process, or null if it couldn't be started
+	 */
+	protected static Process runCommand(List<String> command, File directory) {
+		return runCommand(command, directory, null);
+	}
 
+	/**
+	 * Starts a process directly from its arguments, without a shell in between, and records its
+	 * start and exit in a timeline. The process is tracked by the {@link ProcessRegistry}.
+	 *
+	 * @param command the executable followed by its arguments
+	 * @param directory the directory to run the process in, or null
+	 * @param timeline the timeline to record the process in. May be null.
+	 * @return the started process, or null if it couldn't be started
+	 */
+	protected static Process runCommand(List<String> command, File directory, RunTimeline timeline) {
+		try {
+			ProcessBuilder builder = new ProcessBuilder(command);
 			builder.directory(directory);
 
 			Process process = builder.start();
-			
+			ProcessRegistry.getInstance().register(process);
+			if (timeline != null) {
+				timeline.markProcess(process, getToolName(command.get(0)));
+			}
 			return process;
-			
-			
 		} catch (IOException ex) {
 			ex.printStackTrace();
 			return null;
 		}
 	}
+
+	/**
+	 * Names a process after its executable: "javac" for the compiler and "JVM" for java.
+	 */
+	private static String getToolName(String executable) {
+		String name = new File(executable).getName();
+		if (name.endsWith(".exe")) {
+			name = name.substring(0, name.length() - 4);
+		}
+		return name.equals(CommandBuilder.RUN) || name.equals("javaw") ? "JVM" : name;
+	}
 	
-	protected static Process runBackgroundCommand(String command, DebugErrorBuffer buffer) {
+	protected static Process runBackgroundCommand(List<String> command, DebugErrorBuffer buffer) {
 		return runBackgroundCommand(command, null, buffer);
 	}
 	
-	protected static Process runBackgroundCommand(String command, File directory, DebugErrorBuffer buffer) {
+	/**
+	 * Runs a javac command and collects the errors and warnings it reports. The error output is
+	 * parsed while javac runs, so javac can't block on a full pipe.
+	 *
+	 * @param command the command to run
+	 * @param directory the directory to run the command in, or null
+	 * @param buffer receives the errors and warnings. May be null.
+	 * @return the finished process, or null if it couldn't be started
+	 */
+	protected static Process runBackgroundCommand(List<String> command, File directory, DebugErrorBuffer buffer) {
 		Process process = runCommand(command, directory);
-		
-		try {
-			process.waitFor();
-			
-			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-			String line;
-			String place;
-			String problemType;
-			String problem;
-			int row;
-			int column;
-			
-			ArrayList<DebugError> errors = new ArrayList<>();
-			DebugError error;
-			
-			try {
-				while ((line = reader.readLine()) != null) {
-
-					int colon1Index = line.indexOf(':');
-					int colon2Index = line.indexOf(':', colon1Index + 1);
-					int colon3Index = line.indexOf(':', colon2Index + 1);
-
-					place = line.substring(0, colon1Index);
-					row = Integer.parseInt(line.substring(colon1Index + 1, colon2Index));
-					problemType = line.substring(colon2Index + 1, colon3Index);
-					problem = line.substring(colon3Index + 2);
-
-					line = reader.readLine();
-					line = reader.readLine();
-					column = line.indexOf('^');
-
-					error = new DebugError(place, problemType, problem, row, column);
-					errors.add(error);
-				}
-			} catch (NumberFormatException | IndexOutOfBoundsException ex) {
+		if (process == null) {
+			return null;
+		}
 
-			}
-			
+		JavacOutputParser parser = new JavacOutputParser(error -> {
 			if (buffer != null) {
-				for (DebugError de : errors) {
-					buffer.put(de);
-				}
+				buffer.put(error);
 			}
-			
+		});
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+			parser.parse(reader);
+			process.waitFor();
 		} catch (IOException | InterruptedException ex) {
 			ex.printStackTrace();
 		}
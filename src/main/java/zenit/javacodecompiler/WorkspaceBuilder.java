@@ -0,0 +1,174 @@
+package main.java.zenit.javacodecompiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Compiles every project of a workspace. Projects are found by their {@code .metadata} file and,
+ * since they don't depend on each other, compiled concurrently on a pool with one thread per
+ * available core.
+ * <p>
+ * The result of each project is passed on as soon as the project is done, and a summary compares
+ * the wall time of the whole build with the CPU time spent on the projects, which shows how well
+ * the build used the cores.
+ * </p>
+ */
+public class WorkspaceBuilder {
+	private static final String METADATA_FILE = ".metadata";
+
+	private final File workspace;
+	private final Consumer<String> out;
+	private final Consumer<String> err;
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	/**
+	 * @param workspace the workspace directory
+	 * @param out receives the progress and summary of the build, one line at a time
+	 * @param err receives the errors of projects that failed to compile
+	 */
+	public WorkspaceBuilder(File workspace, Consumer<String> out, Consumer<String> err) {
+		this.workspace = workspace;
+		this.out = out;
+		this.err = err;
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Builds all projects and waits until they are done.
+	 *
+	 * @return true if every project compiled without errors
+	 */
+	public boolean build() {
+		List<File> metadataFiles = new ArrayList<>();
+		findProjects(workspace, metadataFiles);
+		if (metadataFiles.isEmpty()) {
+			out.accept("No projects found in " + workspace);
+			return true;
+		}
+
+		int threads = Math.min(Runtime.getRuntime().availableProcessors(), metadataFiles.size());
+		out.accept("Building " + metadataFiles.size() + " projects, " + threads + " at a time");
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "Zenit workspace build");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		long start = System.nanoTime();
+		List<Future<ProjectResult>> futures = new ArrayList<>();
+		for (File metadataFile : metadataFiles) {
+			futures.add(pool.submit(() -> buildProject(metadataFile)));
+		}
+		pool.shutdown();
+
+		int failed = 0;
+		long cpuTime = 0;
+		for (Future<ProjectResult> future : futures) {
+			try {
+				ProjectResult result = future.get();
+				cpuTime += result.cpuTime;
+				if (!result.success) {
+					failed++;
+				}
+			} catch (InterruptedException | ExecutionException ex) {
+				System.err.println("WorkspaceBuilder.build: " + ex.getMessage());
+				failed++;
+			}
+		}
+		long wallTime = (System.nanoTime() - start) / 1_000_000;
+		cpuTime /= 1_000_000;
+
+		out.accept(String.format("Built %d projects, %d failed. Wall time %d ms, CPU time %d ms (%.1f cores busy)",
+				metadataFiles.size(), failed, wallTime, cpuTime, wallTime == 0 ? 0.0 : (double) cpuTime / wallTime));
+		return failed == 0;
+	}
+
+	/**
+	 * Compiles one project and reports its result.
+	 */
+	private ProjectResult buildProject(File metadataFile) {
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		boolean measureCpu = threadBean.isCurrentThreadCpuTimeSupported();
+		long cpuStart = measureCpu ? threadBean.getCurrentThreadCpuTime() : 0;
+		long start = System.nanoTime();
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		PrintStream log = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+		File project = metadataFile.getParentFile();
+		JavaSourceCodeCompiler compiler = new JavaSourceCodeCompiler(project, metadataFile, false, null, null);
+
+		boolean success;
+		try {
+			success = compiler.buildProject(log);
+		} catch (RuntimeException ex) {
+			log.println(ex.getMessage());
+			success = false;
+		}
+
+		long cpuTime = measureCpu ? threadBean.getCurrentThreadCpuTime() - cpuStart : 0;
+		long wallTime = (System.nanoTime() - start) / 1_000_000;
+
+		String summary = project.getName() + ": " + (success ? "compiled" : "failed") + " in " + wallTime + " ms";
+		synchronized (this) {
+			if (success) {
+				out.accept(summary);
+			} else {
+				err.accept(summary);
+			}
+			String output = buffer.toString(StandardCharsets.UTF_8).trim();
+			if (!output.isEmpty()) {
+				err.accept(output);
+			}
+		}
+		return new ProjectResult(success, cpuTime);
+	}
+
+	/**
+	 * Finds the metadata files of the projects in a directory. Directories inside a project are
+	 * not searched, and neither are hidden directories or output directories.
+	 */
+	private static void findProjects(File directory, List<File> metadataFiles) {
+		File metadata = new File(directory, METADATA_FILE);
+		if (metadata.isFile()) {
+			metadataFiles.add(metadata);
+			return;
+		}
+
+		File[] children = directory.listFiles(File::isDirectory);
+		if (children == null) {
+			return;
+		}
+		for (File child : children) {
+			if (!child.getName().startsWith(".") && !child.getName().equals("bin")) {
+				findProjects(child, metadataFiles);
+			}
+		}
+	}
+
+	/**
+	 * The outcome of compiling one project.
+	 */
+	private static class ProjectResult {
+		private final boolean success;
+		private final long cpuTime;
+
+		ProjectResult(boolean success, long cpuTime) {
+			this.success = success;
+			this.cpuTime = cpuTime;
+		}
+	}
+}
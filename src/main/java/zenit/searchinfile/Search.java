@@ -3,6 +3,7 @@ package main.java.zenit.searchinfile;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 import java.util.Scanner;
@@ -16,6 +17,7 @@ import javafx.scene.control.Label;
 import main.java.zenit.ui.MainController;
 import main.java.zenit.util.Tuple;
 import main.java.zenit.zencodearea.ZenCodeArea;
+import main.java.zenit.zencodearea.GutterMarkers.Marker;
 
 public class Search {
 
@@ -76,8 +78,10 @@ public class Search {
 			caseSensetive();   
 		}
 
+		BitSet hitLines = new BitSet();
 		if (numberOfTimes > 0) {
 			for (int i = 0; i < numberOfTimes; i++) {
+				hitLines.set(line.get(i));
 				int start = zenCodeArea.getAbsolutePosition(line.get(i), wordPos.get(i));
 				int end = start + searchWord.length();
 				
@@ -93,10 +97,12 @@ public class Search {
 			zenCodeArea.moveTo(absolutePos.get(0).fst());
 			zenCodeArea.requestFollowCaret();
 		}
+		zenCodeArea.getGutterMarkers().set(Marker.SEARCH, hitLines);
 		return numberOfTimes;
 	}
 
 	public void clearZen() {
+		zenCodeArea.getGutterMarkers().clear(Marker.SEARCH);
 		if (absolutePos != null) {
 			for (int i = 0; i < absolutePos.size(); i++) {
 				zenCodeArea.clearStyle(absolutePos.get(i).fst(), absolutePos.get(i).snd());
@@ -1,9 +1,7 @@
 package main.java.zenit.ui;
 
 import java.io.File;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.event.Event;
@@ -15,20 +13,27 @@ import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.ButtonBar.ButtonData;
 import javafx.scene.control.ButtonType;
 import main.java.zenit.filesystem.FileController;
+import main.java.zenit.filesystem.TextFile;
 import main.java.zenit.util.StringUtilities;
+import main.java.zenit.zencodearea.ChangeTracker;
 import main.java.zenit.zencodearea.ZenCodeArea;
 
 public class FileTab extends Tab {
-	private File initialFile, file;
+	private static final long SHOW_PROGRESS_SIZE = 1024 * 1024;
+	
+	private File file;
 	private String initialTitle;
 	private MainController mainController;
 	private ZenCodeArea zenCodeArea;
-	private boolean hasChanged;
+	private ChangeTracker changeTracker;
+	private TextFile savedFile = TextFile.defaultFormat();
+	private boolean hasChanged, loading, loadFailed;
 	
 	public FileTab(ZenCodeArea zenCodeArea, MainController mc) {
 		this.zenCodeArea = zenCodeArea;
 		this.mainController = mc;
 		initialTitle = "Untitled";
+		changeTracker = new ChangeTracker(zenCodeArea);
 		
 		zenCodeArea.setOnMouseClicked(new UpdateDetector());
 		zenCodeArea.setOnKeyPressed(new UpdateDetector());
@@ -48,9 +53,7 @@ public class FileTab extends Tab {
 		setText(initialTitle);
 		
 		zenCodeArea.textProperty().addListener((observable, oldText, newText) -> {
-			String initialFileContent = FileController.readFile(initialFile);
-			
-			hasChanged = !initialFileContent.equals(newText);
+			hasChanged = !loading && !savedFile.getText().equals(newText);
 			updateUI();
 		});
 
@@ -60,44 +63,17 @@ public class FileTab extends Tab {
 		Platform.runLater(zenCodeArea::requestFocus);
 	}
 
-	public void setStyle(int row, int column, String style) {
-		int columnLength = zenCodeArea.getParagraph(row - 1).getText().length();
-		int endColumn = (column >= columnLength) ? column : column + 1;
-
-		Platform.runLater(() -> zenCodeArea.setStyle(row - 1, column - 1, endColumn, Arrays.asList(style)));
-	}
-	
 	public void addTextPropertyListener(ChangeListener<? super String> listener) {
 		zenCodeArea.textProperty().addListener(listener);
 	}
 
+	/**
+	 * Expands the snippet whose trigger is typed right before the caret, if any.
+	 */
 	public void shortcutsTrigger() {
 		if (file == null) { return; }
 
-		String text = zenCodeArea.getText();
-		int caretPosition = zenCodeArea.getCaretPosition();
-		Map<String, String> shortcuts = initializeShortcuts();
-
-		shortcuts.forEach((shortcut, replacement) -> {
-			if (caretPosition >= shortcut.length() && text.endsWith(shortcut)) {
-				replaceShortcutText(caretPosition, shortcut, replacement);
-				return;
-			}
-		});
-	}
-
-	private void replaceShortcutText(int caretPosition, String shortcut, String replacement) {
-		zenCodeArea.replaceText(caretPosition - shortcut.length(), caretPosition, replacement);
-		zenCodeArea.moveTo(caretPosition + replacement.length() - shortcut.length());
-	}
-
-	private Map<String, String> initializeShortcuts() {
-		Map<String, String> shortcuts = new HashMap<>();
-		shortcuts.put("sysout", "System.out.println();");
-		shortcuts.put("syserr", "System.err.println();");
-		shortcuts.put("main", "public static void main(String[] args) {\n\n}");
-		shortcuts.put("pv", "public void ");
-		return shortcuts;
+		zenCodeArea.expandSnippetAtCaret();
 	}
 
 	public void commentsShortcutsTrigger() {
@@ -166,7 +142,9 @@ public class FileTab extends Tab {
 	}
 	
 	private void updateUI() {
-		if (hasChanged) {
+		if (loadFailed) {
+			setText(initialTitle + " (not loaded)");
+		} else if (hasChanged) {
 			setText(initialTitle + " *");
 		} else {
 			setText(initialTitle);
@@ -175,6 +153,8 @@ public class FileTab extends Tab {
 	
 	public void update(File file) {
 		setFile(file, false);
+		savedFile = savedFile.withText(getFileText());
+		changeTracker.setBaseline(savedFile.getText());
 		hasChanged = false;
 		updateUI();
 	}
@@ -183,14 +163,75 @@ public class FileTab extends Tab {
 	
 	public String getFileText() { return zenCodeArea.getText(); }
 	
+	/**
+	 * Retrieves the content and format of the file as it was last read or saved. The format is
+	 * used when saving so that the charset and line separators of the file are kept.
+	 * 
+	 * @return the last saved state of the file
+	 */
+	public TextFile getSavedFile() { return savedFile; }
+	
+	/**
+	 * Checks if the file is still being read, or couldn't be read. The tab is not editable and
+	 * must not be saved then, since its text is not the content of the file.
+	 * 
+	 * @return true if the file is being read or couldn't be read, false otherwise
+	 */
+	public boolean isLoading() { return loading || loadFailed; }
+	
 	public void setFile(File file, boolean shouldSetContent) {
-		this.initialFile = file;
 		this.file = file;
 		this.initialTitle = file == null ? "Untitled" : file.getName();
 
 		setText(initialTitle);
 		
-		if (shouldSetContent && file != null) { setFileText(FileController.readFile(file)); }
+		if (shouldSetContent && file != null) { loadFile(file); }
+	}
+	
+	/**
+	 * Reads the file on a background thread and sets it as the content of the tab once it has
+	 * been read. The code area is read-only while loading, and the progress is shown in the
+	 * status bar for large files. If the file can't be read, the tab stays read-only so that
+	 * saving it can't overwrite the file.
+	 * 
+	 * @param file the file to read
+	 */
+	private void loadFile(File file) {
+		loading = true;
+		zenCodeArea.setEditable(false);
+		
+		boolean showProgress = file.length() > SHOW_PROGRESS_SIZE;
+		AtomicInteger shownPercent = new AtomicInteger(-1);
+		
+		FileController.readFileAsync(file, progress -> {
+			int percent = (int) (progress * 100);
+			if (showProgress && shownPercent.getAndSet(percent) != percent) {
+				Platform.runLater(() -> mainController.updateStatusLeft("Opening " + file.getName() + " " + percent + "%"));
+			}
+		}).whenComplete((textFile, error) -> Platform.runLater(() -> {
+			if (error == null) {
+				savedFile = textFile;
+				setFileText(textFile.getText());
+				zenCodeArea.getUndoManager().forgetHistory();
+				zenCodeArea.moveTo(0);
+				changeTracker.setBaseline(textFile.getText());
+			}
+			
+			loading = false;
+			loadFailed = error != null;
+			zenCodeArea.setEditable(!loadFailed);
+			hasChanged = false;
+			updateUI();
+			
+			if (showProgress) {
+				mainController.updateStatusLeft(error == null ? "" : "Couldn't open " + file.getName());
+			}
+			if (loadFailed) {
+				System.err.println("FileTab.loadFile: " + error.getMessage());
+				DialogBoxes.errorDialog("Couldn't open file", "Couldn't open " + file.getName(),
+						error.getMessage() + "\nThe tab is read-only so that the file isn't overwritten.");
+			}
+		}));
 	}
 	
 	public void setFileText(String text) { zenCodeArea.replaceText(text); }
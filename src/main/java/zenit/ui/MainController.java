@@ -2,10 +2,16 @@ package main.java.zenit.ui;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.LinkedList;
-import java.util.ArrayList;
 import javafx.application.Platform;
 import javafx.event.Event;
 import javafx.fxml.FXML;
@@ -15,7 +21,6 @@ import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.Label;
-import javafx.scene.control.IndexRange;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.SplitPane;
 import javafx.scene.control.Tab;
@@ -27,17 +32,25 @@ import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import main.java.zenit.Zenit;
+import main.java.zenit.ZenitLog;
 import main.java.zenit.console.ConsoleArea;
 import main.java.zenit.console.ConsoleController;
+import main.java.zenit.console.ConsoleLog;
+import main.java.zenit.console.ConsoleLogView;
 import main.java.zenit.filesystem.FileController; // Aggregation
 import main.java.zenit.filesystem.ProjectFile;
 import main.java.zenit.filesystem.RunnableClass;
+import main.java.zenit.filesystem.TextFile;
 import main.java.zenit.filesystem.WorkspaceHandler;
 import main.java.zenit.filesystem.metadata.Metadata;
 import main.java.zenit.javacodecompiler.DebugError;
-import main.java.zenit.javacodecompiler.DebugErrorBuffer;
+import main.java.zenit.javacodecompiler.CompileDaemon;
+import main.java.zenit.javacodecompiler.DiagnosticsStore;
 import main.java.zenit.javacodecompiler.JavaSourceCodeCompiler;
-import main.java.zenit.javacodecompiler.ProcessBuffer;
+import main.java.zenit.javacodecompiler.ProcessIOService;
+import main.java.zenit.javacodecompiler.ProcessRegistry;
+import main.java.zenit.javacodecompiler.RunTimeline;
+import main.java.zenit.javacodecompiler.WorkspaceBuilder;
 import main.java.zenit.settingspanel.SettingsPanelController;
 import main.java.zenit.settingspanel.ThemeCustomizable; // Implements
 import main.java.zenit.searchinfile.Search;
@@ -45,25 +58,30 @@ import main.java.zenit.ui.tree.*;
 import main.java.zenit.util.Tuple;
 import main.java.zenit.ui.projectinfo.ProjectMetadataController;
 import main.java.zenit.zencodearea.ZenCodeArea;
+import main.java.zenit.zencodearea.GutterMarkers.Marker;
 import org.fxmisc.richtext.CodeArea;
 
 // TODO Divide this into two separate controllers.
 public class MainController extends VBox implements ThemeCustomizable {
+	private static final Duration TYPING_PAUSE = Duration.ofMillis(400);
+
 	private Stage stage;
 	private FileController fileController;
 	private ProjectMetadataController projectMetadataController;
 	private String zenCodeAreasFontFamily, activeStylesheet;
 	private LinkedList<ZenCodeArea> activeZenCodeAreas;
 	private File customThemeCSS;
-	private Process process;
-	private Tuple<File, String> deletedFile = new Tuple<>();
+	private ConsoleArea runConsole;
+	private RunTimelineController runTimelineController;
+	private Stage zenitLogStage;
+	private Tuple<File, TextFile> deletedFile = new Tuple<>();
 	private boolean isDarkMode = true;
 	private int zenCodeAreasTextSize;
 	@FXML private AnchorPane consolePane;
 	@FXML private SplitPane splitPane;
 	@FXML private MenuItem newTab, newFile, newFolder, newProject, openFile, saveFile,
 			importProject, changeWorkspace, JREVersions, undo, redo, delete;
-	@FXML private CheckMenuItem checkMenuItemDarkMode;
+	@FXML private CheckMenuItem checkMenuItemDarkMode, checkWhileTyping, classDataSharing, runInProcess;
 	@FXML private TabPane tabPane;
 	@FXML private TreeView<String> treeView;
 	@FXML private Button btnRun, btnStop;
@@ -155,6 +173,9 @@ public class MainController extends VBox implements ThemeCustomizable {
 		btnStop.setOnAction(event -> terminate());
 		initTree();
 		consoleController.setMainController(this);
+
+		// Starts the compile daemon, which loads javac before the first file is saved
+		CompileDaemon.getInstance();
 	}
 
 	public void openSettingsPanel() {
@@ -241,12 +262,12 @@ public class MainController extends VBox implements ThemeCustomizable {
 
 	private boolean saveFile(boolean backgroundCompile) {
 		FileTab tab = getSelectedTab();
-		if (tab == null) { return false; }
+		if (tab == null || tab.isLoading()) { return false; }
 		
 		File file = tab.getFile();
 		if (file == null) { file = chooseFile(); }
 
-		boolean didWrite = fileController.writeContentToFile(file, tab.getFileText());
+		boolean didWrite = fileController.writeContentToFile(file, tab.getFileText(), tab.getSavedFile());
 
 		if (didWrite) {
 			tab.update(file);
@@ -257,10 +278,13 @@ public class MainController extends VBox implements ThemeCustomizable {
 		return didWrite;
 	}
 	
-	private boolean saveFile(boolean backgroundCompile, File file, String text) {
+	/**
+	 * Writes a file in the charset and with the line separators it had when it was read.
+	 */
+	private boolean saveFile(boolean backgroundCompile, File file, TextFile textFile) {
 		if (file == null) { return saveFile(backgroundCompile); }
 
-		boolean didWrite = fileController.writeContentToFile(file, text);
+		boolean didWrite = fileController.writeContentToFile(file, textFile.getText(), textFile);
 		
 		if (didWrite) {
 			FileTreeItem<String> root = FileTree.getTreeItemFromFile((FileTreeItem<String>) treeView.getRoot(), file.getParentFile());
@@ -273,29 +297,92 @@ public class MainController extends VBox implements ThemeCustomizable {
 		} return didWrite;
 	}
 	
+	/**
+	 * Asks the compile daemon to check a saved file for errors. When the result arrives the errors
+	 * are underlined and the time from the save until then is shown in the status bar.
+	 */
 	private void backgroundCompiling(File file) {
+		if (file == null) { return; }
 		File metadataFile = getMetadataFile(file);
+		long savedAt = System.nanoTime();
 
-		try {
-			if (file != null) {
-				DebugErrorBuffer buffer = new DebugErrorBuffer();
-				JavaSourceCodeCompiler compiler = new JavaSourceCodeCompiler(file, metadataFile, true, buffer, this);
-				compiler.startCompile();
+		CompileDaemon.getInstance().submit(file, metadataFile, result -> Platform.runLater(() -> {
+			errorHandler(result.getChangedFiles());
+			long latency = (System.nanoTime() - savedAt) / 1_000_000;
+			updateStatusRight("Checked in " + latency + " ms (compile " + result.getCompileTime() + " ms)");
+		}));
+	}
+
+	/**
+	 * Checks the unsaved tabs of the edited tab's project for errors, if checking while typing is
+	 * turned on. The content of the editors is compiled as it is, without saving it.
+	 */
+	private void checkWhileTyping(FileTab editedTab) {
+		File file = editedTab.getFile();
+		if (checkWhileTyping == null || !checkWhileTyping.isSelected() || file == null
+				|| editedTab.isLoading() || !file.getName().endsWith(".java")) { return; }
+
+		File metadataFile = getMetadataFile(file);
+		Map<File, String> buffers = new HashMap<>();
+		for (Tab tab : tabPane.getTabs()) {
+			FileTab fileTab = (FileTab) tab;
+			File tabFile = fileTab.getFile();
+
+			if (tabFile != null && !fileTab.isLoading() && tabFile.getName().endsWith(".java")
+					&& (fileTab == editedTab || fileTab.hasChanged()) && isInProject(tabFile, file, metadataFile)) {
+				buffers.put(tabFile, fileTab.getFileText());
 			}
-		} catch (Exception e) {
-			System.out.println("Error in MainController backgroundCompiling() = " + e);
 		}
+
+		CompileDaemon.getInstance().check(buffers, metadataFile,
+				result -> Platform.runLater(() -> errorHandler(result.getChangedFiles())));
+	}
+
+	/**
+	 * Checks if a file belongs to the same project as another file, or is that file if it isn't
+	 * part of a project.
+	 */
+	private static boolean isInProject(File candidate, File file, File metadataFile) {
+		if (metadataFile == null) { return candidate.equals(file); }
+		return candidate.getAbsoluteFile().toPath().startsWith(metadataFile.getAbsoluteFile().getParentFile().toPath());
 	}
 
-	public void errorHandler(DebugErrorBuffer buffer) {
-		DebugError error;
-		while (!buffer.isEmpty()) {
-			error = buffer.get();
+	/**
+	 * Shows the errors of the {@link DiagnosticsStore} in every open tab whose diagnostics were
+	 * replaced by a compile. Must be called on the JavaFX thread.
+	 *
+	 * @param changedFiles the files whose diagnostics were replaced
+	 */
+	public void errorHandler(Set<File> changedFiles) {
+		for (Tab tab : tabPane.getTabs()) {
+			FileTab fileTab = (FileTab) tab;
+			File file = fileTab.getFile();
 
-			getSelectedTab().setStyle(error.getRow(), error.getColumn(), "underline");
+			if (file != null && changedFiles.contains(DiagnosticsStore.normalize(file))) {
+				errorHandler(fileTab, DiagnosticsStore.getInstance().getDiagnostics(file));
+			}
 		}
 	}
 
+	/**
+	 * Underlines the errors of a tab and marks their lines in the gutter, replacing the
+	 * underlines of the previous compile. The underlines are kept by the highlighting of the code
+	 * area. The text may have been edited since the compile, so errors on lines that no longer
+	 * exist are skipped.
+	 */
+	private void errorHandler(FileTab tab, List<DebugError> errors) {
+		ZenCodeArea zenCodeArea = tab.getZenCodeArea();
+		zenCodeArea.setErrors(errors);
+
+		int lineCount = zenCodeArea.getParagraphs().size();
+		BitSet errorLines = new BitSet();
+		for (DebugError error : errors) {
+			if (error.getRow() <= 0 || error.getRow() > lineCount) { continue; }
+			errorLines.set(error.getRow() - 1);
+		}
+		zenCodeArea.getGutterMarkers().set(Marker.ERROR, errorLines);
+	}
+
 	private File chooseFile() {
 		FileChooser fileChooser = new FileChooser();
 		File workspace = fileController.getWorkspace();
@@ -325,7 +412,11 @@ public class MainController extends VBox implements ThemeCustomizable {
 	}
 	
 	@FXML
-	public void quit() { System.exit(0); }
+	public void quit() {
+		ProcessRegistry.getInstance().terminateAll();
+		ProcessIOService.getInstance().shutdown();
+		System.exit(0);
+	}
 	
 	@FXML
 	public void openFile(Event event) {
@@ -409,7 +500,7 @@ public class MainController extends VBox implements ThemeCustomizable {
 		System.out.println(historyIndex);
 		 */
 		
-		deletedFile.set(file, FileController.readFile(file));
+		deletedFile.set(file, FileController.readTextFile(file));
 		fileController.deleteFile(file);
 		var tabs = tabPane.getTabs();
 		
@@ -431,10 +522,9 @@ public class MainController extends VBox implements ThemeCustomizable {
 			return;
 		}
 		
-		if (deletedFile.fst() != null && !deletedFile.fst().exists()) {
+		if (deletedFile.fst() != null && deletedFile.snd() != null && !deletedFile.fst().exists()) {
 			try {
 				deletedFile.fst().createNewFile();
-				fileController.writeContentToFile(deletedFile.fst(), deletedFile.snd());
 				saveFile(false, deletedFile.fst(), deletedFile.snd());
 			} catch (IOException e) {
 				System.out.println("Error MainController undoDeleteFile() = " + e);
@@ -568,6 +658,7 @@ public class MainController extends VBox implements ThemeCustomizable {
 	
 	// TODO Break it down
 	public void compileAndRun(File file) {
+		RunTimeline timeline = new RunTimeline(file.getName());
 		File metadataFile = getMetadataFile(file);
 		ConsoleArea consoleArea;
 		
@@ -578,38 +669,64 @@ public class MainController extends VBox implements ThemeCustomizable {
 			consoleArea = new ConsoleArea(file.getName(), null, "-fx-background-color:#989898");
 		}
 		consoleArea.setFileName(file.getName());
+		consoleArea.setLog(ConsoleLog.create(file.getName()));
 		consoleController.createNewConsoleArea(consoleArea);
 		openConsoleComponent();
+		timeline.mark("console opened");
+		
+		runConsole = consoleArea;
+		consoleController.setConsoleState(consoleArea, "Compiling");
 		
 		try {
-			ProcessBuffer buffer = new ProcessBuffer();
 			JavaSourceCodeCompiler compiler = new JavaSourceCodeCompiler(file, metadataFile,
-					false, buffer, this);
-			compiler.startCompileAndRun();
-			process = buffer.get();
+					false, null, this);
+			compiler.setClassDataSharing(classDataSharing != null && classDataSharing.isSelected());
+			compiler.setRunInProcess(runInProcess != null && runInProcess.isSelected());
+			compiler.setConsole(consoleArea);
+			compiler.setTimeline(timeline);
 			
-			if (process != null && metadataFile != null) {
-				ProjectFile projectFile = new ProjectFile(metadataFile.getParent());
-				String src = projectFile.getSrc().getPath();
-				String filePath = file.getPath().replaceAll(Matcher.quoteReplacement(src + 
-						File.separator), "");
-				RunnableClass rc = new RunnableClass(filePath);
-				Metadata metadata = new Metadata(metadataFile);
-				
-				if (metadata.addRunnableClass(rc)) { metadata.encode(); }
-				consoleArea.setProcess(process);
-				
-				if(consoleArea.getProcess().isAlive()) {
-					consoleArea.setID(consoleArea.getFileName() + " <Running>");
-				} else {
-					consoleArea.setID(consoleArea.getFileName()+ " <Terminated>");
-				}
-			}
+			CompletableFuture<Process> run = compiler.startCompileAndRun();
+			consoleArea.setPendingRun(run);
+			run.whenComplete((process, ex) -> Platform.runLater(() -> {
+				timeline.mark("process handed to UI");
+				runStarted(file, metadataFile, consoleArea, process, ex);
+			}));
 		} catch (Exception e) {
 			System.out.println("Error in MainController compileAndRun() = " + e);
 		}
 	}
 	
+	/**
+	 * Shows the outcome of the compile of a run in its console, once the process has started or
+	 * the run has ended without one.
+	 *
+	 * @param process the started process, or null
+	 * @param ex the reason the run ended without a process, or null
+	 */
+	private void runStarted(File file, File metadataFile, ConsoleArea consoleArea, Process process, Throwable ex) {
+		consoleArea.setPendingRun(null);
+		if (process == null) {
+			consoleController.setConsoleState(consoleArea,
+					ex instanceof CancellationException ? "Cancelled" : "Compile failed");
+			return;
+		}
+		
+		if (metadataFile != null) {
+			ProjectFile projectFile = new ProjectFile(metadataFile.getParent());
+			String src = projectFile.getSrc().getPath();
+			String filePath = file.getPath().replaceAll(Matcher.quoteReplacement(src + 
+					File.separator), "");
+			RunnableClass rc = new RunnableClass(filePath);
+			Metadata metadata = new Metadata(metadataFile);
+			
+			if (metadata.addRunnableClass(rc)) { metadata.encode(); }
+		}
+		consoleArea.setProcess(process);
+		consoleController.setConsoleState(consoleArea, "Running");
+		ProcessRegistry.getInstance().register(process).thenRun(() -> Platform.runLater(
+				() -> consoleController.setConsoleState(consoleArea, "Terminated")));
+	}
+	
 	@FXML
 	public void compileAndRun() {
 		if (getSelectedTab() != null) {
@@ -619,6 +736,38 @@ public class MainController extends VBox implements ThemeCustomizable {
 		}
 	}
 
+	/**
+	 * Compiles the saved sources of every project in the workspace in the background. The result
+	 * of each project and a summary of the build are printed to a new console.
+	 */
+	@FXML
+	public void buildWorkspace() {
+		File workspace = fileController.getWorkspace();
+		if (workspace == null) {
+			return;
+		}
+
+		ConsoleArea consoleArea;
+		if (isDarkMode) {
+			consoleArea = new ConsoleArea("Workspace build", null, "-fx-background-color:#444");
+		} else {
+			consoleArea = new ConsoleArea("Workspace build", null, "-fx-background-color:#989898");
+		}
+		consoleArea.setFileName("Workspace build");
+		consoleController.createNewConsoleArea(consoleArea);
+		openConsoleComponent();
+		updateStatusRight("Building workspace...");
+
+		WorkspaceBuilder builder = new WorkspaceBuilder(workspace, line -> consoleArea.outPrint(line + "\n"),
+				line -> consoleArea.printError(line + "\n"));
+		Thread thread = new Thread(() -> {
+			boolean success = builder.build();
+			Platform.runLater(() -> updateStatusRight(success ? "Workspace built" : "Workspace build failed"));
+		}, "Zenit workspace build");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
 	public void updateStatusLeft(String text) { statusBarLeftLabel.setText(text); }
 
 	public void updateStatusRight(String text) { statusBarRightLabel.setText(text); }
@@ -646,6 +795,8 @@ public class MainController extends VBox implements ThemeCustomizable {
 		System.out.println(tab.getZenCodeArea());
 		new InsertMenu(this, tab.getZenCodeArea()); //This line adds the menu to the codearea DO NOT REMOVE FOR THE LOVE OF GOD!
 		tab.setOnCloseRequest(event -> closeTab(event));
+		tab.getZenCodeArea().multiPlainChanges().successionEnds(TYPING_PAUSE)
+				.subscribe(ignore -> checkWhileTyping(tab));
 		tabPane.getTabs().add(tab);
 		var selectionModel = tabPane.getSelectionModel();
 		selectionModel.select(tab);
@@ -762,179 +913,14 @@ public class MainController extends VBox implements ThemeCustomizable {
 	@Override
 	public String getActiveStylesheet() { return activeStylesheet; }
 	
-	// TODO WHAT IS THIS MONSTROSITY OF A METHOD????? Simplify and minimize the use of if statements as much as possible.
+	/**
+	 * Comments or uncomments the selected lines in the selected tab.
+	 */
 	public void commentAndUncomment() {
-		ZenCodeArea zenCodeArea = getSelectedTab().getZenCodeArea();
-		
-		int caretPos = zenCodeArea.getCaretPosition();
-		int caretColumn = zenCodeArea.getCaretColumn();
-		int length = zenCodeArea.getLength();
-		int whereToReplaceFirstLine = caretPos - caretColumn;
-		int rowNumber = zenCodeArea.getCurrentParagraph();
-		int paragraphLength = zenCodeArea.getParagraphLength(rowNumber);
-		
-		List<Integer> whereToReplaceList = new ArrayList<>();
-		IndexRange zen = zenCodeArea.getSelection();
-		int endOfSelection = zen.getEnd();
-		int startOfSelection = zen.getStart();
-		boolean topDown = true;
-		int n = 1;
-		int whereToReplace = whereToReplaceFirstLine;
-		
-		whereToReplaceList.add(whereToReplaceFirstLine);
-		
-		//If the selection starts at least one row above the end of the selection
-		// TODO Too many conditions for one if. Max 2.Break it down into more ifs or switches.
-		if (caretPos == endOfSelection && whereToReplaceFirstLine > startOfSelection) {
-			topDown = true;
-			do {
-				whereToReplace = whereToReplace - 1 - zenCodeArea.getParagraphLength(rowNumber - n);
-				n++;
-				whereToReplaceList.add(whereToReplace);
-			} while (whereToReplace > startOfSelection);
-		}
-		
-		//If the selection starts at least one row below the end of the selection
-		// TODO Too many conditions for one if. Max 2. Break it down into more ifs or switches.
-		if (caretPos == startOfSelection && whereToReplace + paragraphLength < endOfSelection) {
-			topDown = false;
-			do {
-				whereToReplace = whereToReplace + 1 + zenCodeArea.getParagraphLength(rowNumber + n - 1);
-				n++;
-				whereToReplaceList.add(whereToReplace);
-				
-			} while (whereToReplace + zenCodeArea.getParagraphLength(rowNumber + n - 1) < endOfSelection);
-		}
-
-		boolean[] addComment = new boolean[whereToReplaceList.size()];
-		
-		//Comment or uncomment from the top and down then moves the caret to the "new" right position
-		// TODO Reduce the number of ifs in this action. Separate concerns.
-		if (topDown == true) {
-			int stepsToMove = 0;
-			
-			for (int i = 0; i < n; i++) {
-				whereToReplace = whereToReplaceList.get(i);
-				
-				if (caretPos > length - 3) { zenCodeArea.insertText(caretPos, "	  "); }
-				
-				if (zenCodeArea.getText(whereToReplace, whereToReplace + 3).equals("// ")) {
-					
-					if (zenCodeArea.getText(whereToReplace, whereToReplace + 4).equals("// *")) {
-						zenCodeArea.deleteText(whereToReplace, whereToReplace + 2);
-						stepsToMove = stepsToMove - 2;
-						addComment[i] = false;
-					} else {
-						zenCodeArea.replaceText(whereToReplace, whereToReplace + 2, "  ");
-						addComment[i] = false;
-					}
-				} else if (zenCodeArea.getText(whereToReplace, whereToReplace + 3).equals("// ") == false) {
-					
-					if (zenCodeArea.getText(whereToReplace, whereToReplace + 2).equals("//")) {
-						zenCodeArea.deleteText(whereToReplace, whereToReplace + 2);
-						addComment[i] = false;
-						
-						if (whereToReplace == caretPos) { // TODO empty if-body?
-						
-						} else if (whereToReplace + 1 == caretPos) {
-							stepsToMove--;
-						} else {
-							stepsToMove = stepsToMove - 2;
-						}
-					} else if(zenCodeArea.getText(whereToReplace, whereToReplace + 4).equals("    ")) {
-						zenCodeArea.replaceText(whereToReplace, whereToReplace + 2, "//");
-						addComment[i] = false;
-					} else {
-						zenCodeArea.insertText(whereToReplace, "//");
-						stepsToMove = stepsToMove + 2;
-						addComment[i] = true;
-					}		
-				}	
-			}
-			
-			if(whereToReplaceList.size() < 2) {
-				zenCodeArea.moveTo(caretPos + stepsToMove);
-				
-			}else if (addComment[0] && addComment[n - 1]) {
-				zenCodeArea.selectRange(startOfSelection + 2, endOfSelection + stepsToMove);
+		FileTab selectedTab = getSelectedTab();
 
-			}else if (addComment[0] && addComment[n - 1] == false) {
-				zenCodeArea.selectRange(startOfSelection + 2, endOfSelection + stepsToMove);
-				
-			}else if (addComment[0] == false && addComment[n - 1]) {
-				zenCodeArea.selectRange(startOfSelection - 2, endOfSelection + stepsToMove + 2);
-				
-			}else {
-				zenCodeArea.selectRange(startOfSelection - 2, endOfSelection + stepsToMove);
-			}
-		}	
-		//Comment or uncomment from below and up
-		if (topDown == false) {
-			
-			for (int i = whereToReplaceList.size() - 1; i >= 0; i--) {
-				whereToReplace = whereToReplaceList.get(i);
-				
-				if (caretPos > length - 3) {
-					zenCodeArea.insertText(caretPos, "	  ");
-					zenCodeArea.moveTo(caretPos);
-				}
-				
-				if (zenCodeArea.getText(whereToReplace, whereToReplace + 3).equals("// ")) {
-
-					if (zenCodeArea.getText(whereToReplace, whereToReplace + 4).equals("// *")) {
-						zenCodeArea.deleteText(whereToReplace, whereToReplace + 2);
-						addComment[i] = false;
-						
-					} else {
-						zenCodeArea.replaceText(whereToReplace, whereToReplace + 2, "  ");
-						zenCodeArea.moveTo(caretPos);
-						addComment[i] = false;
-					}
-					
-				} else if (zenCodeArea.getText(whereToReplace, whereToReplace + 3).equals("// ") == false) {
-					
-					if (zenCodeArea.getText(whereToReplace, whereToReplace + 2).equals("//")) {
-						zenCodeArea.deleteText(whereToReplace, whereToReplace + 2);
-						addComment[i] = false;
-						
-						if (whereToReplace == caretPos) {
-							zenCodeArea.moveTo(caretPos);
-							
-						} else if (whereToReplace + 1 == caretPos) {
-							zenCodeArea.moveTo(caretPos - 1);
-							
-						} else {
-							zenCodeArea.moveTo(caretPos - 2);
-						}
-							
-					} else {
-						zenCodeArea.insertText(whereToReplace, "//");
-						zenCodeArea.moveTo(caretPos + 2);
-						addComment[i] = true;
-					}		
-				}	
-
-			if (addComment[0] && addComment[whereToReplaceList.size() - 1]) {
-				zenCodeArea.selectRange(rowNumber + whereToReplaceList.size() - 1,
-				endOfSelection - whereToReplaceList.get(whereToReplaceList.size() - 1) + 2,
-				rowNumber, caretColumn + 2);
-				
-			} else if(addComment[0] && addComment[whereToReplaceList.size() - 1] == false) {
-				zenCodeArea.selectRange(rowNumber + whereToReplaceList.size() - 1,
-				endOfSelection - whereToReplaceList.get(whereToReplaceList.size() - 1) - 2,
-				rowNumber, caretColumn + 2);
-				
-			} else if(addComment[0] == false && addComment[whereToReplaceList.size() - 1]) {
-				zenCodeArea.selectRange(rowNumber + whereToReplaceList.size() - 1,
-				endOfSelection - whereToReplaceList.get(whereToReplaceList.size() - 1) + 2,
-				rowNumber, caretColumn - 2);
-				
-			} else {
-				zenCodeArea.selectRange(rowNumber + whereToReplaceList.size() - 1,
-				endOfSelection - whereToReplaceList.get(whereToReplaceList.size() - 1) - 2,
-				rowNumber, caretColumn - 2);
-				}
-			}	
+		if (selectedTab != null) {
+			selectedTab.getZenCodeArea().toggleLineComment();
 		}
 	}
 	
@@ -962,6 +948,46 @@ public class MainController extends VBox implements ThemeCustomizable {
 		projectMetadataController.start();
 	}
 	
+	/**
+	 * Opens the window with the timelines of the recent compiles and runs, or brings it to the
+	 * front if it is already open.
+	 */
+	@FXML
+	public void openRunTimelines() {
+		if (runTimelineController != null && runTimelineController.isShowing()) {
+			runTimelineController.toFront();
+		} else {
+			runTimelineController = new RunTimelineController(isDarkMode);
+			runTimelineController.start();
+		}
+	}
+
+	/**
+	 * Opens a window with Zenit's own output, see {@link ZenitLog}, or brings it to the front if
+	 * it is already open.
+	 */
+	@FXML
+	public void openZenitLog() {
+		if (zenitLogStage != null) {
+			zenitLogStage.toFront();
+			return;
+		}
+		ConsoleLog log = ZenitLog.getInstance().getLog();
+		if (log == null) {
+			return;
+		}
+
+		ConsoleLogView view = new ConsoleLogView(log, "-fx-background-color:#444");
+		zenitLogStage = new Stage();
+		zenitLogStage.setTitle("Zenit log");
+		zenitLogStage.setScene(new Scene(view, 800, 400));
+		zenitLogStage.setOnHidden(event -> {
+			view.dispose();
+			zenitLogStage = null;
+		});
+		zenitLogStage.show();
+	}
+
 	public void openJREVersions() {
 		JREVersionsController jvc = new JREVersionsController(true);
 		jvc.start();
@@ -969,7 +995,7 @@ public class MainController extends VBox implements ThemeCustomizable {
 	
 	@FXML
 	private void terminate() {
-		if (process != null ) { process.destroy(); }
+		if (runConsole != null) { runConsole.terminate(); }
 	}
 	
 	public boolean isDarkmode() { return isDarkMode; }
@@ -0,0 +1,110 @@
+package main.java.zenit.ui;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javafx.application.Platform;
+import javafx.fxml.FXML;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Scene;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.AnchorPane;
+import javafx.stage.Stage;
+import main.java.zenit.javacodecompiler.RunTimeline;
+
+/**
+ * A small window listing the timelines of the recent compiles and runs, newest first, with the
+ * time of each phase. It is updated while runs are in progress.
+ */
+public class RunTimelineController extends AnchorPane {
+	private Stage stage;
+	private boolean darkMode;
+	private final AtomicBoolean refreshPending = new AtomicBoolean();
+	private final Runnable listener = this::requestRefresh;
+	@FXML private ListView<RunTimeline> timelines;
+
+	public RunTimelineController(boolean darkMode) {
+		this.darkMode = darkMode;
+	}
+
+	public void start() {
+		try {
+			//setup scene
+			FXMLLoader loader = new FXMLLoader();
+			loader.setLocation(getClass().getResource("/zenit/ui/RunTimeline.fxml"));
+			loader.setController(this);
+			AnchorPane root = (AnchorPane) loader.load();
+			Scene scene = new Scene(root);
+
+			//set up stage
+			stage = new Stage();
+			stage.setTitle("Run timelines");
+			stage.setScene(scene);
+			stage.setOnHidden(event -> RunTimeline.removeListener(listener));
+
+			initialize();
+
+		} catch (IOException e) {
+			System.out.println("Error RunTimelineController start() = " + e);
+		}
+	}
+
+	private void initialize() {
+		ifDarkModeChanged(darkMode);
+
+		SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss");
+		timelines.setCellFactory(list -> new ListCell<>() {
+			@Override
+			protected void updateItem(RunTimeline timeline, boolean empty) {
+				super.updateItem(timeline, empty);
+				setStyle("-fx-font-family: monospace;");
+				setText(empty || timeline == null ? null
+						: format.format(new Date(timeline.getStartTime())) + "  " + timeline);
+			}
+		});
+
+		RunTimeline.addListener(listener);
+		refresh();
+		stage.show();
+	}
+
+	/**
+	 * Schedules a refresh on the JavaFX thread. Phases recorded in quick succession are shown
+	 * with a single refresh.
+	 */
+	private void requestRefresh() {
+		if (refreshPending.compareAndSet(false, true)) {
+			Platform.runLater(this::refresh);
+		}
+	}
+
+	private void refresh() {
+		refreshPending.set(false);
+		timelines.getItems().setAll(RunTimeline.getRecent());
+	}
+
+	/**
+	 * Brings the showing window to the front.
+	 */
+	public void toFront() {
+		stage.toFront();
+	}
+
+	/**
+	 * @return true if the window is showing
+	 */
+	public boolean isShowing() {
+		return stage != null && stage.isShowing();
+	}
+
+	public void ifDarkModeChanged(boolean isDarkMode) {
+		var stylesheets = stage.getScene().getStylesheets();
+		var darkMode = getClass().getResource("/zenit/ui/projectinfo/mainStyle.css").toExternalForm();
+		var lightMode = getClass().getResource("/zenit/ui/projectinfo/mainStyle-lm.css").toExternalForm();
+
+		stylesheets.removeIf(s -> s.equals(darkMode) || s.equals(lightMode));
+		stylesheets.add(isDarkMode ? darkMode : lightMode);
+	}
+}
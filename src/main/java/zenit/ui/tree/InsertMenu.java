@@ -1,6 +1,10 @@
 package main.java.zenit.ui.tree;
 
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuItem;
@@ -14,6 +18,40 @@ import main.java.zenit.zencodearea.ZenCodeArea;
  * Good luck and Godspeed
  */
 public class InsertMenu extends ContextMenu{
+    public static final String FOR_LOOP = "for (int i = 0; i < 'x'; i++){...}//Replace 0, x and ++ to modify your loop.";
+    public static final String WHILE_LOOP = "while(condition){...} //Replace condition with your condition";
+    public static final String SWITCH_CASE = "switch(condition){\n\t\tcase x: break;\n\t\tcase y: break;\n\t\tdefaul: \n\t} //Replace the condition and add or remove cases as needed";
+    public static final String DO_WHILE_LOOP = "do{...}\n\twhile (condition); //Replace condition with your own";
+    public static final String FOREACH_LOOP = " for (var varname : arrayname){...} //replace varname and arrayname with your variable names (you should also replace var with the proper variable)";
+    public static final String IF_ELSE = "if (condition){...}//Replace condition with your own\nelse{...}";
+    public static final String ELSE_IF = "if (condition){...}//Replace condition\nelse if(condition){...}//Replace condition\nelse{...}";
+    public static final String STRING_METHOD = "public String methodname(){//Replace methodName\n\tString str = \"...\"//replace with your string\n\t...//replace with logic\n\treturn str;\n\t}";
+    public static final String INT_METHOD = "public int methodname(){//Replace methodName\n\tint i = ?//replace with your int\n\t...//replace with logic\n\treturn i;\n\t}";
+    public static final String VOID_METHOD = "public void methodname(){...}//Replace methodname and logic";
+    public static final String MAIN_METHOD = "public static void main(String[] args){...}";
+
+    /**
+     * The templates of the menu keyed by a short trigger word, in menu order. Used by the
+     * snippet engine so that every template can also be inserted by typing its trigger.
+     */
+    public static final Map<String, String> TEMPLATES;
+
+    static {
+        Map<String, String> templates = new LinkedHashMap<>();
+        templates.put("fori", FOR_LOOP);
+        templates.put("while", WHILE_LOOP);
+        templates.put("switch", SWITCH_CASE);
+        templates.put("dowhile", DO_WHILE_LOOP);
+        templates.put("foreach", FOREACH_LOOP);
+        templates.put("ifelse", IF_ELSE);
+        templates.put("elseif", ELSE_IF);
+        templates.put("strm", STRING_METHOD);
+        templates.put("intm", INT_METHOD);
+        templates.put("voidm", VOID_METHOD);
+        templates.put("psvm", MAIN_METHOD);
+        TEMPLATES = Collections.unmodifiableMap(templates);
+    }
+
     MainController mainController;
     private ZenCodeArea codeArea;
     private ContextMenu insertMenu = new ContextMenu();
@@ -74,59 +112,48 @@ public class InsertMenu extends ContextMenu{
      */
 
     public void setForLoop(){
-        String loop = "for (int i = 0; i < 'x'; i++){...}//Replace 0, x and ++ to modify your loop.";
-        forLoop.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(),loop));
+        forLoop.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(),FOR_LOOP));
     }
 
     public void setWhileLoop(){
-        String wloop = "while(condition){...} //Replace condition with your condition";
-        whileLoop.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(), wloop));
+        whileLoop.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(), WHILE_LOOP));
     }
 
     public void setSwitchCase(){
-        String scase = "switch(condition){\n\t\tcase x: break;\n\t\tcase y: break;\n\t\tdefaul: \n\t} //Replace the condition and add or remove cases as needed";
-        switchCase.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(), scase));
+        switchCase.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(), SWITCH_CASE));
     }
 
     public void setDoWhileLoop(){
-        String dowhile = "do{...}\n\twhile (condition); //Replace condition with your own";
-        doWhileLoop.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(), dowhile));
+        doWhileLoop.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(), DO_WHILE_LOOP));
     }
 
     public void setForeachLoop(){
-        String foreach = " for (var varname : arrayname){...} //replace varname and arrayname with your variable names (you should also replace var with the proper variable)";
-        foreachLoop.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(),foreach));
+        foreachLoop.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(),FOREACH_LOOP));
     }
 
     public void setIfelsecase(){
-        String ifelse = "if (condition){...}//Replace condition with your own\nelse{...}";
-        ifelsecase.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(), ifelse));
+        ifelsecase.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(), IF_ELSE));
     }
 
     public void setElseifcase(){
-        String elseif = "if (condition){...}//Replace condition\nelse if(condition){...}//Replace condition\nelse{...}";
-        elseifcase.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(), elseif));
+        elseifcase.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(), ELSE_IF));
     }
 
     public void setReturnStringMethod(){
-        String stringret = "public String methodname(){//Replace methodName\n\tString str = \"...\"//replace with your string\n\t...//replace with logic\n\treturn str;\n\t}";
-        returnStringMethod.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(), stringret));
+        returnStringMethod.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(), STRING_METHOD));
     }
 
     public void setReturnIntMethod(){
-        String intret = "public int methodname(){//Replace methodName\n\tint i = ?//replace with your int\n\t...//replace with logic\n\treturn i;\n\t}";
-        returnIntMethod.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(),intret));
+        returnIntMethod.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(),INT_METHOD));
 
     }
 
     public void setReturnVoidMethod(){
-        String voidret = "public void methodname(){...}//Replace methodname and logic";
-        returnVoidMethod.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(),voidret));
+        returnVoidMethod.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(),VOID_METHOD));
     }
 
     public void setMainMethod(){
-        String mainmethodstr = "public static void main(String[] args){...}";
-        mainmethod.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(),mainmethodstr));
+        mainmethod.setOnAction(e -> mainController.getSelectedTab().getZenCodeArea().insertText(codeArea.getCaretPosition(),MAIN_METHOD));
     }
 
 }
@@ -0,0 +1,106 @@
+package main.java.zenit.zencodearea;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.application.Platform;
+import main.java.zenit.zencodearea.GutterMarkers.Marker;
+
+/**
+ * Marks the lines of a {@link ZenCodeArea} that were added, modified or deleted compared with a
+ * baseline, usually the last saved version of the file. The comparison is made with a
+ * {@link LineDiff} on a background thread after each burst of edits, and the result is shown
+ * with the gutter markers of the code area.
+ */
+public class ChangeTracker {
+	private static final Duration EDIT_BURST_END = Duration.ofMillis(200);
+
+	private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Zenit change tracker");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final ZenCodeArea area;
+	private volatile String baselineText;
+	private volatile long generation;
+
+	// Only used on the background thread
+	private String hashedBaselineText;
+	private LineDiff.Lines baselineLines;
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	/**
+	 * Starts tracking changes in the given code area. No lines are marked until a baseline is set.
+	 *
+	 * @param area the code area to track
+	 */
+	public ChangeTracker(ZenCodeArea area) {
+		this.area = area;
+		area.multiPlainChanges().successionEnds(EDIT_BURST_END).subscribe(ignore -> update());
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Sets the text that changes are shown against, and updates the markers. The lines of the
+	 * baseline are split and hashed once and reused for every later comparison.
+	 *
+	 * @param text the baseline text with {@code '\n'} as line separator, or null to stop
+	 *             showing changes
+	 */
+	public void setBaseline(String text) {
+		baselineText = text;
+		if (text == null) {
+			generation++;
+			clearMarkers();
+		} else {
+			update();
+		}
+	}
+
+	/**
+	 * Compares the current text with the baseline on the background thread. Results of
+	 * comparisons that are overtaken by newer edits are dropped.
+	 */
+	private void update() {
+		String baseline = baselineText;
+		if (baseline == null) {
+			return;
+		}
+
+		String text = area.getText();
+		long current = ++generation;
+		executor.execute(() -> {
+			if (current != generation) {
+				return;
+			}
+			if (hashedBaselineText != baseline) {
+				baselineLines = new LineDiff.Lines(baseline);
+				hashedBaselineText = baseline;
+			}
+
+			LineDiff diff = new LineDiff(baselineLines, new LineDiff.Lines(text));
+			Platform.runLater(() -> {
+				if (current == generation) {
+					GutterMarkers markers = area.getGutterMarkers();
+					markers.set(Marker.ADDED, diff.getAdded());
+					markers.set(Marker.MODIFIED, diff.getModified());
+					markers.set(Marker.DELETED, diff.getDeleted());
+				}
+			});
+		});
+	}
+
+	/**
+	 * Removes all change markers.
+	 */
+	private void clearMarkers() {
+		GutterMarkers markers = area.getGutterMarkers();
+		markers.clear(Marker.ADDED);
+		markers.clear(Marker.MODIFIED);
+		markers.clear(Marker.DELETED);
+	}
+}
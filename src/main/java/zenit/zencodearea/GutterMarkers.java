@@ -0,0 +1,99 @@
+package main.java.zenit.zencodearea;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+import javafx.css.PseudoClass;
+
+/**
+ * Holds the markers shown in the line number gutter of a {@link ZenCodeArea}. Each kind of marker
+ * is stored as a set of paragraph indexes, and is shown by switching a CSS pseudo-class on the
+ * line number label, so markers cost no extra nodes per line.
+ * <p>
+ * The markers are set by their producers, such as the compiler or the search, which replace all
+ * markers of their kind at once.
+ * </p>
+ */
+public class GutterMarkers {
+
+	/**
+	 * The kinds of markers that can be shown in the gutter.
+	 */
+	public enum Marker {
+		ERROR("error"),
+		SEARCH("search"),
+		ADDED("added"),
+		MODIFIED("modified"),
+		DELETED("deleted");
+
+		private final PseudoClass pseudoClass;
+
+		Marker(String pseudoClass) {
+			this.pseudoClass = PseudoClass.getPseudoClass(pseudoClass);
+		}
+
+		/**
+		 * Retrieves the pseudo-class set on the line number of a marked line.
+		 *
+		 * @return the pseudo-class of the marker
+		 */
+		public PseudoClass getPseudoClass() {
+			return pseudoClass;
+		}
+	}
+
+	private final Map<Marker, BitSet> markers = new EnumMap<>(Marker.class);
+	private final Runnable onChange;
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	/**
+	 * Creates an empty set of markers.
+	 *
+	 * @param onChange called on the JavaFX application thread whenever the markers change
+	 */
+	public GutterMarkers(Runnable onChange) {
+		this.onChange = onChange;
+		for (Marker marker : Marker.values()) {
+			markers.put(marker, new BitSet());
+		}
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Replaces all markers of one kind. Must be called on the JavaFX application thread.
+	 *
+	 * @param marker the kind of marker to set
+	 * @param paragraphs the indexes of the paragraphs to mark, counting from 0
+	 */
+	public void set(Marker marker, BitSet paragraphs) {
+		BitSet current = markers.get(marker);
+		if (!current.equals(paragraphs)) {
+			current.clear();
+			current.or(paragraphs);
+			onChange.run();
+		}
+	}
+
+	/**
+	 * Removes all markers of one kind. Must be called on the JavaFX application thread.
+	 *
+	 * @param marker the kind of marker to remove
+	 */
+	public void clear(Marker marker) {
+		set(marker, new BitSet());
+	}
+
+	/**
+	 * Checks if a paragraph has a marker of the given kind.
+	 *
+	 * @param marker the kind of marker
+	 * @param paragraph the index of the paragraph, counting from 0
+	 * @return true if the paragraph is marked
+	 */
+	public boolean has(Marker marker, int paragraph) {
+		return markers.get(marker).get(paragraph);
+	}
+}
@@ -0,0 +1,171 @@
+package main.java.zenit.zencodearea;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Computes the edits needed to comment or uncomment a block of lines with {@code //}, together
+ * with the new selection. The lines are inspected once and all edits are returned at the same
+ * time, so that they can be applied to the code area as a single change and a single undo step.
+ * <p>
+ * If every non-blank line already starts with {@code //} after its indentation, the comment
+ * markers are removed. Otherwise {@code //} is inserted at the start of every non-blank line.
+ * </p>
+ */
+public class LineCommentToggler {
+	public static final String COMMENT = "//";
+
+	private final List<Edit> edits;
+	private final int anchor;
+	private final int caret;
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	/**
+	 * Computes the edits for toggling comments on the given lines.
+	 *
+	 * @param lines the text of the lines to toggle, without line separators
+	 * @param firstLineStart the position in the document where the first line starts
+	 * @param anchor the anchor of the selection before toggling
+	 * @param caret the caret position before toggling
+	 */
+	public LineCommentToggler(List<String> lines, int firstLineStart, int anchor, int caret) {
+		List<Edit> computed = new ArrayList<>();
+		boolean uncomment = isCommented(lines);
+		int lineStart = firstLineStart;
+
+		for (String line : lines) {
+			int indentation = getIndentationLength(line);
+			if (indentation < line.length() || lines.size() == 1) {
+				if (uncomment) {
+					computed.add(new Edit(lineStart + indentation, lineStart + indentation + COMMENT.length(), ""));
+				} else {
+					computed.add(new Edit(lineStart, lineStart, COMMENT));
+				}
+			}
+			lineStart += line.length() + 1;
+		}
+
+		edits = Collections.unmodifiableList(computed);
+
+		// The start of a selection stays in front of inserted markers, so that they are selected
+		boolean anchorFirst = anchor <= caret && anchor != caret;
+		this.anchor = mapPosition(anchor, anchorFirst);
+		this.caret = mapPosition(caret, !anchorFirst && anchor != caret);
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Checks if all non-blank lines start with a comment marker after their indentation.
+	 *
+	 * @param lines the lines to check
+	 * @return true if the lines should be uncommented, false if they should be commented
+	 */
+	private static boolean isCommented(List<String> lines) {
+		boolean anyCode = false;
+
+		for (String line : lines) {
+			int indentation = getIndentationLength(line);
+			if (indentation < line.length()) {
+				anyCode = true;
+				if (!line.startsWith(COMMENT, indentation)) {
+					return false;
+				}
+			}
+		}
+		return anyCode;
+	}
+
+	/**
+	 * Counts the spaces and tabs at the start of a line.
+	 */
+	private static int getIndentationLength(String line) {
+		int length = 0;
+		while (length < line.length() && (line.charAt(length) == ' ' || line.charAt(length) == '\t')) {
+			length++;
+		}
+		return length;
+	}
+
+	/**
+	 * Maps a position in the document before the edits to the position after them.
+	 *
+	 * @param position the position before the edits
+	 * @param stayInFront true if the position should stay in front of text inserted exactly at it
+	 * @return the position after the edits
+	 */
+	private int mapPosition(int position, boolean stayInFront) {
+		int shift = 0;
+
+		for (Edit edit : edits) {
+			if (edit.getStart() > position || (edit.getStart() == position && stayInFront)) {
+				break;
+			}
+			if (edit.getEnd() <= position) {
+				shift += edit.getText().length() - (edit.getEnd() - edit.getStart());
+			} else {
+				shift -= position - edit.getStart();
+			}
+		}
+		return position + shift;
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Getters:
+	/**
+	 * Retrieves the edits in increasing order of position. All positions refer to the document
+	 * before any of the edits are applied.
+	 *
+	 * @return the edits to apply
+	 */
+	public List<Edit> getEdits() {
+		return edits;
+	}
+
+	/**
+	 * Retrieves the anchor of the selection after the edits have been applied.
+	 *
+	 * @return the new anchor
+	 */
+	public int getAnchor() {
+		return anchor;
+	}
+
+	/**
+	 * Retrieves the caret position after the edits have been applied.
+	 *
+	 * @return the new caret position
+	 */
+	public int getCaret() {
+		return caret;
+	}
+
+	/**
+	 * A replacement of the text between two positions.
+	 */
+	public static class Edit {
+		private final int start;
+		private final int end;
+		private final String text;
+
+		private Edit(int start, int end, String text) {
+			this.start = start;
+			this.end = end;
+			this.text = text;
+		}
+
+		public int getStart() {
+			return start;
+		}
+
+		public int getEnd() {
+			return end;
+		}
+
+		public String getText() {
+			return text;
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package main.java.zenit.zencodearea;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compares two versions of a document line by line and finds the lines that were added, modified
+ * or deleted in the newer version.
+ * <p>
+ * Lines are compared by hash first and by content only when the hashes match. Lines that are equal
+ * at the start and the end of both versions are skipped before the Myers diff algorithm is run,
+ * so the cost of an edit burst depends on the size of the edited region rather than the size of
+ * the file.
+ * </p>
+ */
+public class LineDiff {
+
+	/**
+	 * Above this number of differences the changed region is reported as modified instead of
+	 * being diffed further, which bounds the time and memory used on very different versions.
+	 */
+	private static final int MAX_DIFFERENCES = 1000;
+
+	private final BitSet added = new BitSet();
+	private final BitSet modified = new BitSet();
+	private final BitSet deleted = new BitSet();
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	/**
+	 * Compares two versions of a document.
+	 *
+	 * @param oldLines the lines of the older version, e.g. the saved file
+	 * @param newLines the lines of the newer version, e.g. the text being edited
+	 */
+	public LineDiff(Lines oldLines, Lines newLines) {
+		int oldEnd = oldLines.size();
+		int newEnd = newLines.size();
+		int start = 0;
+
+		while (start < oldEnd && start < newEnd && oldLines.equals(start, newLines, start)) {
+			start++;
+		}
+		while (oldEnd > start && newEnd > start && oldLines.equals(oldEnd - 1, newLines, newEnd - 1)) {
+			oldEnd--;
+			newEnd--;
+		}
+
+		if (start < oldEnd || start < newEnd) {
+			List<int[]> snakes = diff(oldLines, start, oldEnd, newLines, start, newEnd);
+			if (snakes == null) {
+				markHunk(start, oldEnd, start, newEnd);
+			} else {
+				int oldIndex = start;
+				int newIndex = start;
+				for (int[] snake : snakes) {
+					markHunk(oldIndex, snake[0], newIndex, snake[1]);
+					oldIndex = snake[0] + snake[2];
+					newIndex = snake[1] + snake[2];
+				}
+				markHunk(oldIndex, oldEnd, newIndex, newEnd);
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Finds the common runs of lines between the given ranges with the Myers algorithm.
+	 *
+	 * @return the common runs as {oldStart, newStart, length} in increasing order, or null if the
+	 *         ranges differ in more than {@link #MAX_DIFFERENCES} lines
+	 */
+	private static List<int[]> diff(Lines oldLines, int oldStart, int oldEnd, Lines newLines, int newStart, int newEnd) {
+		int n = oldEnd - oldStart;
+		int m = newEnd - newStart;
+		int max = Math.min(n + m, MAX_DIFFERENCES);
+		int offset = max + 1;
+		int[] v = new int[2 * max + 3];
+		List<int[]> trace = new ArrayList<>();
+
+		for (int d = 0; d <= max; d++) {
+			// Only the diagonals reachable in this round are saved for the backtracking
+			trace.add(Arrays.copyOfRange(v, offset - d - 1, offset + d + 2));
+			for (int k = -d; k <= d; k += 2) {
+				int x;
+				if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+					x = v[offset + k + 1];
+				} else {
+					x = v[offset + k - 1] + 1;
+				}
+				int y = x - k;
+				while (x < n && y < m && oldLines.equals(oldStart + x, newLines, newStart + y)) {
+					x++;
+					y++;
+				}
+				v[offset + k] = x;
+
+				if (x >= n && y >= m) {
+					return backtrack(trace, d, n, m, oldStart, newStart);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Walks the saved rounds of the Myers algorithm backwards to find the common runs.
+	 */
+	private static List<int[]> backtrack(List<int[]> trace, int depth, int n, int m, int oldStart, int newStart) {
+		List<int[]> snakes = new ArrayList<>();
+		int x = n;
+		int y = m;
+
+		for (int d = depth; d >= 0; d--) {
+			int k = x - y;
+			int snakeStartX;
+			int previousX;
+			int previousY;
+
+			if (d == 0) {
+				snakeStartX = 0;
+				previousX = 0;
+				previousY = 0;
+			} else {
+				int[] v = trace.get(d);
+				int base = d + 1;
+				boolean down = k == -d || (k != d && v[base + k - 1] < v[base + k + 1]);
+				int previousK = down ? k + 1 : k - 1;
+				previousX = v[base + previousK];
+				previousY = previousX - previousK;
+				snakeStartX = down ? previousX : previousX + 1;
+			}
+
+			if (x > snakeStartX) {
+				snakes.add(new int[] {oldStart + snakeStartX, newStart + snakeStartX - k, x - snakeStartX});
+			}
+			x = previousX;
+			y = previousY;
+		}
+		Collections.reverse(snakes);
+		return snakes;
+	}
+
+	/**
+	 * Marks a region where {@code oldStart..oldEnd} in the old version was replaced by
+	 * {@code newStart..newEnd} in the new version. Lines that replace old lines are modified,
+	 * remaining new lines are added, and remaining old lines are shown as deleted on the line
+	 * before them.
+	 */
+	private void markHunk(int oldStart, int oldEnd, int newStart, int newEnd) {
+		int removed = oldEnd - oldStart;
+		int inserted = newEnd - newStart;
+		int common = Math.min(removed, inserted);
+
+		if (common > 0) {
+			modified.set(newStart, newStart + common);
+		}
+		if (inserted > common) {
+			added.set(newStart + common, newEnd);
+		}
+		if (removed > common) {
+			deleted.set(Math.max(0, newStart + common - 1));
+		}
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Getters:
+	/**
+	 * @return the indexes of the lines in the new version that were added
+	 */
+	public BitSet getAdded() {
+		return added;
+	}
+
+	/**
+	 * @return the indexes of the lines in the new version that were changed
+	 */
+	public BitSet getModified() {
+		return modified;
+	}
+
+	/**
+	 * @return the indexes of the lines in the new version after which lines were deleted
+	 */
+	public BitSet getDeleted() {
+		return deleted;
+	}
+
+	/**
+	 * The lines of one version of a document together with their hashes.
+	 */
+	public static class Lines {
+		private final String[] lines;
+		private final int[] hashes;
+
+		/**
+		 * Splits the text into lines and hashes each line.
+		 *
+		 * @param text the text to split, with {@code '\n'} as line separator
+		 */
+		public Lines(String text) {
+			lines = text.split("\n", -1);
+			hashes = new int[lines.length];
+			for (int i = 0; i < lines.length; i++) {
+				hashes[i] = lines[i].hashCode();
+			}
+		}
+
+		/**
+		 * @return the number of lines
+		 */
+		public int size() {
+			return lines.length;
+		}
+
+		private boolean equals(int index, Lines other, int otherIndex) {
+			return hashes[index] == other.hashes[otherIndex] && lines[index].equals(other.lines[otherIndex]);
+		}
+	}
+}
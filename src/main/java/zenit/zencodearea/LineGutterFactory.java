@@ -0,0 +1,187 @@
+package main.java.zenit.zencodearea;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import javafx.collections.ListChangeListener;
+import javafx.geometry.Insets;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.text.Font;
+
+import main.java.zenit.zencodearea.GutterMarkers.Marker;
+
+/**
+ * Creates the line number graphics shown to the left of each paragraph in a {@link ZenCodeArea}.
+ * <p>
+ * Unlike the line number factory that comes with RichTextFX, the labels are pooled: a label whose
+ * paragraph has scrolled out is reused for the next paragraph that scrolls in. The padded number
+ * strings are cached, so scrolling allocates neither nodes nor strings once the visible lines have
+ * been shown. Markers from {@link GutterMarkers} are shown with pseudo-classes on the same labels.
+ * </p>
+ * <p>
+ * RichTextFX doesn't remove the graphic from the cell of a paragraph that scrolls out, it only
+ * removes the cell from the view. A label is therefore free once it has no parent, which happens
+ * when its cell is given another paragraph, or once it has left the scene while the code area is
+ * still shown. Free labels are reclaimed when the pool runs out, so the labels in use stay close
+ * to the number of cells in view.
+ * </p>
+ */
+public class LineGutterFactory implements IntFunction<Node> {
+	private static final Insets INSETS = new Insets(0.0, 5.0, 0.0, 5.0);
+	private static final Font FONT = Font.font("monospace");
+
+	private final ZenCodeArea area;
+	private final GutterMarkers markers;
+	private final Deque<GutterLabel> pool = new ArrayDeque<>();
+	private final Set<GutterLabel> active = new HashSet<>();
+	private String[] numbers = new String[0];
+	private int digits;
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	/**
+	 * Creates a gutter factory for the given code area.
+	 *
+	 * @param area the code area the line numbers are shown in
+	 */
+	public LineGutterFactory(ZenCodeArea area) {
+		this.area = area;
+		markers = new GutterMarkers(this::refreshMarkers);
+		digits = countDigits(area.getParagraphs().size());
+
+		area.getParagraphs().addListener((ListChangeListener.Change<?> change) -> updateDigits());
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Retrieves a line number label for the given paragraph, reusing a pooled label if possible.
+	 *
+	 * @param paragraph the index of the paragraph, counting from 0
+	 * @return the label showing the line number
+	 */
+	@Override
+	public Node apply(int paragraph) {
+		if (pool.isEmpty()) {
+			reclaim();
+		}
+		GutterLabel label = pool.poll();
+		if (label == null) {
+			label = new GutterLabel();
+		}
+		label.setParagraph(paragraph);
+		active.add(label);
+		return label;
+	}
+
+	/**
+	 * Retrieves the markers shown in this gutter.
+	 *
+	 * @return the gutter markers
+	 */
+	public GutterMarkers getMarkers() {
+		return markers;
+	}
+
+	/**
+	 * Moves the labels that are no longer shown from the active labels to the pool.
+	 */
+	private void reclaim() {
+		boolean areaShown = area.getScene() != null;
+		Iterator<GutterLabel> labels = active.iterator();
+		while (labels.hasNext()) {
+			GutterLabel label = labels.next();
+			if (label.getParent() == null || (areaShown && label.getScene() == null)) {
+				labels.remove();
+				pool.push(label);
+			}
+		}
+	}
+
+	/**
+	 * Updates the markers of all labels currently in view.
+	 */
+	private void refreshMarkers() {
+		reclaim();
+		for (GutterLabel label : active) {
+			label.updateMarkers();
+		}
+	}
+
+	/**
+	 * Clears the number cache and reformats the labels in view when the number of digits needed
+	 * for the last line changes.
+	 */
+	private void updateDigits() {
+		int newDigits = countDigits(area.getParagraphs().size());
+		if (newDigits != digits) {
+			digits = newDigits;
+			numbers = new String[0];
+			reclaim();
+			for (GutterLabel label : active) {
+				label.setText(format(label.paragraph + 1));
+			}
+		}
+	}
+
+	/**
+	 * Formats a line number padded to the current number of digits, using the cache.
+	 *
+	 * @param number the line number, counting from 1
+	 * @return the padded line number, or an empty string for a cell that has no paragraph yet
+	 */
+	private String format(int number) {
+		if (number < 1) {
+			return "";
+		}
+		if (number > numbers.length) {
+			numbers = Arrays.copyOf(numbers, Math.max(number, numbers.length * 2));
+		}
+		String formatted = numbers[number - 1];
+		if (formatted == null) {
+			StringBuilder builder = new StringBuilder(digits);
+			String digitString = Integer.toString(number);
+			for (int i = digitString.length(); i < digits; i++) {
+				builder.append(' ');
+			}
+			formatted = builder.append(digitString).toString();
+			numbers[number - 1] = formatted;
+		}
+		return formatted;
+	}
+
+	private static int countDigits(int number) {
+		return Integer.toString(Math.max(number, 1)).length();
+	}
+
+	/**
+	 * A line number label, showing the markers of its line.
+	 */
+	private class GutterLabel extends Label {
+		private int paragraph;
+
+		GutterLabel() {
+			setFont(FONT);
+			setPadding(INSETS);
+			getStyleClass().add("lineno");
+		}
+
+		void setParagraph(int paragraph) {
+			this.paragraph = paragraph;
+			setText(format(paragraph + 1));
+			updateMarkers();
+		}
+
+		void updateMarkers() {
+			for (Marker marker : Marker.values()) {
+				pseudoClassStateChanged(marker.getPseudoClass(), markers.has(marker, paragraph));
+			}
+		}
+	}
+}
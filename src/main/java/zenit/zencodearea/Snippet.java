@@ -0,0 +1,159 @@
+package main.java.zenit.zencodearea;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A code snippet that replaces a short trigger word with a longer piece of code.
+ * <p>
+ * The body may contain tab stops written as {@code $1}, {@code ${1}} or {@code ${1:default text}}.
+ * The caret is moved through the tab stops in increasing order with the TAB key, and ends at
+ * {@code $0}, or at the end of the snippet if there is no {@code $0}. A literal dollar sign is
+ * written as {@code $$}. The body is parsed once, when the snippet is created.
+ * </p>
+ */
+public class Snippet {
+	private final String trigger;
+	private final String text;
+	private final int[] stopOffsets;
+	private final int[] stopLengths;
+
+	/**
+	 * Creates a snippet and parses the tab stops of its body.
+	 *
+	 * @param trigger the word that is replaced by the snippet
+	 * @param body the snippet text, possibly containing tab stops
+	 */
+	public Snippet(String trigger, String body) {
+		this.trigger = trigger;
+
+		StringBuilder parsed = new StringBuilder(body.length());
+		List<int[]> stops = new ArrayList<>(); // {number, offset, length}
+		int i = 0;
+
+		while (i < body.length()) {
+			char c = body.charAt(i);
+			if (c != '$' || i + 1 == body.length()) {
+				parsed.append(c);
+				i++;
+			} else if (body.charAt(i + 1) == '$') {
+				parsed.append('$');
+				i += 2;
+			} else if (Character.isDigit(body.charAt(i + 1))) {
+				int end = skipDigits(body, i + 1);
+				stops.add(new int[] {Integer.parseInt(body.substring(i + 1, end)), parsed.length(), 0});
+				i = end;
+			} else if (body.charAt(i + 1) == '{' && i + 2 < body.length() && Character.isDigit(body.charAt(i + 2))) {
+				int end = skipDigits(body, i + 2);
+				int close = body.indexOf('}', end);
+				if (close == -1 || (body.charAt(end) != '}' && body.charAt(end) != ':')) {
+					parsed.append(c);
+					i++;
+					continue;
+				}
+				String placeholder = body.charAt(end) == ':' ? body.substring(end + 1, close) : "";
+				stops.add(new int[] {Integer.parseInt(body.substring(i + 2, end)), parsed.length(), placeholder.length()});
+				parsed.append(placeholder);
+				i = close + 1;
+			} else {
+				parsed.append(c);
+				i++;
+			}
+		}
+
+		// Numbered stops in increasing order, with $0 (or the end of the snippet) last
+		stops.sort((a, b) -> Integer.compare(a[0] == 0 ? Integer.MAX_VALUE : a[0], b[0] == 0 ? Integer.MAX_VALUE : b[0]));
+		if (stops.isEmpty() || stops.get(stops.size() - 1)[0] != 0) {
+			stops.add(new int[] {0, parsed.length(), 0});
+		}
+
+		text = parsed.toString();
+		stopOffsets = new int[stops.size()];
+		stopLengths = new int[stops.size()];
+		for (int j = 0; j < stops.size(); j++) {
+			stopOffsets[j] = stops.get(j)[1];
+			stopLengths[j] = stops.get(j)[2];
+		}
+	}
+
+	/**
+	 * Creates a snippet from already parsed text and tab stops.
+	 */
+	private Snippet(String trigger, String text, int[] stopOffsets, int[] stopLengths) {
+		this.trigger = trigger;
+		this.text = text;
+		this.stopOffsets = stopOffsets;
+		this.stopLengths = stopLengths;
+	}
+
+	/**
+	 * Creates a copy of this snippet where every line after the first is prefixed with the
+	 * given indentation, so that the snippet lines up with the line it is inserted on. The
+	 * tab stops are moved accordingly.
+	 *
+	 * @param indentation the leading whitespace of the line the snippet is inserted on
+	 * @return the indented snippet, or this snippet if there is nothing to indent
+	 */
+	public Snippet indent(String indentation) {
+		if (indentation.isEmpty() || text.indexOf('\n') == -1) {
+			return this;
+		}
+
+		int[] offsets = new int[stopOffsets.length];
+		for (int i = 0; i < offsets.length; i++) {
+			int lineBreaks = 0;
+			for (int j = 0; j < stopOffsets[i]; j++) {
+				if (text.charAt(j) == '\n') {
+					lineBreaks++;
+				}
+			}
+			offsets[i] = stopOffsets[i] + lineBreaks * indentation.length();
+		}
+		return new Snippet(trigger, text.replace("\n", "\n" + indentation), offsets, stopLengths);
+	}
+
+	private static int skipDigits(String text, int index) {
+		while (index < text.length() && Character.isDigit(text.charAt(index))) {
+			index++;
+		}
+		return index;
+	}
+
+	/**
+	 * Retrieves the word that is replaced by this snippet.
+	 *
+	 * @return the trigger of the snippet
+	 */
+	public String getTrigger() {
+		return trigger;
+	}
+
+	/**
+	 * Retrieves the text of the snippet with all tab stop markers removed.
+	 *
+	 * @return the text to insert
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Retrieves the offsets of the tab stops in the order they are visited, relative to the
+	 * start of the snippet text. The last offset is the final caret position.
+	 *
+	 * @return the tab stop offsets
+	 */
+	public int[] getStopOffsets() {
+		return stopOffsets.clone();
+	}
+
+	/**
+	 * Retrieves the lengths of the placeholder texts of the tab stops, in the same order as
+	 * {@link #getStopOffsets()}.
+	 *
+	 * @return the tab stop placeholder lengths
+	 */
+	public int[] getStopLengths() {
+		return stopLengths.clone();
+	}
+}
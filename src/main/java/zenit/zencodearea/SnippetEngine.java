@@ -0,0 +1,110 @@
+package main.java.zenit.zencodearea;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Properties;
+
+import main.java.zenit.ui.tree.InsertMenu;
+
+/**
+ * Holds the snippets that can be expanded in a {@link ZenCodeArea}. The snippets are loaded once
+ * and shared by all code areas. Snippets are taken from, in increasing order of precedence:
+ * <ol>
+ *     <li>the templates of the {@link InsertMenu}</li>
+ *     <li>the built-in snippets, such as {@code sysout} and {@code main}</li>
+ *     <li>the user's snippet file {@code res/snippets/snippets.properties}, where each entry maps
+ *     a trigger to a snippet body. Bodies may use {@code \n}, {@code \t} and tab stops as
+ *     described in {@link Snippet}.</li>
+ * </ol>
+ */
+public class SnippetEngine {
+	public static final String USER_SNIPPETS_PATH = "res/snippets/snippets.properties";
+
+	private static SnippetEngine instance;
+
+	private final SnippetTrie trie = new SnippetTrie();
+
+	// ------------------------------------------------------------------------------------
+	// Constructor:
+	/**
+	 * Creates an engine holding the menu templates, the built-in snippets and the snippets
+	 * in the given user file.
+	 *
+	 * @param userSnippets the properties file with user defined snippets. Ignored if it doesn't exist.
+	 */
+	public SnippetEngine(File userSnippets) {
+		for (Map.Entry<String, String> template : InsertMenu.TEMPLATES.entrySet()) {
+			trie.add(new Snippet(template.getKey(), template.getValue().replace("$", "$$")));
+		}
+
+		trie.add(new Snippet("sysout", "System.out.println($1);$0"));
+		trie.add(new Snippet("syserr", "System.err.println($1);$0"));
+		trie.add(new Snippet("main", "public static void main(String[] args) {\n\t$0\n}"));
+		trie.add(new Snippet("pv", "public void ${1:name}($2) {\n\t$0\n}"));
+
+		if (userSnippets.isFile()) {
+			loadUserSnippets(userSnippets);
+		}
+	}
+
+	// ------------------------------------------------------------------------------------
+	// Methods:
+	/**
+	 * Retrieves the engine shared by all code areas, loading the snippets the first time it is called.
+	 *
+	 * @return the shared snippet engine
+	 */
+	public static synchronized SnippetEngine getInstance() {
+		if (instance == null) {
+			instance = new SnippetEngine(new File(USER_SNIPPETS_PATH));
+		}
+		return instance;
+	}
+
+	/**
+	 * Finds the snippet whose trigger ends at the end of the given text.
+	 *
+	 * @param textBeforeCaret the text immediately before the caret, see {@link SnippetTrie#find(CharSequence)}
+	 * @return the matching snippet, or null if there is none
+	 */
+	public Snippet find(CharSequence textBeforeCaret) {
+		return trie.find(textBeforeCaret);
+	}
+
+	/**
+	 * Retrieves the length of the longest trigger, which is the number of characters before
+	 * the caret that need to be looked at to find a snippet.
+	 *
+	 * @return the length of the longest trigger
+	 */
+	public int getMaxTriggerLength() {
+		return trie.getMaxTriggerLength();
+	}
+
+	/**
+	 * Reads the user snippet file and adds its entries, replacing snippets with the same trigger.
+	 *
+	 * @param file the properties file to read
+	 */
+	private void loadUserSnippets(File file) {
+		Properties properties = new Properties();
+
+		try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		} catch (IOException | IllegalArgumentException ex) {
+			System.err.println("SnippetEngine.loadUserSnippets: " + ex.getMessage());
+			return;
+		}
+
+		for (String trigger : properties.stringPropertyNames()) {
+			if (!trigger.isEmpty()) {
+				trie.add(new Snippet(trigger, properties.getProperty(trigger)));
+			}
+		}
+	}
+}
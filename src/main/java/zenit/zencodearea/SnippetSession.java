@@ -0,0 +1,72 @@
+package main.java.zenit.zencodearea;
+
+import org.fxmisc.richtext.model.PlainTextChange;
+
+/**
+ * Keeps track of the tab stops of a snippet that has been inserted in a code area. The positions
+ * of the tab stops are updated as the document is edited, so that TAB can move the caret to the
+ * next tab stop even after text has been typed into the previous ones.
+ */
+public class SnippetSession {
+	private final int[] starts;
+	private final int[] lengths;
+	private int current = -1;
+
+	/**
+	 * Starts a session for a snippet inserted at the given position.
+	 *
+	 * @param position the position in the document where the snippet text starts
+	 * @param snippet the inserted snippet
+	 */
+	public SnippetSession(int position, Snippet snippet) {
+		starts = snippet.getStopOffsets();
+		lengths = snippet.getStopLengths();
+		for (int i = 0; i < starts.length; i++) {
+			starts[i] += position;
+		}
+	}
+
+	/**
+	 * Moves to the next tab stop.
+	 *
+	 * @return the start and end of the next tab stop in the document
+	 */
+	public int[] next() {
+		current = Math.min(current + 1, starts.length - 1);
+		return new int[] {starts[current], starts[current] + lengths[current]};
+	}
+
+	/**
+	 * Checks if the last tab stop has been reached, after which the session is over.
+	 *
+	 * @return true if there are no more tab stops to move to
+	 */
+	public boolean isFinished() {
+		return current >= starts.length - 1;
+	}
+
+	/**
+	 * Updates the tab stops after a change in the document. Changes before a tab stop move it,
+	 * and changes inside a tab stop resize it.
+	 *
+	 * @param change the change made to the document
+	 * @return false if the change overlapped the boundary of a tab stop, in which case the
+	 *         session can no longer be followed
+	 */
+	public boolean update(PlainTextChange change) {
+		int position = change.getPosition();
+		int removalEnd = change.getRemovalEnd();
+		int netLength = change.getNetLength();
+
+		for (int i = 0; i < starts.length; i++) {
+			if (position >= starts[i] && removalEnd <= starts[i] + lengths[i]) {
+				lengths[i] += netLength;
+			} else if (removalEnd <= starts[i]) {
+				starts[i] += netLength;
+			} else if (position < starts[i] + lengths[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,70 @@
+package main.java.zenit.zencodearea;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A trie of snippet triggers stored in reverse, so that the trigger ending at the caret can be
+ * found by walking backwards from the caret one character at a time. A lookup only touches as
+ * many characters as the longest trigger, regardless of the size of the document.
+ */
+public class SnippetTrie {
+	private final Node root = new Node();
+	private int maxTriggerLength;
+
+	/**
+	 * Adds a snippet to the trie, replacing any snippet with the same trigger.
+	 *
+	 * @param snippet the snippet to add
+	 */
+	public void add(Snippet snippet) {
+		String trigger = snippet.getTrigger();
+		Node node = root;
+
+		for (int i = trigger.length() - 1; i >= 0; i--) {
+			node = node.children.computeIfAbsent(trigger.charAt(i), c -> new Node());
+		}
+		node.snippet = snippet;
+		maxTriggerLength = Math.max(maxTriggerLength, trigger.length());
+	}
+
+	/**
+	 * Finds the longest trigger that ends at the end of the given text. A trigger only matches
+	 * if it is a whole word, i.e. if the character before it is not part of a Java identifier
+	 * or if the trigger starts at the beginning of the text.
+	 *
+	 * @param textBeforeCaret the text immediately before the caret. Should begin at the start of
+	 *                        the line or hold at least one character more than the longest trigger.
+	 * @return the matching snippet, or null if no trigger matches
+	 */
+	public Snippet find(CharSequence textBeforeCaret) {
+		Node node = root;
+		Snippet match = null;
+		int index = textBeforeCaret.length() - 1;
+
+		while (index >= 0 && node != null) {
+			node = node.children.get(textBeforeCaret.charAt(index));
+			index--;
+
+			if (node != null && node.snippet != null
+					&& (index < 0 || !Character.isJavaIdentifierPart(textBeforeCaret.charAt(index)))) {
+				match = node.snippet;
+			}
+		}
+		return match;
+	}
+
+	/**
+	 * Retrieves the length of the longest trigger in the trie.
+	 *
+	 * @return the length of the longest trigger, or 0 if the trie is empty
+	 */
+	public int getMaxTriggerLength() {
+		return maxTriggerLength;
+	}
+
+	private static class Node {
+		private final Map<Character, Node> children = new HashMap<>();
+		private Snippet snippet;
+	}
+}
@@ -7,25 +7,34 @@ import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.concurrent.Task;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import main.java.zenit.javacodecompiler.DebugError;
 import main.java.zenit.ui.tree.InsertMenu;
 import org.fxmisc.richtext.CodeArea;
-import org.fxmisc.richtext.LineNumberFactory;
+import org.fxmisc.richtext.MultiChangeBuilder;
 import org.fxmisc.richtext.model.StyleSpans;
 import org.fxmisc.richtext.model.StyleSpansBuilder;
+import org.fxmisc.richtext.model.TwoDimensional.Bias;
+import org.fxmisc.richtext.model.TwoDimensional.Position;
 import org.fxmisc.wellbehaved.event.Nodes;
 import org.fxmisc.wellbehaved.event.EventPattern;
 import org.fxmisc.wellbehaved.event.InputMap;
 
 public class ZenCodeArea extends CodeArea {
 	private ExecutorService executor;
+	private SnippetSession snippetSession;
+	private GutterMarkers gutterMarkers;
+	private List<DebugError> errors = Collections.emptyList();
 	//private int fontSize;
 	//private String font;
 
@@ -65,6 +74,7 @@ public class ZenCodeArea extends CodeArea {
 		initializeParagraphicFactory();
 		initializeMultiPlainChanges();
 		initializeExecutor();
+		initializeInputMap();
 		setInitialStyle(textSize, font);
 	}
 
@@ -74,10 +84,12 @@ public class ZenCodeArea extends CodeArea {
 	}
 
 	/**
-	 * Sets up the paragraph graphic factory to display line numbers.
+	 * Sets up the paragraph graphic factory to display line numbers and gutter markers.
 	 */
 	private void initializeParagraphicFactory() {
-		setParagraphGraphicFactory(LineNumberFactory.get(this));
+		LineGutterFactory gutter = new LineGutterFactory(this);
+		gutterMarkers = gutter.getMarkers();
+		setParagraphGraphicFactory(gutter);
 	}
 
 	/**
@@ -86,7 +98,7 @@ public class ZenCodeArea extends CodeArea {
 	 */
 	private void initializeMultiPlainChanges() {
 		multiPlainChanges().successionEnds(Duration.ofMillis(100))
-				.subscribe(ignore -> setStyleSpans(0, computeHighlighting(getText())));
+				.subscribe(ignore -> applyHighlighting(computeHighlighting(getText())));
 
 		multiPlainChanges().successionEnds(Duration.ofMillis(500))
 				.supplyTask(this::computeHighlightingAsync)
@@ -107,6 +119,25 @@ public class ZenCodeArea extends CodeArea {
 		executor = Executors.newSingleThreadExecutor();
 	}
 
+	/**
+	 * Adds the TAB key handling. TAB moves to the next tab stop of an expanded snippet if there
+	 * is one, and otherwise inserts four spaces. Snippet tab stops are kept up to date as the
+	 * text is edited.
+	 */
+	private void initializeInputMap() {
+		InputMap<KeyEvent> im = InputMap.consume(
+			EventPattern.keyPressed(KeyCode.TAB),
+			e -> nextTabStop()
+			);
+		Nodes.addInputMap(this, im);
+
+		plainTextChanges().subscribe(change -> {
+			if (snippetSession != null && !snippetSession.update(change)) {
+				snippetSession = null;
+			}
+		});
+	}
+
 	/**
 	 * Sets the initial font size and family for the text area.
 	 * @param textSize The size of the font.
@@ -116,6 +147,24 @@ public class ZenCodeArea extends CodeArea {
 		setStyle("-fx-font-size: " + textSize +";-fx-font-family: " + font);
 	}
 
+	/**
+	 * Retrieves the markers shown next to the line numbers, such as errors and search hits.
+	 * @return The gutter markers of this text area.
+	 */
+	public GutterMarkers getGutterMarkers() {
+		return gutterMarkers;
+	}
+
+	/**
+	 * Sets the errors to underline, replacing the previous ones. The underlines are part of the
+	 * highlighting, so they stay when the text is highlighted again after an edit.
+	 * @param errors The errors, with rows and columns starting at 1.
+	 */
+	public void setErrors(List<DebugError> errors) {
+		this.errors = new ArrayList<>(errors);
+		update();
+	}
+
 	/**
 	 * Recomputed and applies the highlighting to the entire text.
 	 */
@@ -149,12 +198,162 @@ public class ZenCodeArea extends CodeArea {
 	 * @param highlighting The highlighting to apply.
 	 */
 	private void applyHighlighting(StyleSpans<Collection<String>> highlighting) {
-		setStyleSpans(0, highlighting);
-		InputMap<KeyEvent> im = InputMap.consume(
-			EventPattern.keyPressed(KeyCode.TAB), 
-			e -> this.replaceSelection("    ")
-			);
-		Nodes.addInputMap(this, im);
+		setStyleSpans(0, addErrorUnderlines(highlighting));
+	}
+
+	/**
+	 * Adds the underlines of the errors to the highlighting. The errors may come from a compile
+	 * of an older version of the text, so errors on lines that no longer exist are skipped and
+	 * columns past the end of a line are moved to its last character.
+	 * @param highlighting The highlighting of the current text.
+	 * @return The highlighting with the errors underlined.
+	 */
+	private StyleSpans<Collection<String>> addErrorUnderlines(StyleSpans<Collection<String>> highlighting) {
+		List<int[]> ranges = new ArrayList<>();
+		int paragraphs = getParagraphs().size();
+		for (DebugError error : errors) {
+			int row = error.getRow() - 1;
+			if (row < 0 || row >= paragraphs || error.getColumn() <= 0) {
+				continue;
+			}
+			int lineLength = getParagraphLength(row);
+			if (lineLength == 0) {
+				continue;
+			}
+
+			int start = getAbsolutePosition(row, Math.min(error.getColumn(), lineLength) - 1);
+			int end = getAbsolutePosition(row, Math.min(error.getColumn() + 1, lineLength));
+			if (end <= highlighting.length()) {
+				ranges.add(new int[] { start, end });
+			}
+		}
+		return ranges.isEmpty() ? highlighting : underline(highlighting, ranges);
+	}
+
+	/**
+	 * Adds the underline style to ranges of the highlighting.
+	 * @param highlighting The highlighting.
+	 * @param ranges The start and end of each range, in any order and possibly overlapping.
+	 * @return The highlighting with the ranges underlined.
+	 */
+	private static StyleSpans<Collection<String>> underline(StyleSpans<Collection<String>> highlighting,
+			List<int[]> ranges) {
+		ranges.sort(Comparator.comparingInt(range -> range[0]));
+		StyleSpansBuilder<Collection<String>> underlines = new StyleSpansBuilder<>();
+		int position = 0;
+		for (int[] range : ranges) {
+			int start = Math.max(range[0], position);
+			if (range[1] > start) {
+				underlines.add(Collections.emptyList(), start - position);
+				underlines.add(Collections.singleton("underline"), range[1] - start);
+				position = range[1];
+			}
+		}
+		underlines.add(Collections.emptyList(), highlighting.length() - position);
+
+		return highlighting.overlay(underlines.create(), (style, underline) -> {
+			if (underline.isEmpty()) {
+				return style;
+			}
+			List<String> merged = new ArrayList<>(style);
+			merged.addAll(underline);
+			return merged;
+		});
+	}
+
+	/**
+	 * Expands the snippet whose trigger ends at the caret. Only the text between the caret and
+	 * the start of its line, limited to the length of the longest trigger, is looked at. The
+	 * caret is placed at the first tab stop of the snippet.
+	 *
+	 * @return true if a snippet was expanded, false if no trigger was found before the caret
+	 */
+	public boolean expandSnippetAtCaret() {
+		SnippetEngine engine = SnippetEngine.getInstance();
+		int caret = getCaretPosition();
+		int lineStart = caret - getCaretColumn();
+		int from = Math.max(lineStart, caret - engine.getMaxTriggerLength() - 1);
+
+		Snippet snippet = engine.find(getText(from, caret));
+		if (snippet == null) {
+			return false;
+		}
+
+		snippet = snippet.indent(getIndentation(getCurrentParagraph()));
+		int start = caret - snippet.getTrigger().length();
+		snippetSession = null;
+		replaceText(start, caret, snippet.getText());
+		snippetSession = new SnippetSession(start, snippet);
+		nextTabStop();
+		return true;
+	}
+
+	/**
+	 * Comments or uncomments the lines covered by the selection, or the current line if nothing
+	 * is selected. All lines are changed in one compound edit, so the highlighting and change
+	 * listeners run once and the toggle is undone in one step. The selection is kept on the
+	 * same text.
+	 */
+	public void toggleLineComment() {
+		int anchor = getAnchor();
+		int caret = getCaretPosition();
+		int start = Math.min(anchor, caret);
+		int end = Math.max(anchor, caret);
+
+		int firstParagraph = offsetToPosition(start, Bias.Forward).getMajor();
+		Position last = offsetToPosition(end, Bias.Forward);
+		int lastParagraph = last.getMinor() == 0 && end > start ? last.getMajor() - 1 : last.getMajor();
+
+		List<String> lines = new ArrayList<>(lastParagraph - firstParagraph + 1);
+		for (int i = firstParagraph; i <= Math.max(firstParagraph, lastParagraph); i++) {
+			lines.add(getParagraph(i).getText());
+		}
+
+		LineCommentToggler toggler = new LineCommentToggler(lines, getAbsolutePosition(firstParagraph, 0), anchor, caret);
+		List<LineCommentToggler.Edit> edits = toggler.getEdits();
+		if (edits.isEmpty()) {
+			return;
+		}
+
+		// Applied from the bottom up so that the positions of the remaining edits stay valid
+		MultiChangeBuilder<Collection<String>, String, Collection<String>> change = createMultiChange(edits.size());
+		for (int i = edits.size() - 1; i >= 0; i--) {
+			LineCommentToggler.Edit edit = edits.get(i);
+			change.replaceTextAbsolutely(edit.getStart(), edit.getEnd(), edit.getText());
+		}
+		change.commit();
+		selectRange(toggler.getAnchor(), toggler.getCaret());
+	}
+
+	/**
+	 * Moves to the next tab stop of the current snippet, or inserts four spaces if no snippet
+	 * is being edited.
+	 */
+	private void nextTabStop() {
+		if (snippetSession == null) {
+			replaceSelection("    ");
+			return;
+		}
+
+		int[] stop = snippetSession.next();
+		selectRange(stop[0], stop[1]);
+		if (snippetSession.isFinished()) {
+			snippetSession = null;
+		}
+	}
+
+	/**
+	 * Retrieves the leading whitespace of a paragraph.
+	 * @param paragraph The index of the paragraph.
+	 * @return The spaces and tabs at the start of the paragraph.
+	 */
+	private String getIndentation(int paragraph) {
+		String line = getParagraph(paragraph).getText();
+		int end = 0;
+		while (end < line.length() && (line.charAt(end) == ' ' || line.charAt(end) == '\t')) {
+			end++;
+		}
+		return line.substring(0, end);
 	}
 
 
@@ -0,0 +1,81 @@
+package test.java.zenit.console;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import main.java.zenit.console.ConsoleLog;
+
+/**
+ * Tests that {@link ConsoleLog} reads back any range of lines, also the ones between the lines it
+ * indexes, and that its file is deleted when it is closed.
+ */
+public class ConsoleLogTest extends TestCase {
+	private static final int LINES = 10_000;
+
+	private ConsoleLog log;
+
+	@Override
+	protected void setUp() {
+		log = ConsoleLog.create("test");
+		assertNotNull(log);
+	}
+
+	@Override
+	protected void tearDown() {
+		log.close();
+	}
+
+	private static String line(int index) {
+		return "line " + index + (index % 7 == 0 ? " \u00e5\u00e4\u00f6" : "");
+	}
+
+	private void appendLines() {
+		StringBuilder chunk = new StringBuilder();
+		for (int i = 0; i < LINES; i++) {
+			chunk.append(line(i)).append('\n');
+			// Chunks that end in the middle of a line, as output arrives
+			if (i % 97 == 0) {
+				int split = chunk.length() - 3;
+				log.append(chunk.substring(0, split));
+				chunk.delete(0, split);
+			}
+		}
+		log.append(chunk.toString());
+	}
+
+	public void testReadsAnyRangeOfLines() {
+		appendLines();
+		assertEquals(LINES, log.getLineCount());
+
+		for (int first : new int[] {0, 1, 255, 256, 257, 511, 4000, LINES - 300, LINES - 1}) {
+			for (int count : new int[] {1, 2, 100, 600}) {
+				List<String> lines = log.getLines(first, count);
+				assertEquals(first + "+" + count, Math.min(count, LINES - first), lines.size());
+				for (int i = 0; i < lines.size(); i++) {
+					assertEquals(line(first + i), lines.get(i));
+				}
+			}
+		}
+		assertTrue(log.getLines(LINES, 1).isEmpty());
+	}
+
+	public void testLastLineWithoutLineBreak() {
+		log.append("first\r\nsecond\nthi");
+		log.append("rd");
+
+		assertEquals(3, log.getLineCount());
+		assertEquals(Arrays.asList("first", "second", "third"), log.getLines(0, Integer.MAX_VALUE));
+		assertEquals(Arrays.asList("third"), log.getLines(2, 1));
+		assertEquals(Arrays.asList("second", "third"), log.getLines(1, Integer.MAX_VALUE));
+	}
+
+	public void testCloseDeletesFile() {
+		log.append("output\n");
+		assertTrue(log.getFile().isFile());
+
+		log.close();
+		assertFalse(log.getFile().exists());
+		assertTrue(log.getLines(0, 1).isEmpty());
+	}
+}
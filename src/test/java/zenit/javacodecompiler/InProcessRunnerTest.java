@@ -0,0 +1,131 @@
+package test.java.zenit.javacodecompiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.tools.ToolProvider;
+
+import junit.framework.TestCase;
+import main.java.zenit.javacodecompiler.InProcessRunner;
+
+/**
+ * Tests that runs started by {@link InProcessRunner} live until their main thread ends, also
+ * when they are started from a daemon thread as the compile daemon does, and that nothing of a
+ * run is kept once it has ended.
+ */
+public class InProcessRunnerTest extends TestCase {
+	private static final PrintStream standardOut = System.out;
+	private static final PrintStream standardErr = System.err;
+
+	private File directory;
+	private ByteArrayOutputStream out;
+	private ByteArrayOutputStream err;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = Files.createTempDirectory("zenit-run").toFile();
+		out = new ByteArrayOutputStream();
+		err = new ByteArrayOutputStream();
+		// Routes System.out, System.err and System.in of runs to their own streams
+		InProcessRunner.setConsoleStreams(standardOut, standardErr);
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		try (Stream<java.nio.file.Path> files = Files.walk(directory.toPath())) {
+			files.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+		}
+	}
+
+	/**
+	 * Compiles a class with a main method into the test directory.
+	 */
+	private void compile(String className, String body) throws IOException {
+		File source = new File(directory, className + ".java");
+		String code = "public class " + className + " { public static void main(String[] args) throws Exception { "
+				+ body + " } }";
+		Files.write(source.toPath(), code.getBytes(StandardCharsets.UTF_8));
+		assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", directory.getPath(),
+				source.getPath()));
+	}
+
+	/**
+	 * Starts a run from a new daemon thread.
+	 */
+	private InProcessRunner startFromDaemon(String className) throws Exception {
+		CompletableFuture<InProcessRunner> started = new CompletableFuture<>();
+		Thread starter = new Thread(() -> started.complete(InProcessRunner.start(Collections.singletonList(directory),
+				className, new String[0], new PrintStream(out, true), new PrintStream(err, true))));
+		starter.setDaemon(true);
+		starter.start();
+
+		InProcessRunner run = started.get(10, TimeUnit.SECONDS);
+		assertNotNull("exit can't be intercepted on this JVM", run);
+		return run;
+	}
+
+	public void testRunStartedFromDaemonThreadIsNotStoppedEarly() throws Exception {
+		compile("Sleeper", "Thread.sleep(500); System.out.println(\"done\");");
+		InProcessRunner run = startFromDaemon("Sleeper");
+
+		assertTrue(run.waitFor(10, TimeUnit.SECONDS));
+		assertEquals(err.toString(), 0, run.exitValue());
+		assertEquals("done", out.toString().trim());
+	}
+
+	public void testRunStartedFromDaemonThreadReadsInput() throws Exception {
+		compile("Reader", "System.out.println(new java.io.BufferedReader("
+				+ "new java.io.InputStreamReader(System.in)).readLine());");
+		InProcessRunner run = startFromDaemon("Reader");
+
+		Thread.sleep(200);
+		assertTrue(run.isAlive());
+		run.getOutputStream().write("hello\n".getBytes(StandardCharsets.UTF_8));
+		run.getOutputStream().flush();
+
+		assertTrue(run.waitFor(10, TimeUnit.SECONDS));
+		assertEquals(err.toString(), 0, run.exitValue());
+		assertEquals("hello", out.toString().trim());
+	}
+
+	public void testDestroyEndsRun() throws Exception {
+		compile("Waiter", "Thread.sleep(60000);");
+		InProcessRunner run = startFromDaemon("Waiter");
+
+		Thread.sleep(200);
+		assertTrue(run.isAlive());
+		run.destroy();
+		assertTrue(run.waitFor(10, TimeUnit.SECONDS));
+		assertFalse(run.exitValue() == 0);
+	}
+
+	public void testEndedRunReleasesThreadGroup() throws Exception {
+		compile("Quick", "System.out.println(\"done\");");
+		InProcessRunner run = startFromDaemon("Quick");
+
+		assertTrue(run.waitFor(10, TimeUnit.SECONDS));
+		ThreadGroup[] groups = new ThreadGroup[Thread.currentThread().getThreadGroup().activeGroupCount() + 8];
+		int count = Thread.currentThread().getThreadGroup().enumerate(groups, true);
+		for (int i = 0; i < count; i++) {
+			assertFalse(groups[i].getName(), groups[i].getName().equals("Zenit run: Quick"));
+		}
+	}
+
+	public void testOnExitIsCompletedWhenRunEnds() throws Exception {
+		compile("Exiter", "System.exit(3);");
+		InProcessRunner run = startFromDaemon("Exiter");
+
+		assertSame(run.onExit(), run.onExit());
+		assertSame(run, run.onExit().get(10, TimeUnit.SECONDS));
+		assertEquals(3, run.exitValue());
+	}
+}
@@ -0,0 +1,147 @@
+package test.java.zenit.javacodecompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.io.FileOutputStream;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import javax.tools.ToolProvider;
+
+import junit.framework.TestCase;
+import main.java.zenit.javacodecompiler.IncrementalBuilder;
+
+/**
+ * Tests that {@link IncrementalBuilder} compiles the sources affected by a change.
+ */
+public class IncrementalBuilderTest extends TestCase {
+	private File project;
+	private File sourceDirectory;
+	private File outputDirectory;
+
+	@Override
+	protected void setUp() throws IOException {
+		project = Files.createTempDirectory("zenit-incremental").toFile();
+		sourceDirectory = new File(project, "src");
+		outputDirectory = new File(project, "bin");
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		try (Stream<java.nio.file.Path> files = Files.walk(project.toPath())) {
+			files.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+		}
+	}
+
+	private void write(String name, String content) throws IOException {
+		File file = new File(sourceDirectory, name);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private boolean build() {
+		return IncrementalBuilder.build(sourceDirectory, Collections.emptyList(), outputDirectory, null, null);
+	}
+
+	/**
+	 * Compiles a class outside the project and packs it into a library jar.
+	 *
+	 * @param className the internal name of the class, declared in L.java
+	 */
+	private File writeLibrary(String className, String content, long lastModified) throws IOException {
+		File directory = new File(project, "library");
+		directory.mkdirs();
+		File source = new File(directory, "L.java");
+		Files.write(source.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", directory.getPath(),
+				source.getPath()));
+
+		File jar = new File(project, "library.jar");
+		try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+			out.putNextEntry(new JarEntry(className + ".class"));
+			out.write(Files.readAllBytes(new File(directory, className + ".class").toPath()));
+		}
+		jar.setLastModified(lastModified);
+		return jar;
+	}
+
+	public void testChangedMethodBodyOnlyCompilesItsSource() throws IOException {
+		write("p/A.java", "package p; public class A { public int m() { return 1; } }");
+		write("p/User.java", "package p; class User { int use() { return new A().m(); } }");
+		assertTrue(build());
+
+		File user = new File(outputDirectory, "p/User.class");
+		long compiled = user.lastModified();
+		write("p/A.java", "package p; public class A { public int m() { return 2 + 0; } }");
+		assertTrue(build());
+		assertEquals(compiled, user.lastModified());
+	}
+
+	public void testChangedAbiCompilesDependents() throws IOException {
+		write("p/A.java", "package p; public class A { public void m() {} }");
+		write("p/User.java", "package p; class User { void use() { new A().m(); } }");
+		assertTrue(build());
+
+		write("p/A.java", "package p; public class A { public void n() {} }");
+		assertFalse(build());
+	}
+
+	public void testChangedAbiCompilesDependentsOfIndirectSubtypes() throws IOException {
+		write("p/A.java", "package p; public class A { public void m() {} }");
+		write("p/B.java", "package p; public class B extends A {}");
+		write("p/C.java", "package p; public class C extends B {}");
+		write("p/User.java", "package p; class User { void use() { new C().m(); } }");
+		assertTrue(build());
+
+		write("p/A.java", "package p; public class A { public void n() {} }");
+		assertFalse(build());
+	}
+
+	public void testChangedInterfaceCompilesDependentsOfImplementations() throws IOException {
+		write("p/I.java", "package p; public interface I { default void m() {} }");
+		write("p/J.java", "package p; public interface J extends I {}");
+		write("p/Impl.java", "package p; public class Impl implements J {}");
+		write("p/User.java", "package p; class User { void use() { new Impl().m(); } }");
+		assertTrue(build());
+
+		write("p/I.java", "package p; public interface I { default void n() {} }");
+		assertFalse(build());
+	}
+
+	public void testChangedTypeArgumentCompilesDependents() throws IOException {
+		write("p/A.java", "package p; import java.util.List; public class A { "
+				+ "public List<String> names() { return null; } }");
+		write("p/User.java", "package p; class User { String use() { return new A().names().get(0); } }");
+		assertTrue(build());
+
+		// The erased descriptor stays ()Ljava/util/List; only the signature changes
+		write("p/A.java", "package p; import java.util.List; public class A { "
+				+ "public List<Integer> names() { return null; } }");
+		assertFalse(build());
+	}
+
+	public void testChangedCheckedExceptionCompilesDependents() throws IOException {
+		write("p/A.java", "package p; public class A { public void m() {} }");
+		write("p/User.java", "package p; class User { void use() { new A().m(); } }");
+		assertTrue(build());
+
+		write("p/A.java", "package p; public class A { public void m() throws Exception {} }");
+		assertFalse(build());
+	}
+
+	public void testChangedLibraryCompilesAllSources() throws IOException {
+		File library = writeLibrary("lib/L", "package lib; public class L { public void m() {} }", 1_000_000_000_000L);
+		write("p/User.java", "package p; class User { void use() { new lib.L().m(); } }");
+		assertTrue(IncrementalBuilder.build(sourceDirectory, Collections.singletonList(library), outputDirectory,
+				null, null));
+
+		writeLibrary("lib/L", "package lib; public class L { public void n() {} }", 1_000_000_002_000L);
+		assertFalse(IncrementalBuilder.build(sourceDirectory, Collections.singletonList(library), outputDirectory,
+				null, null));
+	}
+}
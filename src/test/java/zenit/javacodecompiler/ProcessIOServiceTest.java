@@ -0,0 +1,122 @@
+package test.java.zenit.javacodecompiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.TestCase;
+import main.java.zenit.javacodecompiler.ProcessIOService;
+
+/**
+ * Tests that one stream whose sink throws or is full doesn't keep {@link ProcessIOService} from
+ * pumping the other streams.
+ */
+public class ProcessIOServiceTest extends TestCase {
+
+	/**
+	 * A process that has exited, leaving output in its pipe.
+	 */
+	private static class ExitedProcess extends Process {
+		private final InputStream output;
+
+		ExitedProcess(String output) {
+			this.output = new ByteArrayInputStream(output.getBytes(Charset.defaultCharset()));
+		}
+
+		@Override
+		public OutputStream getOutputStream() {
+			return OutputStream.nullOutputStream();
+		}
+
+		@Override
+		public InputStream getInputStream() {
+			return output;
+		}
+
+		@Override
+		public InputStream getErrorStream() {
+			return InputStream.nullInputStream();
+		}
+
+		@Override
+		public int waitFor() {
+			return 0;
+		}
+
+		@Override
+		public int exitValue() {
+			return 0;
+		}
+
+		@Override
+		public void destroy() {
+		}
+	}
+
+	/**
+	 * Pumps the output of an exited process into a string builder.
+	 *
+	 * @param done completed with the output once the stream has ended
+	 */
+	private static ProcessIOService.Pump pump(String output, CompletableFuture<String> done) {
+		Process process = new ExitedProcess(output);
+		StringBuilder received = new StringBuilder();
+		return ProcessIOService.getInstance().register(process, process.getInputStream(), chunk -> {
+			received.append(chunk);
+			if (received.length() == output.length()) {
+				done.complete(received.toString());
+			}
+			return true;
+		});
+	}
+
+	public void testThrowingSinkOnlyEndsItsOwnStream() throws Exception {
+		Process failing = new ExitedProcess("fails");
+		ProcessIOService.Pump failed = ProcessIOService.getInstance().register(failing, failing.getInputStream(),
+				chunk -> {
+					throw new IllegalStateException("sink failed");
+				});
+		CompletableFuture<String> other = new CompletableFuture<>();
+		pump("other output", other);
+
+		assertEquals("other output", other.get(10, TimeUnit.SECONDS));
+		for (int i = 0; i < 100 && !failed.isFinished(); i++) {
+			Thread.sleep(10);
+		}
+		assertTrue(failed.isFinished());
+
+		CompletableFuture<String> later = new CompletableFuture<>();
+		pump("registered later", later);
+		assertEquals("registered later", later.get(10, TimeUnit.SECONDS));
+	}
+
+	public void testFullSinkDoesNotBlockOtherStreams() throws Exception {
+		AtomicBoolean full = new AtomicBoolean(true);
+		StringBuilder received = new StringBuilder();
+		Process slow = new ExitedProcess("slow output");
+		ProcessIOService.Pump slowPump = ProcessIOService.getInstance().register(slow, slow.getInputStream(),
+				chunk -> {
+					if (full.get()) {
+						return false;
+					}
+					received.append(chunk);
+					return true;
+				});
+
+		CompletableFuture<String> other = new CompletableFuture<>();
+		pump("other output", other);
+		assertEquals("other output", other.get(10, TimeUnit.SECONDS));
+		assertFalse(slowPump.isFinished());
+
+		full.set(false);
+		for (int i = 0; i < 100 && !slowPump.isFinished(); i++) {
+			Thread.sleep(10);
+		}
+		assertTrue(slowPump.isFinished());
+		assertEquals("slow output", received.toString());
+	}
+}
@@ -0,0 +1,168 @@
+package test.java.zenit.zencodearea;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import main.java.zenit.zencodearea.LineCommentToggler;
+
+/**
+ * Tests that {@link LineCommentToggler} toggles the right lines and keeps the selection on the
+ * same text.
+ */
+public class LineCommentTogglerTest extends TestCase {
+
+	/**
+	 * Toggles the lines of a document from the given line on, the way the code area does.
+	 */
+	private static LineCommentToggler toggle(String document, int firstLine, int lineCount, int anchor, int caret) {
+		List<String> lines = Arrays.asList(document.split("\n", -1));
+		int firstLineStart = 0;
+		for (int i = 0; i < firstLine; i++) {
+			firstLineStart += lines.get(i).length() + 1;
+		}
+		return new LineCommentToggler(lines.subList(firstLine, firstLine + lineCount), firstLineStart, anchor, caret);
+	}
+
+	/**
+	 * Applies the edits of a toggler to a document.
+	 */
+	private static String apply(String document, LineCommentToggler toggler) {
+		StringBuilder result = new StringBuilder(document);
+		List<LineCommentToggler.Edit> edits = toggler.getEdits();
+		for (int i = edits.size() - 1; i >= 0; i--) {
+			LineCommentToggler.Edit edit = edits.get(i);
+			result.replace(edit.getStart(), edit.getEnd(), edit.getText());
+		}
+		return result.toString();
+	}
+
+	private static String selected(String document, LineCommentToggler toggler) {
+		return document.substring(Math.min(toggler.getAnchor(), toggler.getCaret()),
+				Math.max(toggler.getAnchor(), toggler.getCaret()));
+	}
+
+	public void testCommentKeepsSelection() {
+		String document = "int a;\nint b;\nint c;";
+		LineCommentToggler toggler = toggle(document, 0, 2, 4, 11);
+		String result = apply(document, toggler);
+
+		assertEquals("//int a;\n//int b;\nint c;", result);
+		assertEquals(6, toggler.getAnchor());
+		assertEquals(15, toggler.getCaret());
+		assertEquals("a;\n//int ", selected(result, toggler));
+	}
+
+	public void testUncommentKeepsSelection() {
+		String document = "//int a;\n//int b;\nint c;";
+		LineCommentToggler toggler = toggle(document, 0, 2, 6, 15);
+		String result = apply(document, toggler);
+
+		assertEquals("int a;\nint b;\nint c;", result);
+		assertEquals(4, toggler.getAnchor());
+		assertEquals(11, toggler.getCaret());
+		assertEquals("a;\nint ", selected(result, toggler));
+	}
+
+	public void testBackwardSelection() {
+		String document = "int a;\nint b;";
+		LineCommentToggler toggler = toggle(document, 0, 2, 13, 0);
+		String result = apply(document, toggler);
+
+		assertEquals("//int a;\n//int b;", result);
+		assertEquals(17, toggler.getAnchor());
+		assertEquals(0, toggler.getCaret());
+		assertEquals(result, selected(result, toggler));
+	}
+
+	public void testCaretWithoutSelection() {
+		String document = "    int a;";
+		LineCommentToggler commented = toggle(document, 0, 1, 7, 7);
+		String result = apply(document, commented);
+
+		assertEquals("//    int a;", result);
+		assertEquals(9, commented.getCaret());
+		assertEquals(9, commented.getAnchor());
+
+		LineCommentToggler uncommented = toggle(result, 0, 1, 9, 9);
+		assertEquals(document, apply(result, uncommented));
+		assertEquals(7, uncommented.getCaret());
+		assertEquals(7, uncommented.getAnchor());
+	}
+
+	public void testCommentSelectionStartingInIndentation() {
+		String document = "    int a;\n    int b;";
+		LineCommentToggler toggler = toggle(document, 0, 2, 2, 21);
+		String result = apply(document, toggler);
+
+		assertEquals("//    int a;\n//    int b;", result);
+		assertEquals(4, toggler.getAnchor());
+		assertEquals(25, toggler.getCaret());
+		assertEquals("  int a;\n//    int b;", selected(result, toggler));
+	}
+
+	public void testUncommentSelectionStartingInIndentation() {
+		String document = "    //int a;\n    //int b;";
+		LineCommentToggler toggler = toggle(document, 0, 2, 2, 25);
+		String result = apply(document, toggler);
+
+		assertEquals("    int a;\n    int b;", result);
+		assertEquals(2, toggler.getAnchor());
+		assertEquals(21, toggler.getCaret());
+		assertEquals("  int a;\n    int b;", selected(result, toggler));
+	}
+
+	public void testUncommentCaretInsideMarker() {
+		String document = "    //int a;";
+		LineCommentToggler toggler = toggle(document, 0, 1, 5, 5);
+
+		assertEquals("    int a;", apply(document, toggler));
+		assertEquals(4, toggler.getCaret());
+	}
+
+	public void testMixedBlockIsCommented() {
+		String document = "//int a;\nint b;\n//int c;";
+		LineCommentToggler toggler = toggle(document, 0, 3, 0, document.length());
+		String result = apply(document, toggler);
+
+		assertEquals("////int a;\n//int b;\n////int c;", result);
+		assertEquals(0, toggler.getAnchor());
+		assertEquals(result.length(), toggler.getCaret());
+	}
+
+	public void testBlankLinesAreSkipped() {
+		String document = "//int a;\n   \n//int b;";
+		LineCommentToggler toggler = toggle(document, 0, 3, 0, document.length());
+		String result = apply(document, toggler);
+
+		assertEquals("int a;\n   \nint b;", result);
+		assertEquals(result.length(), toggler.getCaret());
+	}
+
+	public void testSelectionEndingAtStartOfNextLine() {
+		// The line the selection ends on isn't toggled when nothing of it is selected
+		String document = "int a;\nint b;\nint c;";
+		LineCommentToggler toggler = toggle(document, 0, 2, 0, 14);
+		String result = apply(document, toggler);
+
+		assertEquals("//int a;\n//int b;\nint c;", result);
+		assertEquals(0, toggler.getAnchor());
+		assertEquals(18, toggler.getCaret());
+		assertEquals("//int a;\n//int b;\n", selected(result, toggler));
+
+		LineCommentToggler uncommented = toggle(result, 0, 2, 0, 18);
+		assertEquals(document, apply(result, uncommented));
+		assertEquals(14, uncommented.getCaret());
+	}
+
+	public void testLinesAfterFirstLineOfDocument() {
+		String document = "int a;\n\tint b;\n\tint c;";
+		LineCommentToggler toggler = toggle(document, 1, 2, 8, 21);
+		String result = apply(document, toggler);
+
+		assertEquals("int a;\n//\tint b;\n//\tint c;", result);
+		assertEquals(10, toggler.getAnchor());
+		assertEquals(25, toggler.getCaret());
+		assertEquals("int b;\n//\tint c", selected(result, toggler));
+	}
+}
@@ -0,0 +1,140 @@
+package test.java.zenit.zencodearea;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.layout.StackPane;
+import javafx.stage.Stage;
+import junit.framework.TestCase;
+import main.java.zenit.zencodearea.LineGutterFactory;
+import main.java.zenit.zencodearea.ZenCodeArea;
+
+/**
+ * Tests that the labels of {@link LineGutterFactory} are reused while a long document is
+ * scrolled, so the labels in use stay close to the number of lines in view.
+ * <p>
+ * Needs a display, or Monocle's headless platform. The tests are skipped if JavaFX can't start.
+ * </p>
+ */
+public class LineGutterFactoryTest extends TestCase {
+	private static final int LINES = 10_000;
+	private static Boolean started;
+
+	private Stage stage;
+	private ZenCodeArea area;
+
+	/**
+	 * Starts JavaFX once for all tests.
+	 *
+	 * @return false if JavaFX can't start in this environment
+	 */
+	private static synchronized boolean startPlatform() throws InterruptedException {
+		if (started == null) {
+			CountDownLatch latch = new CountDownLatch(1);
+			try {
+				Platform.startup(latch::countDown);
+				started = latch.await(10, TimeUnit.SECONDS);
+			} catch (IllegalStateException ex) {
+				// Already started by another test
+				started = true;
+			} catch (RuntimeException | UnsatisfiedLinkError ex) {
+				System.err.println("LineGutterFactoryTest: JavaFX can't start, skipping: " + ex);
+				started = false;
+			}
+		}
+		return started;
+	}
+
+	private static <T> T onFxThread(java.util.concurrent.Callable<T> callable) throws Exception {
+		FutureTask<T> task = new FutureTask<>(callable);
+		Platform.runLater(task);
+		return task.get(30, TimeUnit.SECONDS);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		if (!startPlatform()) {
+			return;
+		}
+		onFxThread(() -> {
+			StringBuilder text = new StringBuilder();
+			for (int i = 0; i < LINES; i++) {
+				text.append("int line").append(i).append(" = ").append(i).append(";\n");
+			}
+			area = new ZenCodeArea();
+			area.replaceText(text.toString());
+			stage = new Stage();
+			stage.setScene(new Scene(new StackPane(area), 600, 400));
+			stage.show();
+			layout();
+			return null;
+		});
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if (stage != null) {
+			onFxThread(() -> {
+				stage.close();
+				return null;
+			});
+		}
+	}
+
+	private void layout() {
+		area.getScene().getRoot().applyCss();
+		area.getScene().getRoot().layout();
+	}
+
+	private int countLabels(String fieldName) throws ReflectiveOperationException {
+		Object factory = area.getParagraphGraphicFactory();
+		Field field = LineGutterFactory.class.getDeclaredField(fieldName);
+		field.setAccessible(true);
+		return ((Collection<?>) field.get(factory)).size();
+	}
+
+	/**
+	 * Scrolls to every given step of the document and returns the most labels in use at once.
+	 */
+	private int scrollThrough(int step) throws Exception {
+		int most = 0;
+		for (int paragraph = 0; paragraph < LINES; paragraph += step) {
+			int target = paragraph;
+			most = Math.max(most, onFxThread(() -> {
+				area.showParagraphAtTop(target);
+				layout();
+				return countLabels("active");
+			}));
+		}
+		return most;
+	}
+
+	public void testLabelsInUseStayBoundedWhileScrolling() throws Exception {
+		if (area == null) {
+			return;
+		}
+		int visible = onFxThread(() -> area.getVisibleParagraphs().size());
+		assertTrue(visible > 0);
+
+		int mostInUse = scrollThrough(7);
+		assertTrue("labels in use: " + mostInUse + ", lines in view: " + visible, mostInUse <= 3 * visible + 10);
+	}
+
+	public void testLabelsAreReusedWhileScrolling() throws Exception {
+		if (area == null) {
+			return;
+		}
+		scrollThrough(50);
+		int created = onFxThread(() -> countLabels("active") + countLabels("pool"));
+
+		scrollThrough(3);
+		int createdAfter = onFxThread(() -> countLabels("active") + countLabels("pool"));
+		assertTrue("labels created: " + created + ", after scrolling again: " + createdAfter,
+				createdAfter <= created + 10);
+	}
+}